@@ -0,0 +1,23 @@
+package org.Task;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of target/benchmarks.jar: the normal JMH command line, with the GC profiler
+// always on so every result comes with allocation rates (gc.alloc.rate, gc.alloc.rate.norm).
+//   java -jar target/benchmarks.jar                          all benchmarks, all sizes
+//   java -jar target/benchmarks.jar sort -p size=1000000     one group, one size
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,234 @@
+package org.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// In-memory operations behind the menu: add, show, change status, filter, sort, edit, delete.
+// Mutating benchmarks undo their change so the table size stays at the parameter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class TaskOperationsBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private TaskTable table;
+    private TaskIndex index;
+    private SplittableRandom random;
+    private TaskTableRenderer renderer;
+    private TaskStore store;
+    private long[] allIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = TaskDataGenerator.generate(size, 42);
+        index = new TaskIndex();
+        index.rebuild(table);
+        random = new SplittableRandom(7);
+        renderer = new TaskTableRenderer(Writer.nullWriter());
+        // read-only view for the show benchmarks (the store builds its own indexes)
+        store = new TaskStore(table, Path.of("bench-unused.txt"), 0);
+        allIds = store.all();
+    }
+
+    // 1) Add (then delete it again; tombstones are compacted like the menu does)
+    @Benchmark
+    public int add() {
+        table.ensureCapacity();
+        int row = table.add("bench task", "added by benchmark", 3, TaskTable.STATUS_PENDING, "Work",
+                20450, 20437, 1.5, "bench,urgent", "osman");
+        index.add(table, row);
+        index.remove(table, row);
+        table.delete(row);
+        compactIfNeeded();
+        return row;
+    }
+
+    // 2) Show: list every id, render the first page (output discarded)
+    @Benchmark
+    public void showAll() {
+        long[] ids = store.all();
+        renderer.page(store.get(ids, 0, Math.min(ids.length, 50)));
+    }
+
+    // 2) Show a random page of 50 rows
+    @Benchmark
+    public void showPage() {
+        int from = random.nextInt(Math.max(1, allIds.length - 50));
+        renderer.page(store.get(allIds, from, Math.min(allIds.length, from + 50)));
+    }
+
+    // 3) Change status
+    @Benchmark
+    public byte changeStatus() {
+        int row = randomRow();
+        byte next = table.status(row) == TaskTable.STATUS_DONE ? TaskTable.STATUS_PENDING : TaskTable.STATUS_DONE;
+        index.remove(table, row);
+        table.setStatus(row, next);
+        index.add(table, row);
+        return next;
+    }
+
+    // 4) Filters
+    @Benchmark
+    public void filterByCategory(Blackhole bh) {
+        consume(index.byCategory("school"), bh);
+    }
+
+    @Benchmark
+    public void filterByPriority(Blackhole bh) {
+        consume(index.byPriority(5), bh);
+    }
+
+    @Benchmark
+    public void filterByTag(Blackhole bh) {
+        consume(index.byTag("deadline"), bh);
+    }
+
+    // 10) What to do next: top of the pending heap, nothing sorted
+    @Benchmark
+    public int[] next10() {
+        return index.nextPending(10);
+    }
+
+    // 11) Dashboard: copy of the running counters, no scan
+    @Benchmark
+    public TaskStats.Snapshot dashboard() {
+        return store.dashboard();
+    }
+
+    // 4) Full-text search: prefix expansion, BM25 over the candidates of the rarest word, top 20
+    @Benchmark
+    public TaskTextIndex.Result search() {
+        return store.search("prepare rep*", 20);
+    }
+
+    // 4) Date ranges from the day-ordered indexes (generated data is centered on 2025-12-15)
+    @Benchmark
+    public int[] dueNext7Days() {
+        return index.dueBetween(20437, 20443);
+    }
+
+    @Benchmark
+    public long[] overdue() {
+        return store.overdue(LocalDate.of(2025, 12, 15));
+    }
+
+    // 4) Query: combined conditions in one pass, driven by the tag index / by a full scan
+    private static final TaskQuery INDEXED_QUERY = TaskQuery.parse(
+            "category=work AND priority>=4 AND tag:urgent AND due<2026-01-01 AND status=Pending");
+    private static final TaskQuery SCAN_QUERY = TaskQuery.parse(
+            "hours>=4 AND due<2025-06-01 AND name~report ORDER BY priority, due LIMIT 50");
+
+    @Benchmark
+    public long[] queryIndexed() {
+        return store.query(INDEXED_QUERY).ids;
+    }
+
+    @Benchmark
+    public long[] queryScan() {
+        return store.query(SCAN_QUERY).ids;
+    }
+
+    // 5) Sorts
+    @Benchmark
+    public int[] sortByDueDate() {
+        return TaskSorter.sort(table, TaskSorter.Key.DUE_ASC);
+    }
+
+    @Benchmark
+    public int[] sortByPriority() {
+        return TaskSorter.sort(table, TaskSorter.Key.PRIORITY_DESC);
+    }
+
+    @Benchmark
+    public int[] sortByEstimatedTime() {
+        return TaskSorter.sort(table, TaskSorter.Key.HOURS_ASC);
+    }
+
+    @Benchmark
+    public int[] sortComposite() {
+        return TaskSorter.sort(table, TaskSorter.Key.PRIORITY_DESC, TaskSorter.Key.DUE_ASC,
+                TaskSorter.Key.HOURS_ASC);
+    }
+
+    // 6) Edit an indexed column
+    @Benchmark
+    public int editCategory() {
+        int row = randomRow();
+        String old = table.category(row);
+        index.remove(table, row);
+        table.setCategory(row, "Edited");
+        index.add(table, row);
+        index.remove(table, row);
+        table.setCategory(row, old);
+        index.add(table, row);
+        return row;
+    }
+
+    // 7) Delete a task by id, re-adding it (same id) at the end to keep the size
+    @Benchmark
+    public int delete() {
+        int row = table.slotOf(table.id(randomRow()));
+        String[] raw = new String[TaskTable.COLS];
+        for (int c = 0; c < TaskTable.COLS; c++) raw[c] = table.field(row, c);
+        index.remove(table, row);
+        table.delete(row);
+        compactIfNeeded();
+        table.ensureCapacity();
+        index.add(table, table.addRaw(raw));
+        return row;
+    }
+
+    // 8) Save: the point-in-time copy the writer works from (the only part edits wait for),
+    // then an edit that has to clone its now shared segment
+    @Benchmark
+    public int snapshotThenEdit() {
+        TaskTable copy = table.copy();
+        int row = randomRow();
+        table.setName(row, table.name(row));
+        return copy.size();
+    }
+
+    @Benchmark
+    public int lookupById() {
+        return table.slotOf(1 + random.nextLong(table.nextId() - 1));
+    }
+
+    // a random live slot
+    private int randomRow() {
+        int row = table.nextLive(random.nextInt(table.slots()));
+        return row >= 0 ? row : table.nextLive(0);
+    }
+
+    private void compactIfNeeded() {
+        if (!table.needsCompaction()) return;
+        table.compact();
+        index.rebuild(table);
+    }
+
+    private static void consume(PostingList rows, Blackhole bh) {
+        bh.consume(rows.toArray());
+    }
+}
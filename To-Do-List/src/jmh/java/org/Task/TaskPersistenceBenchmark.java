@@ -0,0 +1,165 @@
+package org.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.TimeUnit;
+
+// 8) Save / Load in the on-disk formats; the mapped one can also be used in place, the block
+//    file and the shards queried without loading them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class TaskPersistenceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private TaskTable table;
+    private Path dir;
+    private Path textFile;
+    private Path binaryFile;
+    private Path mappedFile;
+    private Path blockFile;
+    private Path shardFile;
+    private TaskShards shards;
+    private Set<String> oneShard;
+    private TaskQuery pendingDueSoon;
+    private TaskQuery oneCategory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        table = TaskDataGenerator.generate(size, 42);
+        dir = Files.createTempDirectory("task-bench");
+        textFile = dir.resolve("tasks-data.txt");
+        binaryFile = dir.resolve("tasks-data.bin");
+        mappedFile = dir.resolve("tasks-data.map");
+        blockFile = dir.resolve("tasks-data.blk");
+        TaskFile.write(table, textFile, 0);
+        TaskBinaryFile.write(table, binaryFile, 0);
+        TaskOffHeapTable.write(table, mappedFile, 0);
+        TaskBlockFile.write(table, blockFile, 0);
+        shardFile = dir.resolve("tasks-data.shards");
+        TaskShards.write(table, shardFile, 0);
+        shards = TaskShards.forFile(shardFile);
+        oneShard = Set.of(table.categoryKey(0));
+        oneCategory = TaskQuery.parse("category=" + table.categoryKey(0) + " AND status=Pending");
+        pendingDueSoon = TaskQuery.parse("status=Pending AND priority>=4 AND due<2025-02-01");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(textFile);
+        Files.deleteIfExists(binaryFile);
+        Files.deleteIfExists(mappedFile);
+        Files.deleteIfExists(blockFile);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Path saveText() throws IOException {
+        TaskFile.write(table, textFile, 0);
+        return textFile;
+    }
+
+    @Benchmark
+    public TaskTable loadText() throws IOException {
+        return TaskFileLoader.load(textFile).table;
+    }
+
+    @Benchmark
+    public Path saveBinary() throws IOException {
+        TaskBinaryFile.write(table, binaryFile, 0);
+        return binaryFile;
+    }
+
+    @Benchmark
+    public TaskTable loadBinary() throws IOException {
+        return TaskBinaryFile.load(binaryFile).table;
+    }
+
+    @Benchmark
+    public Path saveMapped() throws IOException {
+        TaskOffHeapTable.write(table, mappedFile, 0);
+        return mappedFile;
+    }
+
+    // as the store loads it: a table over the mapping (ids indexed, coded values decoded once)
+    @Benchmark
+    public TaskTable loadMapped() throws IOException {
+        return TaskOffHeapTable.load(mappedFile).table;
+    }
+
+    // used in place: map the file, then touch every record once
+    @Benchmark
+    public long openMappedAndScan() throws IOException {
+        try (TaskOffHeapTable t = TaskOffHeapTable.open(mappedFile)) {
+            long sum = 0;
+            for (int row = 0, n = t.slots(); row < n; row++) sum += t.priority(row);
+            return sum;
+        }
+    }
+
+    @Benchmark
+    public Path saveBlocks() throws IOException {
+        TaskBlockFile.write(table, blockFile, 0);
+        return blockFile;
+    }
+
+    @Benchmark
+    public TaskTable loadBlocks() throws IOException {
+        return TaskBlockFile.load(blockFile).table;
+    }
+
+    // straight from the file; blocks the index rules out are not inflated
+    @Benchmark
+    public int scanBlocks() throws IOException {
+        return TaskBlockFile.scan(blockFile, pendingDueSoon).rows.length;
+    }
+
+    // every shard, in parallel
+    @Benchmark
+    public Path saveSharded() throws IOException {
+        TaskShards.write(table, shardFile, 0);
+        return shardFile;
+    }
+
+    // a save after edits to one category: that shard and the manifest
+    @Benchmark
+    public long saveOneDirtyShard() throws IOException {
+        return shards.save(table, 0, oneShard);
+    }
+
+    @Benchmark
+    public TaskTable loadSharded() throws IOException {
+        return TaskShards.load(shardFile).table;
+    }
+
+    // category=... reads that category's shard only
+    @Benchmark
+    public int scanOneShard() throws IOException {
+        return TaskShards.scan(shardFile, oneCategory).rows.length;
+    }
+}
@@ -0,0 +1,98 @@
+package org.Task;
+
+import java.util.Arrays;
+
+// Task id -> slot hash map (open addressing, linear probing, no boxing).
+// Id 0 is reserved as the empty marker; real ids start at 1.
+public class IdIndex {
+
+    private long[] keys;
+    private int[] slots;
+    private int size = 0;
+    private int mask;
+
+    public IdIndex(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[cap];
+        slots = new int[cap];
+        mask = cap - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // slot of the id, or -1
+    public int get(long id) {
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == id) return slots[i];
+            if (k == 0) return -1;
+        }
+    }
+
+    public void put(long id, int slot) {
+        if (id == 0) throw new IllegalArgumentException("id 0 is reserved");
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == id) {
+                slots[i] = slot;
+                return;
+            }
+            if (k == 0) {
+                keys[i] = id;
+                slots[i] = slot;
+                size++;
+                return;
+            }
+        }
+    }
+
+    public void remove(long id) {
+        int i = hash(id) & mask;
+        while (keys[i] != id) {
+            if (keys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (movable) {
+                keys[gap] = keys[j];
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        size--;
+    }
+
+    public IdIndex copy() {
+        IdIndex c = new IdIndex(1);
+        c.keys = Arrays.copyOf(keys, keys.length);
+        c.slots = Arrays.copyOf(slots, slots.length);
+        c.size = size;
+        c.mask = mask;
+        return c;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[newCap];
+        slots = new int[newCap];
+        mask = newCap - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) put(oldKeys[i], oldSlots[i]);
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
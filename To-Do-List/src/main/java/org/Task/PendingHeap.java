@@ -0,0 +1,180 @@
+package org.Task;
+
+import java.util.Arrays;
+
+// Indexed binary heap of pending rows, best first: priority high to low, then due date,
+// then estimated time, then slot. Each row's heap position is tracked, so a row can be
+// removed (before it changes or is deleted) and re-added in O(log n).
+// Sort keys are copied in, the heap never reads the table.
+public class PendingHeap {
+
+    private int[] rows = new int[16];
+    private int[] priorities = new int[16];
+    private int[] dueDays = new int[16];
+    private double[] hours = new double[16];
+    private int size = 0;
+
+    // slot -> heap position, -1 when the row is not in the heap
+    private int[] position = new int[0];
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int row) {
+        return row < position.length && position[row] >= 0;
+    }
+
+    public void clear() {
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+
+    public void add(int row, int priority, int dueDay, double hours) {
+        append(row, priority, dueDay, hours);
+        siftUp(size - 1);
+    }
+
+    // no ordering work: for bulk loads, call heapify() once afterwards
+    public void append(int row, int priority, int dueDay, double hours) {
+        if (contains(row)) throw new IllegalStateException("row " + row + " is already queued");
+        if (size == rows.length) {
+            int cap = size * 2;
+            rows = Arrays.copyOf(rows, cap);
+            priorities = Arrays.copyOf(priorities, cap);
+            dueDays = Arrays.copyOf(dueDays, cap);
+            this.hours = Arrays.copyOf(this.hours, cap);
+        }
+        if (row >= position.length) {
+            int old = position.length;
+            position = Arrays.copyOf(position, Math.max(row + 1, old * 2));
+            Arrays.fill(position, old, position.length, -1);
+        }
+        int i = size++;
+        rows[i] = row;
+        priorities[i] = priority;
+        dueDays[i] = dueDay;
+        this.hours[i] = hours;
+        position[row] = i;
+    }
+
+    public void heapify() {
+        for (int i = size / 2 - 1; i >= 0; i--) siftDown(i);
+    }
+
+    public void remove(int row) {
+        if (!contains(row)) return;
+        int i = position[row];
+        position[row] = -1;
+        int last = --size;
+        if (i == last) return;
+        move(last, i);
+        // the moved entry may belong above or below its new place
+        if (i > 0 && better(i, (i - 1) / 2)) siftUp(i);
+        else siftDown(i);
+    }
+
+    // The best k rows in order, without changing the heap: a small frontier heap of
+    // positions walks down from the root, O(k log k).
+    public int[] top(int k) {
+        k = Math.max(0, Math.min(k, size));
+        int[] out = new int[k];
+        if (k == 0) return out;
+        int[] frontier = new int[2 * k + 1];
+        int n = 0;
+        frontier[n++] = 0;
+        for (int found = 0; found < k; found++) {
+            int best = frontier[0];
+            frontier[0] = frontier[--n];
+            frontierDown(frontier, n, 0);
+            out[found] = rows[best];
+            for (int child = 2 * best + 1; child <= 2 * best + 2; child++) {
+                if (child < size) {
+                    frontier[n] = child;
+                    frontierUp(frontier, n++);
+                }
+            }
+        }
+        return out;
+    }
+
+    // ===== Heap internals =====
+
+    // is the entry at heap position a ahead of the one at b
+    private boolean better(int a, int b) {
+        if (priorities[a] != priorities[b]) return priorities[a] > priorities[b];
+        if (dueDays[a] != dueDays[b]) return dueDays[a] < dueDays[b];
+        int c = Double.compare(hours[a], hours[b]);
+        if (c != 0) return c < 0;
+        return rows[a] < rows[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int best = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < size && better(l, best)) best = l;
+            if (r < size && better(r, best)) best = r;
+            if (best == i) return;
+            swap(i, best);
+            i = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int row = rows[a];
+        int p = priorities[a];
+        int d = dueDays[a];
+        double h = hours[a];
+        move(b, a);
+        rows[b] = row;
+        priorities[b] = p;
+        dueDays[b] = d;
+        hours[b] = h;
+        position[row] = b;
+    }
+
+    private void move(int from, int to) {
+        rows[to] = rows[from];
+        priorities[to] = priorities[from];
+        dueDays[to] = dueDays[from];
+        hours[to] = hours[from];
+        position[rows[to]] = to;
+    }
+
+    private void frontierUp(int[] f, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(f[i], f[parent])) return;
+            int t = f[i];
+            f[i] = f[parent];
+            f[parent] = t;
+            i = parent;
+        }
+    }
+
+    private void frontierDown(int[] f, int n, int i) {
+        while (true) {
+            int best = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < n && better(f[l], f[best])) best = l;
+            if (r < n && better(f[r], f[best])) best = r;
+            if (best == i) return;
+            int t = f[i];
+            f[i] = f[best];
+            f[best] = t;
+            i = best;
+        }
+    }
+}
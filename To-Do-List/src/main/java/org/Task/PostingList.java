@@ -0,0 +1,21 @@
+package org.Task;
+
+// Rows of one index key, read in ascending row order: RowSet (sorted ints) for tags and
+// days, RowBitmap for the low-cardinality columns.
+public interface PostingList {
+
+    void add(int row);
+
+    void remove(int row);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int[] toArray();
+
+    // writes the rows into dst starting at at, returns the position after them
+    int copyTo(int[] dst, int at);
+}
@@ -0,0 +1,60 @@
+package org.Task;
+
+import java.util.Arrays;
+
+// Set of row numbers as a bitmap, the posting list of category, priority and status. Each
+// of those keys holds a large share of the table, so a sorted RowSet would shift hundreds
+// of thousands of ints per edit; here adding or removing a row is O(1). Reading the rows
+// out costs O(highest row / 64), about the same as copying a big RowSet.
+public class RowBitmap implements PostingList {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] words = EMPTY;
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int row) {
+        int w = row >>> 6;
+        return w < words.length && (words[w] & (1L << row)) != 0;
+    }
+
+    public void add(int row) {
+        int w = row >>> 6;
+        if (w >= words.length) words = Arrays.copyOf(words, Math.max(w + 1, words.length * 2));
+        long bit = 1L << row;
+        if ((words[w] & bit) == 0) {
+            words[w] |= bit;
+            size++;
+        }
+    }
+
+    public void remove(int row) {
+        int w = row >>> 6;
+        if (w >= words.length) return;
+        long bit = 1L << row;
+        if ((words[w] & bit) != 0) {
+            words[w] &= ~bit;
+            size--;
+        }
+    }
+
+    public int[] toArray() {
+        int[] out = new int[size];
+        copyTo(out, 0);
+        return out;
+    }
+
+    public int copyTo(int[] dst, int at) {
+        int end = at + size;
+        for (int w = 0; at < end; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                dst[at++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return at;
+    }
+}
@@ -0,0 +1,62 @@
+package org.Task;
+
+import java.util.Arrays;
+
+// Sorted set of row numbers, the posting list of the tag and date indexes.
+public class RowSet implements PostingList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] rows = EMPTY;
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return rows[i];
+    }
+
+    public boolean contains(int row) {
+        return Arrays.binarySearch(rows, 0, size, row) >= 0;
+    }
+
+    public void add(int row) {
+        // appends are the common case (new rows, loads), keep them O(1)
+        if (size == 0 || rows[size - 1] < row) {
+            grow();
+            rows[size++] = row;
+            return;
+        }
+        int pos = Arrays.binarySearch(rows, 0, size, row);
+        if (pos >= 0) return;
+        pos = -pos - 1;
+        grow();
+        System.arraycopy(rows, pos, rows, pos + 1, size - pos);
+        rows[pos] = row;
+        size++;
+    }
+
+    public void remove(int row) {
+        int pos = Arrays.binarySearch(rows, 0, size, row);
+        if (pos < 0) return;
+        System.arraycopy(rows, pos + 1, rows, pos, size - pos - 1);
+        size--;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(rows, size);
+    }
+
+    // writes the rows into dst starting at at, returns the position after them
+    public int copyTo(int[] dst, int at) {
+        System.arraycopy(rows, 0, dst, at, size);
+        return at + size;
+    }
+
+    private void grow() {
+        if (size < rows.length) return;
+        rows = Arrays.copyOf(rows, Math.max(4, rows.length * 2));
+    }
+}
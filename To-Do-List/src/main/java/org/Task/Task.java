@@ -1,6 +1,9 @@
 package org.Task;
 import java.time.LocalDate;
+// Plain copy of one task. TaskStore hands out fresh copies, so changing one never changes
+// the stored task; use TaskStore.update() for that.
 public class Task {
+    private long id;
     private String name;
     private String description;
     private int priority;
@@ -28,6 +31,28 @@ public class Task {
         this.assignedTo = assignedTo;
     }
 
+    // copy of one table row; missing dates become null
+    static Task of(TaskTable table, int row) {
+        Task task = new Task(table.name(row), table.description(row), table.priority(row),
+                TaskTable.statusName(table.status(row)), table.category(row),
+                toDate(table.dueDay(row)), toDate(table.createdDay(row)),
+                table.hours(row), table.tags(row), table.assignedTo(row));
+        task.id = table.id(row);
+        return task;
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay == TaskTable.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
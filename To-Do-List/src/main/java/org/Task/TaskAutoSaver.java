@@ -0,0 +1,83 @@
+package org.Task;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Saves a TaskStore in the background: every period, and as soon as possible after saveSoon().
+// Each save copies the table (copy-on-write, edits wait only for that) and writes it to a
+// temp file that is renamed over the data file, all on one daemon thread, so saves never
+// overlap. Requests that arrive while one is queued are folded into it, and a save is
+// skipped when nothing changed since the last one (unless it was asked for with force).
+public class TaskAutoSaver implements AutoCloseable {
+
+    private final TaskStore store;
+    private final ScheduledExecutorService thread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "todo-autosave");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final AtomicBoolean forced = new AtomicBoolean();
+    private volatile long saves;
+    private volatile String lastError;
+
+    // periodSeconds <= 0: no timer, only saveSoon() and close() save
+    public TaskAutoSaver(TaskStore store, long periodSeconds) {
+        this.store = store;
+        if (periodSeconds > 0) {
+            thread.scheduleWithFixedDelay(this::run, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // Returns at once. force: write the file even if nothing changed (an explicit save).
+    // Returns false when a save was already queued; this request joins it.
+    public boolean saveSoon(boolean force) {
+        if (force) forced.set(true);
+        if (!queued.compareAndSet(false, true)) return false;
+        thread.execute(() -> {
+            queued.set(false);
+            run();
+        });
+        return true;
+    }
+
+    private void run() {
+        try {
+            if (forced.getAndSet(false)) {
+                store.save();
+                saves++;
+            } else if (store.saveIfChanged()) {
+                saves++;
+            }
+            lastError = null;
+        } catch (IOException | RuntimeException e) {
+            // kept for the caller to show; the next run tries again
+            lastError = String.valueOf(e.getMessage());
+        }
+    }
+
+    // files written so far
+    public long saves() {
+        return saves;
+    }
+
+    // message of the last failed save, null when the last save worked
+    public String lastError() {
+        return lastError;
+    }
+
+    // waits for a running save, then saves whatever changed since on the calling thread
+    @Override
+    public void close() throws IOException {
+        thread.shutdown();
+        try {
+            thread.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (store.saveIfChanged()) saves++;
+    }
+}
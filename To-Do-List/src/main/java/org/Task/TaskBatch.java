@@ -0,0 +1,410 @@
+package org.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Non-interactive mode: TaskManager --batch [file] runs commands from a file (or stdin, "-"),
+// one per line. Fields use the same names and checks as the HTTP API; values with blanks
+// are quoted ("..." with \" \\ \n \t escapes).
+//
+//   add name="Buy milk" priority=3 dueDate=2026-01-31 [description= category= estimatedTime=
+//       tags= assignedTo= status=]
+//   set-status <id> Pending|Done
+//   edit <id> field=value ...
+//   delete <id>
+//   import <file>          .csv: a header row of field names, then one task per record
+//                          .tsv/.txt: rows in data file layout (an id that is taken gets a new one)
+//   query <TaskQuery>      prints the matches as JSON, one per line, after "# N match(es)"
+//   begin / commit / rollback
+//
+// Changes are grouped into transactions, each applied by one TaskStore.apply() (one lock,
+// one index update) and saved once. Between begin and commit, any error rolls the whole
+// transaction back at commit. Outside, every todo.batch.size changes form a transaction,
+// and a bad command is reported and skipped. A query first commits what is pending.
+public class TaskBatch {
+
+    private static final int AUTO_SIZE = Math.max(1, Integer.getInteger("todo.batch.size", 10_000));
+
+    // One change of a transaction, see TaskStore.apply().
+    public static final class Change {
+        static final byte ADD = 0;
+        static final byte UPDATE = 1;
+        static final byte DELETE = 2;
+
+        final byte kind;
+        final long id;
+        final Task task;            // ADD: from fields
+        final String[] fields;      // ADD: a raw data file row instead (TaskTable.addRaw)
+        final TaskUpdate update;    // UPDATE
+
+        private Change(byte kind, long id, Task task, String[] fields, TaskUpdate update) {
+            this.kind = kind;
+            this.id = id;
+            this.task = task;
+            this.fields = fields;
+            this.update = update;
+        }
+
+        public static Change add(Task task) {
+            return new Change(ADD, 0, task, null, null);
+        }
+
+        public static Change addRaw(String[] fields) {
+            return new Change(ADD, 0, null, fields, null);
+        }
+
+        public static Change update(long id, TaskUpdate update) {
+            return new Change(UPDATE, id, null, null, update);
+        }
+
+        public static Change delete(long id) {
+            return new Change(DELETE, id, null, null, null);
+        }
+    }
+
+    private final TaskStore store;
+    private final PrintStream out;
+
+    private final List<Change> pending = new ArrayList<>();
+    private IdIndex pendingDeletes = new IdIndex(16);
+    private boolean explicit;           // inside begin ... commit
+    private int beganAt;                // line of the begin
+    private String failure;             // first error of the open explicit transaction
+
+    private long commands;
+    private long added;
+    private long edited;
+    private long deleted;
+    private long errors;
+    private long transactions;
+    private long rolledBack;
+    private long applyNanos;
+    private long saveNanos;
+
+    public TaskBatch(TaskStore store, PrintStream out) {
+        this.store = store;
+        this.out = out;
+    }
+
+    // Runs every command, commits what is left and prints the totals. False if anything failed.
+    public boolean run(BufferedReader in) throws IOException {
+        long started = System.nanoTime();
+        int lineNo = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            commands++;
+            try {
+                execute(trimmed, lineNo);
+            } catch (IllegalArgumentException e) {
+                error(lineNo, e.getMessage());
+            } catch (IOException e) {
+                // an import file that is missing or unreadable fails its command like any other
+                error(lineNo, e instanceof NoSuchFileException
+                        ? "no such file: " + e.getMessage()
+                        : "error reading: " + e.getMessage());
+            }
+        }
+        if (explicit) {
+            error(lineNo, "end of input inside the transaction begun on line " + beganAt);
+            rollback();
+        } else {
+            commit(lineNo);
+        }
+        report(System.nanoTime() - started);
+        return errors == 0;
+    }
+
+    private void execute(String line, int lineNo) throws IOException {
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toLowerCase(Locale.ROOT);
+        String rest = space < 0 ? "" : line.substring(space + 1).trim();
+        List<String> args = command.equals("query") ? List.of() : tokens(rest);
+        switch (command) {
+            case "begin":
+                if (explicit) throw new IllegalArgumentException("already inside the transaction begun on line " + beganAt);
+                commit(lineNo);
+                explicit = true;
+                beganAt = lineNo;
+                failure = null;
+                break;
+            case "commit":
+                if (!explicit) throw new IllegalArgumentException("commit without begin");
+                explicit = false;
+                if (failure != null) {
+                    out.println("Transaction from line " + beganAt + " rolled back: " + failure);
+                    rollback();
+                } else {
+                    commit(lineNo);
+                }
+                break;
+            case "rollback":
+                if (!explicit) throw new IllegalArgumentException("rollback without begin");
+                explicit = false;
+                rollback();
+                break;
+            case "add":
+                queue(Change.add(TaskServer.task(fields(args, 0))), lineNo);
+                break;
+            case "set-status": {
+                expect(args, 2, "set-status <id> Pending|Done");
+                long id = existing(args.get(0));
+                queue(Change.update(id, new TaskUpdate().status(TaskServer.status(args.get(1)))), lineNo);
+                break;
+            }
+            case "edit": {
+                if (args.size() < 2) throw new IllegalArgumentException("usage: edit <id> field=value ...");
+                long id = existing(args.get(0));
+                queue(Change.update(id, TaskServer.update(fields(args, 1))), lineNo);
+                break;
+            }
+            case "delete": {
+                expect(args, 1, "delete <id>");
+                long id = existing(args.get(0));
+                queue(Change.delete(id), lineNo);
+                pendingDeletes.put(id, 0);
+                break;
+            }
+            case "import":
+                expect(args, 1, "import <file.csv|file.tsv>");
+                importFile(Path.of(args.get(0)), lineNo);
+                break;
+            case "query": {
+                if (!explicit) commit(lineNo);
+                TaskQuery.Result result = store.query(TaskQuery.parse(rest));
+                out.println("# " + result.ids.length + " match(es), plan: " + result.plan);
+                StringBuilder sb = new StringBuilder(256);
+                for (Task task : store.get(result.ids, 0, result.ids.length)) {
+                    sb.setLength(0);
+                    TaskJson.appendTask(sb, task);
+                    out.println(sb);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown command: " + command);
+        }
+    }
+
+    // ===== Transactions =====
+
+    private void queue(Change change, int lineNo) {
+        pending.add(change);
+        if (!explicit && pending.size() >= AUTO_SIZE) commit(lineNo);
+    }
+
+    private void commit(int lineNo) {
+        if (pending.isEmpty()) return;
+        long t0 = System.nanoTime();
+        try {
+            store.apply(pending);
+        } catch (IllegalArgumentException e) {
+            // the commands were checked when read, so this is a task deleted by someone else
+            error(lineNo, "transaction not applied: " + e.getMessage());
+            rollback();
+            return;
+        }
+        long t1 = System.nanoTime();
+        applyNanos += t1 - t0;
+        transactions++;
+        for (Change c : pending) {
+            if (c.kind == Change.ADD) added++;
+            else if (c.kind == Change.UPDATE) edited++;
+            else deleted++;
+        }
+        pending.clear();
+        pendingDeletes = new IdIndex(16);
+        try {
+            store.save();
+        } catch (IOException e) {
+            error(lineNo, "error saving file: " + e.getMessage());
+        }
+        saveNanos += System.nanoTime() - t1;
+    }
+
+    private void rollback() {
+        if (!pending.isEmpty()) rolledBack++;
+        pending.clear();
+        pendingDeletes = new IdIndex(16);
+    }
+
+    private void error(int lineNo, String message) {
+        errors++;
+        if (explicit) {
+            if (failure == null) failure = "line " + lineNo + ": " + message;
+            out.println("line " + lineNo + ": " + message);
+        } else {
+            out.println("line " + lineNo + ": " + message + " (skipped)");
+        }
+    }
+
+    // ===== Imports =====
+
+    private void importFile(Path file, int lineNo) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".csv")) importCsv(in, file, lineNo);
+            else importTsv(in, file, lineNo);
+        }
+    }
+
+    private void importCsv(BufferedReader in, Path file, int lineNo) throws IOException {
+        List<String> header = csvRecord(in);
+        if (header == null) return;
+        List<String> record;
+        int n = 1;
+        while ((record = csvRecord(in)) != null) {
+            n++;
+            if (record.size() == 1 && record.get(0).isBlank()) continue;
+            Map<String, String> f = new LinkedHashMap<>();
+            // empty cells are missing fields
+            for (int i = 0; i < Math.min(header.size(), record.size()); i++) {
+                if (!record.get(i).isEmpty()) f.put(header.get(i).trim(), record.get(i));
+            }
+            try {
+                queue(Change.add(TaskServer.task(f)), lineNo);
+            } catch (IllegalArgumentException e) {
+                error(lineNo, file.getFileName() + " record " + n + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // rows as in the data file; a data file's "count capacity" header line is skipped
+    private void importTsv(BufferedReader in, Path file, int lineNo) throws IOException {
+        String line;
+        int n = 0;
+        while ((line = in.readLine()) != null) {
+            n++;
+            if (line.isEmpty() || (n == 1 && line.matches("\\d+( \\d+)*"))) continue;
+            String[] p = line.split("\t", -1);
+            if (p.length != TaskTable.COLS && p.length != TaskTable.LEGACY_COLS) {
+                error(lineNo, file.getFileName() + " line " + n + ": expected " + TaskTable.COLS
+                        + " fields (" + TaskTable.LEGACY_COLS + " without id), found " + p.length);
+                continue;
+            }
+            for (int c = 0; c < p.length; c++) p[c] = TaskFile.unescape(p[c]);
+            queue(Change.addRaw(p), lineNo);
+        }
+    }
+
+    // one record, quoted cells may hold commas, "" and line breaks; null at end of input
+    static List<String> csvRecord(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null) return null;
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        cell.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else {
+                    cell.append(c);
+                }
+            }
+            if (!quoted) break;
+            line = in.readLine();
+            if (line == null) throw new IllegalArgumentException("unterminated quote at end of file");
+            cell.append('\n');
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // ===== Parsing =====
+
+    // blank separated; "..." groups blanks and takes \" \\ \n \t escapes, also inside a word
+    // (name="Buy milk")
+    static List<String> tokens(String s) {
+        List<String> out = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if (c == '\\' && i + 1 < s.length()) {
+                    char e = s.charAt(++i);
+                    sb.append(e == 'n' ? '\n' : e == 't' ? '\t' : e);
+                } else {
+                    sb.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (any) out.add(sb.toString());
+                sb.setLength(0);
+                any = false;
+            } else if (c == '"') {
+                quoted = true;
+                any = true;
+            } else {
+                sb.append(c);
+                any = true;
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quote");
+        if (any) out.add(sb.toString());
+        return out;
+    }
+
+    private static Map<String, String> fields(List<String> args, int from) {
+        Map<String, String> f = new LinkedHashMap<>();
+        for (String arg : args.subList(from, args.size())) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("expected field=value, found: " + arg);
+            f.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return f;
+    }
+
+    private static void expect(List<String> args, int n, String usage) {
+        if (args.size() != n) throw new IllegalArgumentException("usage: " + usage);
+    }
+
+    // an id that is in the store and not deleted earlier in this transaction
+    private long existing(String text) {
+        long id = TaskTable.parseId(text);
+        if (id == 0) throw new IllegalArgumentException("not a task ID: " + text);
+        if (pendingDeletes.get(id) >= 0 || !store.contains(id)) {
+            throw new IllegalArgumentException("no task with ID " + id);
+        }
+        return id;
+    }
+
+    // ===== Report =====
+
+    private void report(long totalNanos) {
+        long changes = added + edited + deleted;
+        out.printf("Batch: %,d commands, %,d changes in %,d transaction(s) (%,d added, %,d edited, %,d deleted), "
+                + "%,d rolled back, %,d error(s)%n", commands, changes, transactions, added, edited, deleted,
+                rolledBack, errors);
+        out.printf("Applied in %,.1f ms (%,.0f changes/s), saved in %,.1f ms, %,.1f ms in all%n",
+                applyNanos / 1e6, changes / Math.max(1e-9, applyNanos / 1e9), saveNanos / 1e6, totalNanos / 1e6);
+    }
+}
@@ -0,0 +1,415 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Binary data file (tasks-data.bin), little endian:
+//
+//   header   magic "TDLB", int version, int rowCount, int columnCount, long generation,
+//            long[columnCount] section offsets (indexed by TaskTable.COL_*)
+//   sections one per column, each starting on an 8-byte boundary
+//            priority, due, created: int[rowCount]
+//            status:                 byte[rowCount]
+//            hours:                  double[rowCount]
+//            id:                     long[rowCount] (version 2 and up)
+//            text columns:           int[rowCount + 1] byte offsets, then the UTF-8 bytes
+//
+// Version 1 files have no id section; their rows get fresh ids when loaded.
+//
+// Every section is fixed-width or indexed by its offset table, so a reader can map
+// the file and jump to any row without looking at the rows before it.
+public class TaskBinaryFile {
+
+    static final int MAGIC = 0x424C4454;   // "TDLB" read as little endian
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = headerBytes(TaskTable.COLS);
+
+    static int headerBytes(int cols) {
+        return 24 + 8 * cols;
+    }
+
+    // ===== Writing =====
+
+    public static void write(TaskTable table, Path path, long generation) throws IOException {
+        // only live rows are written, so the file never contains tombstones
+        int[] rows = table.liveSlots();
+        int n = rows.length;
+        long[] sections = new long[TaskTable.COLS];
+        long pos = HEADER_BYTES;
+        for (int c = 0; c < TaskTable.COLS; c++) {
+            pos = align(pos);
+            sections[c] = pos;
+            pos += sectionBytes(table, c, rows);
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Out out = new Out(ch);
+            out.buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(TaskTable.COLS).putLong(generation);
+            for (long s : sections) out.buf.putLong(s);
+
+            for (int c = 0; c < TaskTable.COLS; c++) {
+                out.padTo(sections[c]);
+                writeSection(out, table, c, rows);
+            }
+            out.flush();
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long sectionBytes(TaskTable table, int col, int[] rows) {
+        int n = rows.length;
+        switch (col) {
+            case TaskTable.COL_PRIORITY:
+            case TaskTable.COL_DUE:
+            case TaskTable.COL_CREATED:
+                return 4L * n;
+            case TaskTable.COL_STATUS:
+                return n;
+            case TaskTable.COL_EST_TIME:
+            case TaskTable.COL_ID:
+                return 8L * n;
+            default: {
+                long bytes = 4L * (n + 1);
+                for (int row : rows) bytes += textLength(table, col, row);
+                return bytes;
+            }
+        }
+    }
+
+    private static void writeSection(Out out, TaskTable table, int col, int[] rows) throws IOException {
+        switch (col) {
+            case TaskTable.COL_PRIORITY:
+                for (int row : rows) out.need(4).putInt(table.priority(row));
+                break;
+            case TaskTable.COL_DUE:
+                for (int row : rows) out.need(4).putInt(table.dueDay(row));
+                break;
+            case TaskTable.COL_CREATED:
+                for (int row : rows) out.need(4).putInt(table.createdDay(row));
+                break;
+            case TaskTable.COL_STATUS:
+                for (int row : rows) out.need(1).put(table.status(row));
+                break;
+            case TaskTable.COL_EST_TIME:
+                for (int row : rows) out.need(8).putDouble(table.hours(row));
+                break;
+            case TaskTable.COL_ID:
+                for (int row : rows) out.need(8).putLong(table.id(row));
+                break;
+            default: {
+                int off = 0;
+                out.need(4).putInt(0);
+                for (int row : rows) {
+                    long next = (long) off + textLength(table, col, row);
+                    if (next > Integer.MAX_VALUE) throw new IOException("text column over 2 GiB");
+                    off = (int) next;
+                    out.need(4).putInt(off);
+                }
+                TaskLazyText lazy = col == TaskTable.COL_DESC ? table.lazyText() : null;
+                for (int row : rows) {
+                    if (lazy != null && table.descriptionUnloaded(row)) out.put(lazy.bytes(table.id(row)));
+                    else out.put(text(table, col, row).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    private static String text(TaskTable table, int col, int row) {
+        String s = table.field(row, col);
+        return s == null ? "" : s;
+    }
+
+    // a description still in a lazily loaded file is measured (and later copied) there, as
+    // bytes: decoding it through TaskLazyText would run every row through its small cache
+    private static int textLength(TaskTable table, int col, int row) {
+        if (col == TaskTable.COL_DESC && table.descriptionUnloaded(row)) {
+            return table.lazyText().length(table.id(row));
+        }
+        return utf8Length(text(table, col, row));
+    }
+
+    static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) len++;
+            else if (c < 0x800) len += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else len += 3;
+        }
+        return len;
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    // buffered channel writer that tracks the file position
+    private static class Out {
+        final FileChannel ch;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        long written = 0;
+
+        Out(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        ByteBuffer need(int bytes) throws IOException {
+            if (buf.remaining() < bytes) flush();
+            return buf;
+        }
+
+        void put(byte[] b) throws IOException {
+            int off = 0;
+            while (off < b.length) {
+                if (!buf.hasRemaining()) flush();
+                int n = Math.min(buf.remaining(), b.length - off);
+                buf.put(b, off, n);
+                off += n;
+            }
+        }
+
+        void put(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                if (!buf.hasRemaining()) flush();
+                int n = Math.min(buf.remaining(), src.remaining());
+                buf.put(src.slice(src.position(), n));
+                src.position(src.position() + n);
+            }
+        }
+
+        void padTo(long pos) throws IOException {
+            while (written + buf.position() < pos) need(1).put((byte) 0);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) written += ch.write(buf);
+            buf.clear();
+        }
+    }
+
+    // ===== Reading =====
+
+    public static TaskFileLoader.Result load(Path path) throws IOException {
+        try (Reader r = Reader.open(path)) {
+            TaskFileLoader.Result result = new TaskFileLoader.Result();
+            int n = r.size();
+            TaskTable table = new TaskTable(Math.max(n, 1));
+            for (int i = 0; i < n; i++) {
+                table.addWithId(r.id(i), r.text(TaskTable.COL_NAME, i), r.text(TaskTable.COL_DESC, i),
+                        r.priority(i), r.status(i), r.text(TaskTable.COL_CATEGORY, i),
+                        r.dueDay(i), r.createdDay(i), r.hours(i),
+                        r.text(TaskTable.COL_TAGS, i), r.text(TaskTable.COL_ASSIGNED, i));
+            }
+            table.finishLoad();
+            result.table = table;
+            result.declaredCount = n;
+            result.capacity = n;
+            result.generation = r.generation();
+            result.bytesRead = Files.size(path);
+            return result;
+        }
+    }
+
+    // Like load(), but descriptions stay in the file: rows get TaskLazyText.UNLOADED and
+    // TaskLazyText reads them from the mapping on first use. Everything else is loaded,
+    // including tags and assignee, which the tag index and dashboard read at startup anyway.
+    public static TaskFileLoader.Result loadLazy(Path path) throws IOException {
+        // the mappings outlive the channel, which is closed here
+        try (Reader r = Reader.open(path)) {
+            TaskFileLoader.Result result = new TaskFileLoader.Result();
+            int n = r.size();
+            TaskTable table = new TaskTable(Math.max(n, 1));
+            for (int i = 0; i < n; i++) {
+                table.addWithId(r.id(i), r.text(TaskTable.COL_NAME, i), TaskLazyText.UNLOADED,
+                        r.priority(i), r.status(i), r.text(TaskTable.COL_CATEGORY, i),
+                        r.dueDay(i), r.createdDay(i), r.hours(i),
+                        r.text(TaskTable.COL_TAGS, i), r.text(TaskTable.COL_ASSIGNED, i));
+            }
+            table.finishLoad();
+            // after finishLoad(), which numbers rows without an id; row i is still file row i
+            long[] ids = new long[n];
+            for (int i = 0; i < n; i++) ids[i] = table.id(i);
+            table.setLazyText(new TaskLazyText(r, ids, TaskLazyText.CACHE_SIZE));
+            result.table = table;
+            result.declaredCount = n;
+            result.capacity = n;
+            result.generation = r.generation();
+            // what was actually touched: the offset tables and the eager columns
+            result.bytesRead = Files.size(path) - r.sectionBytes(TaskTable.COL_DESC);
+            return result;
+        }
+    }
+
+    // Random-access view over a mapped binary file; each section is mapped on its own
+    // so files larger than 2 GiB work as long as each column fits in one mapping.
+    public static class Reader implements AutoCloseable {
+        private final FileChannel ch;
+        private final int rows;
+        private final long generation;
+        private final ByteBuffer[] sections = new ByteBuffer[TaskTable.COLS];
+        private final int[] textStart = new int[TaskTable.COLS];
+        private final long[] sectionBytes = new long[TaskTable.COLS];
+
+        private Reader(FileChannel ch) throws IOException {
+            this.ch = ch;
+            ByteBuffer h = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, h, 0);
+            if (h.getInt() != MAGIC) throw new IOException("not a task binary file");
+            int version = h.getInt();
+            if (version < 1 || version > VERSION) throw new IOException("unsupported binary version " + version);
+            rows = h.getInt();
+            int cols = h.getInt();
+            int expected = version == 1 ? TaskTable.LEGACY_COLS : TaskTable.COLS;
+            if (cols != expected) throw new IOException("unexpected column count " + cols);
+            h = ByteBuffer.allocate(headerBytes(cols) - 16).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, h, 16);
+            generation = h.getLong();
+            long[] offsets = new long[cols];
+            for (int c = 0; c < cols; c++) offsets[c] = h.getLong();
+
+            long size = ch.size();
+            for (int c = 0; c < cols; c++) {
+                long end = c + 1 < cols ? offsets[c + 1] : size;
+                MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, offsets[c], end - offsets[c]);
+                sections[c] = m.order(ByteOrder.LITTLE_ENDIAN);
+                sectionBytes[c] = end - offsets[c];
+                textStart[c] = 4 * (rows + 1);
+            }
+        }
+
+        private static void readFully(FileChannel ch, ByteBuffer h, long at) throws IOException {
+            while (h.hasRemaining()) {
+                if (ch.read(h, at + h.position()) < 0) throw new IOException("truncated header");
+            }
+            h.flip();
+        }
+
+        public static Reader open(Path path) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return new Reader(ch);
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        public long generation() {
+            return generation;
+        }
+
+        public int priority(int row) {
+            return sections[TaskTable.COL_PRIORITY].getInt(4 * row);
+        }
+
+        public byte status(int row) {
+            return sections[TaskTable.COL_STATUS].get(row);
+        }
+
+        public int dueDay(int row) {
+            return sections[TaskTable.COL_DUE].getInt(4 * row);
+        }
+
+        public int createdDay(int row) {
+            return sections[TaskTable.COL_CREATED].getInt(4 * row);
+        }
+
+        public double hours(int row) {
+            return sections[TaskTable.COL_EST_TIME].getDouble(8 * row);
+        }
+
+        // 0 for version 1 files, which have no ids
+        public long id(int row) {
+            ByteBuffer s = sections[TaskTable.COL_ID];
+            return s == null ? 0 : s.getLong(8 * row);
+        }
+
+        public String text(int col, int row) {
+            ByteBuffer s = sections[col];
+            int from = s.getInt(4 * row);
+            int to = s.getInt(4 * row + 4);
+            if (from == to) return "";
+            byte[] b = new byte[to - from];
+            s.get(textStart[col] + from, b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        public int textLength(int col, int row) {
+            ByteBuffer s = sections[col];
+            return s.getInt(4 * row + 4) - s.getInt(4 * row);
+        }
+
+        // the UTF-8 bytes of text(col, row), as a view of the mapping
+        public ByteBuffer textBytes(int col, int row) {
+            ByteBuffer s = sections[col];
+            int from = s.getInt(4 * row);
+            return s.slice(textStart[col] + from, s.getInt(4 * row + 4) - from);
+        }
+
+        // String.hashCode() of text(col, row), decoded straight from the UTF-8 bytes; malformed
+        // bytes hash differently from the replacement characters String would put in
+        public int textHash(int col, int row) {
+            ByteBuffer s = sections[col];
+            int at = textStart[col] + s.getInt(4 * row);
+            int end = textStart[col] + s.getInt(4 * row + 4);
+            int h = 0;
+            while (at < end) {
+                int b = s.get(at++);
+                int cp;
+                if (b >= 0) {
+                    h = 31 * h + b;
+                    continue;
+                } else if ((b & 0xE0) == 0xC0 && at < end) {
+                    cp = (b & 0x1F) << 6 | (s.get(at++) & 0x3F);
+                } else if ((b & 0xF0) == 0xE0 && at + 1 < end) {
+                    cp = (b & 0x0F) << 12 | (s.get(at++) & 0x3F) << 6 | (s.get(at++) & 0x3F);
+                } else if ((b & 0xF8) == 0xF0 && at + 2 < end) {
+                    cp = (b & 0x07) << 18 | (s.get(at++) & 0x3F) << 12 | (s.get(at++) & 0x3F) << 6
+                            | (s.get(at++) & 0x3F);
+                } else {
+                    cp = 0xFFFD;
+                }
+                if (Character.isBmpCodePoint(cp)) {
+                    h = 31 * h + cp;
+                } else {
+                    h = 31 * h + Character.highSurrogate(cp);
+                    h = 31 * h + Character.lowSurrogate(cp);
+                }
+            }
+            return h;
+        }
+
+        long sectionBytes(int col) {
+            return sectionBytes[col];
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Block-compressed data file (tasks-data.blk), little endian:
+//
+//   header  magic "TDLZ", int version, int rowCount, int blockCount, long generation, long indexOffset
+//   blocks  up to todo.blocks.rows rows each, Deflate-compressed; inside, one section per column:
+//           id long[n], priority int[n], due int[n], created int[n], hours double[n], status byte[n],
+//           then name, description, category, tags, assignee as int[n] UTF-8 lengths + the bytes
+//   index   one entry per block: long offset, int firstRow, int rows, int compressed, int raw,
+//           int minPriority, int maxPriority, int minDue, int maxDue (dated rows only), int statuses
+//           (bit per status byte), int unused
+//
+// Blocks are compressed and decompressed on the ForkJoin pool. The index is small and
+// uncompressed, so scan() reads it first and only inflates blocks whose bounds can match the
+// query: archived Done tasks, old due dates or other priorities cost a few bytes of index.
+public class TaskBlockFile {
+
+    static final int MAGIC = 0x5A4C4454;   // "TDLZ" read as little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 48;
+    static final int BLOCK_ROWS = Math.max(1, Integer.getInteger("todo.blocks.rows", TaskTable.SEGMENT_SIZE));
+    // level 1 already shrinks a TSV-sized file about 4x at TSV save speed; 6 gains another 20% for 3x the time
+    private static final int LEVEL = Integer.getInteger("todo.blocks.level", Deflater.BEST_SPEED);
+
+    private static final int[] TEXT_COLS = {TaskTable.COL_NAME, TaskTable.COL_DESC, TaskTable.COL_CATEGORY,
+            TaskTable.COL_TAGS, TaskTable.COL_ASSIGNED};
+
+    // blocks in flight on the pool ahead of the one being written or consumed
+    private static final int AHEAD = 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+
+    // one index entry
+    public static final class Block {
+        public final long offset;
+        public final int firstRow;
+        public final int rows;
+        public final int compressedBytes;
+        public final int rawBytes;
+        public final int minPriority;
+        public final int maxPriority;
+        public final int minDue;        // Integer.MAX_VALUE / MIN_VALUE when no row has a due date
+        public final int maxDue;
+        public final int statuses;
+
+        Block(long offset, int firstRow, int rows, int compressedBytes, int rawBytes, int minPriority,
+              int maxPriority, int minDue, int maxDue, int statuses) {
+            this.offset = offset;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.compressedBytes = compressedBytes;
+            this.rawBytes = rawBytes;
+            this.minPriority = minPriority;
+            this.maxPriority = maxPriority;
+            this.minDue = minDue;
+            this.maxDue = maxDue;
+            this.statuses = statuses;
+        }
+    }
+
+    // ===== Writing =====
+
+    // a compressed block before its offset in the file is known
+    private static final class Encoded {
+        final byte[] data;
+        final int length;
+        final int rows;
+        final int raw;
+        int minPriority = Integer.MAX_VALUE;
+        int maxPriority = Integer.MIN_VALUE;
+        int minDue = Integer.MAX_VALUE;
+        int maxDue = Integer.MIN_VALUE;
+        int statuses;
+
+        Encoded(byte[] data, int length, int rows, int raw) {
+            this.data = data;
+            this.length = length;
+            this.rows = rows;
+            this.raw = raw;
+        }
+    }
+
+    public static void write(TaskTable table, Path path, long generation) throws IOException {
+        // only live rows are written, so the file never contains tombstones
+        int[] rows = table.liveSlots();
+        int n = rows.length;
+        int blocks = (n + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        ByteBuffer index = ByteBuffer.allocate(blocks * ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long pos = HEADER_BYTES;
+            ArrayDeque<ForkJoinTask<Encoded>> pending = new ArrayDeque<>();
+            int submitted = 0;
+            for (int b = 0; b < blocks; b++) {
+                while (submitted < blocks && pending.size() < AHEAD) {
+                    int from = submitted++ * BLOCK_ROWS;
+                    int to = Math.min(n, from + BLOCK_ROWS);
+                    pending.add(ForkJoinPool.commonPool().submit(() -> encode(table, rows, from, to)));
+                }
+                Encoded e = pending.poll().join();
+                writeFully(ch, ByteBuffer.wrap(e.data, 0, e.length), pos);
+                index.putLong(pos).putInt(b * BLOCK_ROWS).putInt(e.rows).putInt(e.length).putInt(e.raw)
+                        .putInt(e.minPriority).putInt(e.maxPriority).putInt(e.minDue).putInt(e.maxDue)
+                        .putInt(e.statuses).putInt(0);
+                pos += e.length;
+            }
+            writeFully(ch, index.flip(), pos);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(blocks).putLong(generation).putLong(pos);
+            writeFully(ch, header.flip(), 0);
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // rows[from, to) as column sections, deflated; runs on the pool against a table nobody edits
+    private static Encoded encode(TaskTable table, int[] rows, int from, int to) {
+        int n = to - from;
+        byte[][][] text = new byte[TEXT_COLS.length][n][];
+        int raw = n * (8 + 4 + 4 + 4 + 8 + 1);
+        for (int t = 0; t < TEXT_COLS.length; t++) {
+            raw += 4 * n;
+            for (int i = 0; i < n; i++) {
+                String s = table.field(rows[from + i], TEXT_COLS[t]);
+                text[t][i] = s == null || s.isEmpty() ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+                raw += text[t][i].length;
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocate(raw).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = from; i < to; i++) buf.putLong(table.id(rows[i]));
+        for (int i = from; i < to; i++) buf.putInt(table.priority(rows[i]));
+        for (int i = from; i < to; i++) buf.putInt(table.dueDay(rows[i]));
+        for (int i = from; i < to; i++) buf.putInt(table.createdDay(rows[i]));
+        for (int i = from; i < to; i++) buf.putDouble(table.hours(rows[i]));
+        for (int i = from; i < to; i++) buf.put(table.status(rows[i]));
+        for (byte[][] col : text) {
+            for (byte[] b : col) buf.putInt(b.length);
+            for (byte[] b : col) buf.put(b);
+        }
+
+        Deflater deflater = new Deflater(LEVEL);
+        byte[] out;
+        int length = 0;
+        try {
+            deflater.setInput(buf.array());
+            deflater.finish();
+            out = new byte[Math.max(64, raw / 4)];
+            while (!deflater.finished()) {
+                if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        Encoded e = new Encoded(out, length, n, raw);
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            int p = table.priority(row);
+            e.minPriority = Math.min(e.minPriority, p);
+            e.maxPriority = Math.max(e.maxPriority, p);
+            int due = table.dueDay(row);
+            if (due != TaskTable.NO_DATE) {
+                e.minDue = Math.min(e.minDue, due);
+                e.maxDue = Math.max(e.maxDue, due);
+            }
+            e.statuses |= 1 << table.status(row);
+        }
+        return e;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) at += ch.write(buf, at);
+    }
+
+    // ===== Reading =====
+
+    // every block, inflated in parallel and stitched together in file order
+    public static TaskFileLoader.Result load(Path path) throws IOException {
+        try (Reader r = Reader.open(path)) {
+            TaskTable table = new TaskTable(Math.max(r.size(), 1));
+            r.forEach(b -> true, (b, rows) -> {
+                table.appendAll(rows, rows.size());
+                return true;
+            });
+            table.finishLoad();
+            TaskFileLoader.Result result = new TaskFileLoader.Result();
+            result.table = table;
+            result.declaredCount = r.size();
+            result.capacity = r.size();
+            result.generation = r.generation();
+            result.bytesRead = Files.size(path);
+            return result;
+        }
+    }
+
+    // what scan() found and what it cost
+    public static final class Scan {
+        public final TaskTable table;   // the matching tasks only
+        public final int[] rows;        // rows of table in query order, cut to LIMIT
+        public final int blocks;
+        public final int blocksRead;
+        public final long bytesRead;
+
+        Scan(TaskTable table, int[] rows, int blocks, int blocksRead, long bytesRead) {
+            this.table = table;
+            this.rows = rows;
+            this.blocks = blocks;
+            this.blocksRead = blocksRead;
+            this.bytesRead = bytesRead;
+        }
+    }
+
+    // Runs a query against the file without loading it: blocks whose index bounds rule the
+    // query out are never read, and without ORDER BY the scan stops once LIMIT tasks matched.
+    public static Scan scan(Path path, TaskQuery query) throws IOException {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        try (Reader r = Reader.open(path)) {
+            TaskTable matches = new TaskTable(16);
+            TaskQuery.Plan all = new TaskQuery.Plan("scan", null);
+            int[] read = new int[1];
+            long[] bytes = {HEADER_BYTES + (long) r.blockCount() * ENTRY_BYTES};
+            int want = query.ordered() ? Integer.MAX_VALUE : query.limit();
+            r.forEach(b -> query.mayMatch(b.statuses, b.minPriority, b.maxPriority, b.minDue, b.maxDue),
+                    (b, rows) -> {
+                        read[0]++;
+                        bytes[0] += b.compressedBytes;
+                        for (int row : query.execute(rows, all)) {
+                            if (matches.size() == want) break;
+                            matches.addWithId(rows.id(row), rows.name(row), rows.description(row),
+                                    rows.priority(row), rows.status(row), rows.category(row), rows.dueDay(row),
+                                    rows.createdDay(row), rows.hours(row), rows.tags(row), rows.assignedTo(row));
+                        }
+                        return matches.size() < want;
+                    });
+            // every row matches again; this applies ORDER BY and LIMIT
+            int[] result = query.execute(matches, all);
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, r.size(), result.length, bytes[0]);
+            return new Scan(matches, result, r.blockCount(), read[0], bytes[0]);
+        } catch (IOException | RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.FILTER);
+            throw ex;
+        }
+    }
+
+    interface BlockFilter {
+        boolean test(Block b);
+    }
+
+    interface BlockConsumer {
+        // false stops the scan
+        boolean accept(Block b, TaskTable rows) throws IOException;
+    }
+
+    // The header and index of an open block file; blocks are read with positional reads,
+    // so several threads can inflate blocks at once.
+    public static class Reader implements AutoCloseable {
+        private final FileChannel ch;
+        private final int rows;
+        private final long generation;
+        private final Block[] blocks;
+
+        private Reader(FileChannel ch) throws IOException {
+            this.ch = ch;
+            ByteBuffer h = readAt(ch, 0, HEADER_BYTES);
+            if (h.getInt() != MAGIC) throw new IOException("not a task block file");
+            int version = h.getInt();
+            if (version != VERSION) throw new IOException("unsupported block file version " + version);
+            rows = h.getInt();
+            int count = h.getInt();
+            generation = h.getLong();
+            long indexOffset = h.getLong();
+            if (count < 0 || indexOffset < HEADER_BYTES || indexOffset + (long) count * ENTRY_BYTES > ch.size()) {
+                throw new IOException("corrupt block index");
+            }
+            ByteBuffer index = readAt(ch, indexOffset, count * ENTRY_BYTES);
+            blocks = new Block[count];
+            int total = 0;
+            for (int b = 0; b < count; b++) {
+                blocks[b] = new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(),
+                        index.getInt(), index.getInt(), index.getInt(), index.getInt(), index.getInt(),
+                        index.getInt());
+                index.getInt();
+                Block k = blocks[b];
+                if (k.firstRow != total || k.rows <= 0 || k.offset < HEADER_BYTES
+                        || k.offset + k.compressedBytes > indexOffset) {
+                    throw new IOException("corrupt block index entry " + b);
+                }
+                total += k.rows;
+            }
+            if (total != rows) throw new IOException("block index covers " + total + " rows, header says " + rows);
+        }
+
+        public static Reader open(Path path) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return new Reader(ch);
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        public long generation() {
+            return generation;
+        }
+
+        public int blockCount() {
+            return blocks.length;
+        }
+
+        public Block block(int b) {
+            return blocks[b];
+        }
+
+        // one block as a table of its own, ids as in the file
+        public TaskTable read(int b) throws IOException {
+            Block k = blocks[b];
+            byte[] raw = new byte[k.rawBytes];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(readAt(ch, k.offset, k.compressedBytes));
+                int n = 0;
+                while (n < raw.length) {
+                    int got = inflater.inflate(raw, n, raw.length - n);
+                    if (got == 0 && (inflater.finished() || inflater.needsInput())) break;
+                    n += got;
+                }
+                if (n != raw.length) throw new IOException("block " + b + " is truncated");
+            } catch (DataFormatException e) {
+                throw new IOException("block " + b + " is corrupt: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+            return decode(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN), k.rows);
+        }
+
+        // Blocks passing the filter, inflated on the pool a few ahead and handed to the consumer
+        // in file order, until it returns false.
+        void forEach(BlockFilter filter, BlockConsumer consumer) throws IOException {
+            ArrayDeque<ForkJoinTask<TaskTable>> pending = new ArrayDeque<>();
+            ArrayDeque<Block> order = new ArrayDeque<>();
+            int next = 0;
+            try {
+                while (true) {
+                    while (next < blocks.length && pending.size() < AHEAD) {
+                        int b = next++;
+                        if (!filter.test(blocks[b])) continue;
+                        Callable<TaskTable> task = () -> read(b);
+                        pending.add(ForkJoinPool.commonPool().submit(task));
+                        order.add(blocks[b]);
+                    }
+                    if (pending.isEmpty()) return;
+                    TaskTable rows;
+                    try {
+                        rows = pending.poll().join();
+                    } catch (RuntimeException e) {
+                        // join() wraps the IOException of read(), possibly more than once
+                        for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                            if (t instanceof IOException) throw (IOException) t;
+                        }
+                        throw e;
+                    }
+                    if (!consumer.accept(order.poll(), rows)) return;
+                }
+            } finally {
+                // reads still running use the channel; let them finish before it is closed
+                for (ForkJoinTask<TaskTable> t : pending) t.quietlyJoin();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    private static TaskTable decode(ByteBuffer buf, int n) {
+        long[] ids = new long[n];
+        int[] priority = new int[n];
+        int[] due = new int[n];
+        int[] created = new int[n];
+        double[] hours = new double[n];
+        byte[] status = new byte[n];
+        for (int i = 0; i < n; i++) ids[i] = buf.getLong();
+        for (int i = 0; i < n; i++) priority[i] = buf.getInt();
+        for (int i = 0; i < n; i++) due[i] = buf.getInt();
+        for (int i = 0; i < n; i++) created[i] = buf.getInt();
+        for (int i = 0; i < n; i++) hours[i] = buf.getDouble();
+        buf.get(status);
+        String[][] text = new String[TEXT_COLS.length][n];
+        int[] lengths = new int[n];
+        byte[] bytes = buf.array();
+        for (String[] col : text) {
+            for (int i = 0; i < n; i++) lengths[i] = buf.getInt();
+            int pos = buf.position();
+            for (int i = 0; i < n; i++) {
+                col[i] = lengths[i] == 0 ? "" : new String(bytes, pos, lengths[i], StandardCharsets.UTF_8);
+                pos += lengths[i];
+            }
+            buf.position(pos);
+        }
+        TaskTable table = new TaskTable(n);
+        for (int i = 0; i < n; i++) {
+            table.addWithId(ids[i], text[0][i], text[1][i], priority[i], status[i], text[2][i], due[i],
+                    created[i], hours[i], text[3][i], text[4][i]);
+        }
+        return table;
+    }
+
+    private static ByteBuffer readAt(FileChannel ch, long at, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, at + buf.position()) < 0) throw new IOException("unexpected end of file");
+        }
+        return buf.flip();
+    }
+}
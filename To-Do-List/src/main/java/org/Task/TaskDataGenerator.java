@@ -0,0 +1,132 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Seeded synthetic task lists for benchmarks and memory/throughput tests.
+// Same seed and size -> same table, on every machine.
+public class TaskDataGenerator {
+
+    private static final String[] CATEGORIES = {
+            "Work", "Home", "School", "Personal", "Health", "Finance", "Shopping", "Travel"
+    };
+    // first entries are picked far more often than the last ones
+    private static final String[] TAGS = {
+            "urgent", "java", "school", "home", "meeting", "review", "bug", "email", "call",
+            "report", "shopping", "gym", "family", "deadline", "research", "docs", "travel",
+            "bank", "doctor", "exam", "backend", "frontend", "ops", "design", "release"
+    };
+    private static final String[] PEOPLE = {
+            "osman", "aurela", "arben", "blerta", "dritan", "elira", "genti", "ilir",
+            "jonida", "klea", "luan", "mira", "nora", "petrit", "rina", "sokol"
+    };
+    private static final String[] VERBS = {
+            "finish", "review", "write", "call", "plan", "fix", "buy", "prepare", "send", "read"
+    };
+    private static final String[] NOUNS = {
+            "report", "homework", "slides", "invoice", "groceries", "tests", "email", "budget",
+            "ticket", "notes", "ushqime", "detyrat", "matematik", "project"
+    };
+
+    private final SplittableRandom random;
+    private final int today;
+
+    public TaskDataGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+        // fixed reference day so the data does not depend on when it is generated
+        this.today = (int) LocalDate.of(2025, 12, 15).toEpochDay();
+    }
+
+    public static TaskTable generate(int size, long seed) {
+        TaskTable table = new TaskTable(Math.max(size, 1));
+        new TaskDataGenerator(seed).fill(table, size);
+        return table;
+    }
+
+    public void fill(TaskTable table, int count) {
+        table.reserve(table.slots() + count);
+        for (int i = 0; i < count; i++) {
+            // created in the last two years, due between two weeks before and four months after
+            int created = today - random.nextInt(730);
+            int due = created + random.nextInt(-14, 120);
+            table.add(name(), description(), priority(), status(), category(),
+                    due, created, hours(), tags(), assignee());
+        }
+    }
+
+    private String name() {
+        return VERBS[random.nextInt(VERBS.length)] + " " + NOUNS[random.nextInt(NOUNS.length)];
+    }
+
+    private String description() {
+        int words = 2 + random.nextInt(8);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(i % 2 == 0 ? VERBS[random.nextInt(VERBS.length)] : NOUNS[random.nextInt(NOUNS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private int priority() {
+        // most work is middle priority
+        int[] weights = {10, 25, 35, 20, 10};
+        int r = random.nextInt(100);
+        for (int p = 0; p < weights.length; p++) {
+            r -= weights[p];
+            if (r < 0) return p + 1;
+        }
+        return 3;
+    }
+
+    private byte status() {
+        return random.nextInt(100) < 60 ? TaskTable.STATUS_DONE : TaskTable.STATUS_PENDING;
+    }
+
+    private String category() {
+        return CATEGORIES[skewed(CATEGORIES.length)];
+    }
+
+    private double hours() {
+        return (1 + random.nextInt(32)) / 2.0;
+    }
+
+    private String tags() {
+        int n = random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            String tag = TAGS[skewed(TAGS.length)];
+            if (sb.indexOf(tag) >= 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(tag);
+        }
+        return sb.toString();
+    }
+
+    private String assignee() {
+        String person = PEOPLE[skewed(PEOPLE.length)];
+        // a long tail of rarely used assignees
+        return random.nextInt(10) == 0 ? person + (1 + random.nextInt(50)) : person;
+    }
+
+    // roughly Zipf: index 0 is the most common
+    private int skewed(int n) {
+        double u = random.nextDouble();
+        return Math.min(n - 1, (int) (n * u * u));
+    }
+
+    // java org.Task.TaskDataGenerator <size> <file> [seed]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TaskDataGenerator <size> <file.txt|file.bin> [seed]");
+            return;
+        }
+        int size = Integer.parseInt(args[0]);
+        Path file = Path.of(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        TaskFormat.of(file).save(generate(size, seed), file, 0);
+        System.out.println("Generated " + size + " tasks into " + file);
+    }
+}
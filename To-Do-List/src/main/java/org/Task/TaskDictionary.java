@@ -0,0 +1,147 @@
+package org.Task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Distinct values of one repetitive text column (category, assignee, tag list). Each value is
+// stored once and rows keep only its int code. Code 0 is null.
+//
+// Every value also has a key code: the code of TaskIndex.key(value), shared by values that
+// differ only in case or surrounding blanks, so case-insensitive filters compare ints.
+// A list dictionary (tags) also keeps the key codes of each value's tokens.
+//
+// Codes are handed out in first-seen order and never reused, so a code stays valid in copies
+// of the table, which share the dictionary. Values no row uses any more stay until the table
+// replaces its dictionaries with fresh ones (TaskTable.compactDictionaries(), run by the store
+// once they have grown well past what the rows use) or the next load.
+//
+// Interning is synchronized; lookups by code read a volatile array and never lock.
+public class TaskDictionary {
+
+    private static final int[] NO_TOKENS = new int[0];
+    private static final String[] NO_TOKEN_KEYS = new String[0];
+
+    private final boolean lists;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> keyCodes = new ConcurrentHashMap<>();
+
+    private volatile Entry[] entries = new Entry[16];
+    private volatile String[] keys = new String[16];
+    private int size;
+    private int keyCount;
+
+    private static final class Entry {
+        final String value;
+        final int key;
+        final int[] tokens;
+        final String[] tokenKeys;
+
+        Entry(String value, int key, int[] tokens, String[] tokenKeys) {
+            this.value = value;
+            this.key = key;
+            this.tokens = tokens;
+            this.tokenKeys = tokenKeys;
+        }
+    }
+
+    public TaskDictionary(boolean lists) {
+        this.lists = lists;
+        entries[0] = new Entry(null, keyCode(""), NO_TOKENS, NO_TOKEN_KEYS);
+        size = 1;
+    }
+
+    // number of distinct values, null included
+    public int size() {
+        return size;
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    // ===== Interning =====
+
+    public int code(String value) {
+        if (value == null) return 0;
+        Integer c = codes.get(value);
+        return c != null ? c : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer c = codes.get(value);
+        if (c != null) return c;
+        int[] tokens = NO_TOKENS;
+        String[] tokenKeys = NO_TOKEN_KEYS;
+        if (lists) {
+            List<String> t = TaskIndex.tagTokens(value);
+            tokens = new int[t.size()];
+            tokenKeys = new String[t.size()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = keyCode(t.get(i));
+                tokenKeys[i] = keys[tokens[i]];
+            }
+        }
+        Entry e = new Entry(value, keyCode(TaskIndex.key(value)), tokens, tokenKeys);
+        Entry[] es = entries;
+        if (size == es.length) es = Arrays.copyOf(es, size * 2);
+        es[size] = e;
+        // the volatile write publishes the entry before any row can hold its code
+        entries = es;
+        codes.put(value, size);
+        return size++;
+    }
+
+    private synchronized int keyCode(String key) {
+        Integer c = keyCodes.get(key);
+        if (c != null) return c;
+        String[] ks = keys;
+        if (keyCount == ks.length) ks = Arrays.copyOf(ks, keyCount * 2);
+        ks[keyCount] = key;
+        keys = ks;
+        keyCodes.put(key, keyCount);
+        return keyCount++;
+    }
+
+    // codes of another dictionary's values in this one, for stitching loaded chunks together
+    int[] translate(TaskDictionary other) {
+        int n = other.size;
+        Entry[] es = other.entries;
+        int[] map = new int[n];
+        for (int c = 1; c < n; c++) map[c] = code(es[c].value);
+        return map;
+    }
+
+    // ===== Lookups =====
+
+    public String value(int code) {
+        return entries[code].value;
+    }
+
+    public int keyOf(int code) {
+        return entries[code].key;
+    }
+
+    // the value's key (trimmed, lower case) without building it again
+    public String key(int code) {
+        return keys[entries[code].key];
+    }
+
+    // key code of TaskIndex.key(value), or -1 when no value has that key
+    public int findKey(String value) {
+        Integer c = keyCodes.get(TaskIndex.key(value));
+        return c == null ? -1 : c;
+    }
+
+    // distinct token keys of a list value, in first-seen order (shared array, do not modify)
+    String[] tokens(int code) {
+        return entries[code].tokenKeys;
+    }
+
+    public boolean hasToken(int code, int key) {
+        for (int t : entries[code].tokens) {
+            if (t == key) return true;
+        }
+        return false;
+    }
+}
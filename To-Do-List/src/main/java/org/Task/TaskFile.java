@@ -0,0 +1,86 @@
+package org.Task;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// The TSV data file: "count capacity [generation]" header, then one escaped row per line.
+public class TaskFile {
+
+    // Writes the whole table to a temp file and renames it over the target,
+    // so a crash mid-write never leaves a half-written data file behind.
+    // generation is only written when the journal is in use (> 0).
+    public static void write(TaskTable table, Path path, long generation) throws IOException {
+        // tombstones are not written; the id column keeps task identity across saves
+        write(table, table.liveSlots(), table.capacity(), path, generation);
+    }
+
+    // the given rows only (one shard, see TaskShards)
+    static void write(TaskTable table, int[] rows, int capacity, Path path, long generation) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(ch), StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write(rows.length + " " + capacity);
+            if (generation > 0) writer.write(" " + generation);
+            writer.write("\n");
+
+            for (int row : rows) writeRow(writer, table, row);
+            writer.flush();
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void writeRow(Writer writer, TaskTable table, int row) throws IOException {
+        for (int c = 0; c < TaskTable.COLS; c++) {
+            writer.write(escape(table.field(row, c)));
+            if (c < TaskTable.COLS - 1) writer.write("\t");
+        }
+        writer.write("\n");
+    }
+
+    static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+
+    // single pass, so an escaped backslash followed by 't' stays a backslash and a 't'
+    static String unescape(String s) {
+        if (s == null) return "";
+        int i = s.indexOf('\\');
+        if (i < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        sb.append(s, 0, i);
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(i + 1);
+                char out = next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next == '\\' ? '\\' : 0;
+                if (out != 0) {
+                    sb.append(out);
+                    i++;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
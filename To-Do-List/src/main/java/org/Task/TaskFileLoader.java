@@ -0,0 +1,309 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Parallel loader for the TSV data file.
+// The file is memory-mapped in line-aligned chunks which are parsed on the ForkJoin pool,
+// straight from bytes into columns, then stitched together in file order.
+public class TaskFileLoader {
+
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 64 << 20;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    public static class Result {
+        public TaskTable table;
+        public int declaredCount;
+        public int capacity;
+        public long generation;
+        public long bytesRead;
+        public final List<String> errors = new ArrayList<>();
+    }
+
+    // per-chunk output: rows in columns, plus bad lines (chunk-relative line numbers)
+    private static class Chunk {
+        TaskTable rows;
+        int lines;
+        final List<int[]> badLines = new ArrayList<>();   // {line, fieldsFound}
+    }
+
+    public static Result load(Path path) throws IOException {
+        Result result = new Result();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long dataStart = readHeader(ch, result);
+            result.bytesRead = size;
+
+            List<long[]> ranges = split(ch, dataStart, size);
+            List<ForkJoinTask<Chunk>> parts = new ArrayList<>();
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            for (long[] r : ranges) {
+                parts.add(pool.submit(() -> parse(ch, r[0], r[1])));
+            }
+
+            // only the first declaredCount lines count, like the old Scanner loop
+            TaskTable table = new TaskTable(Math.max(result.capacity, result.declaredCount));
+            int lineBase = 0;
+            int reported = 0;
+            int skipped = 0;
+            for (ForkJoinTask<Chunk> part : parts) {
+                Chunk c = part.join();
+                int keepLines = Math.min(c.lines, Math.max(0, result.declaredCount - lineBase));
+                int keepRows = keepLines;
+                for (int[] bad : c.badLines) {
+                    if (bad[0] >= keepLines) break;
+                    keepRows--;
+                    skipped++;
+                    // +2: one for the header line, one for 1-based numbering
+                    int line = lineBase + bad[0] + 2;
+                    String reason = "expected " + TaskTable.COLS + " fields (" + TaskTable.LEGACY_COLS
+                            + " without id), found " + bad[1];
+                    TaskMetrics.parseError(path, line, reason);
+                    if (reported++ < MAX_REPORTED_ERRORS) {
+                        result.errors.add("line " + line + ": " + reason);
+                    }
+                }
+                table.appendAll(c.rows, keepRows);
+                lineBase += c.lines;
+            }
+            if (skipped > MAX_REPORTED_ERRORS) {
+                result.errors.add("... " + (skipped - MAX_REPORTED_ERRORS) + " more bad lines");
+            }
+            if (lineBase < result.declaredCount) {
+                result.errors.add("header declares " + result.declaredCount + " tasks, file has "
+                        + lineBase + " lines");
+            }
+            // rows from files without an id column (or with clashing ids) get fresh ids
+            table.finishLoad();
+            result.table = table;
+        }
+        return result;
+    }
+
+    // ===== Header =====
+
+    // "count capacity [generation]\n", returns the offset of the first data line
+    private static long readHeader(FileChannel ch, Result result) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        ch.read(buf, 0);
+        buf.flip();
+        int end = 0;
+        while (end < buf.limit() && buf.get(end) != '\n') end++;
+        if (end == buf.limit() && end == buf.capacity()) throw new IOException("header line too long");
+        String header = new String(buf.array(), 0, end, StandardCharsets.UTF_8).trim();
+        String[] parts = header.split("\\s+");
+        try {
+            result.declaredCount = Integer.parseInt(parts[0]);
+            result.capacity = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            result.generation = parts.length > 2 ? Long.parseLong(parts[2]) : 0;
+        } catch (NumberFormatException e) {
+            throw new IOException("bad header: " + header);
+        }
+        if (result.capacity <= 0) result.capacity = 50;
+        return Math.min(end + 1, ch.size());
+    }
+
+    // ===== Chunking =====
+
+    private static List<long[]> split(FileChannel ch, long start, long size) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        long data = size - start;
+        if (data <= 0) return ranges;
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, data / (parallelism * 4L)));
+
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long pos = start;
+        while (pos < size) {
+            long end = Math.min(size, pos + target);
+            // move the cut just past the next newline
+            while (end < size) {
+                probe.clear();
+                int n = ch.read(probe, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                int i = 0;
+                while (i < n && probe.get(i) != '\n') i++;
+                if (i < n) {
+                    end += i + 1;
+                    break;
+                }
+                end += n;
+            }
+            ranges.add(new long[]{pos, end});
+            pos = end;
+        }
+        return ranges;
+    }
+
+    // ===== Parsing =====
+
+    private static Chunk parse(FileChannel ch, long from, long to) throws IOException {
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int len = (int) (to - from);
+        Chunk chunk = new Chunk();
+        TaskTable rows = new TaskTable(Math.max(16, len / 96));
+        chunk.rows = rows;
+
+        byte[] line = new byte[256];
+        byte[] scratch = new byte[256];
+        int[] tabs = new int[TaskTable.COLS + 1];
+        String[] text = new String[TaskTable.COLS];
+
+        int pos = 0;
+        while (pos < len) {
+            int eol = pos;
+            while (eol < len && map.get(eol) != '\n') eol++;
+            int n = eol - pos;
+            if (n > 0 && map.get(eol - 1) == '\r') n--;
+            if (n > line.length) {
+                line = new byte[Math.max(n, line.length * 2)];
+                scratch = new byte[line.length];
+            }
+            map.get(pos, line, 0, n);
+
+            // field boundaries: tabs[c] .. tabs[c + 1] is column c
+            int fields = 1;
+            tabs[0] = -1;
+            for (int i = 0; i < n; i++) {
+                if (line[i] == '\t') {
+                    if (fields < TaskTable.COLS) tabs[fields] = i;
+                    fields++;
+                }
+            }
+            // a legacy line has no id column: treat the missing id as empty
+            if (fields == TaskTable.LEGACY_COLS) tabs[TaskTable.LEGACY_COLS] = n;
+            tabs[TaskTable.COLS] = n;
+            if (fields != TaskTable.COLS && fields != TaskTable.LEGACY_COLS) {
+                chunk.badLines.add(new int[]{chunk.lines, fields});
+            } else {
+                for (int c = 0; c < TaskTable.COLS; c++) {
+                    int s = tabs[c] + 1;
+                    int e = tabs[c + 1];
+                    switch (c) {
+                        case TaskTable.COL_PRIORITY:
+                        case TaskTable.COL_STATUS:
+                        case TaskTable.COL_DUE:
+                        case TaskTable.COL_CREATED:
+                        case TaskTable.COL_ID:
+                            break;  // parsed from bytes below
+                        default:
+                            text[c] = decode(line, s, e, scratch);
+                    }
+                }
+                rows.addWithId(parseId(line, tabs[TaskTable.COL_ID] + 1, tabs[TaskTable.COL_ID + 1]),
+                        text[TaskTable.COL_NAME], text[TaskTable.COL_DESC],
+                        parsePriority(line, tabs[TaskTable.COL_PRIORITY] + 1, tabs[TaskTable.COL_PRIORITY + 1]),
+                        parseStatus(line, tabs[TaskTable.COL_STATUS] + 1, tabs[TaskTable.COL_STATUS + 1]),
+                        text[TaskTable.COL_CATEGORY],
+                        parseDay(line, tabs[TaskTable.COL_DUE] + 1, tabs[TaskTable.COL_DUE + 1]),
+                        parseDay(line, tabs[TaskTable.COL_CREATED] + 1, tabs[TaskTable.COL_CREATED + 1]),
+                        TaskTable.parseHours(text[TaskTable.COL_EST_TIME]),
+                        text[TaskTable.COL_TAGS], text[TaskTable.COL_ASSIGNED]);
+            }
+            chunk.lines++;
+            pos = eol + 1;
+        }
+        return chunk;
+    }
+
+    // UTF-8 bytes -> String, resolving \\ \t \n \r escapes in the same pass
+    static String decode(byte[] b, int from, int to, byte[] scratch) {
+        if (from == to) return "";
+        int n = 0;
+        boolean escaped = false;
+        for (int i = from; i < to; i++) {
+            byte x = b[i];
+            if (x == '\\' && i + 1 < to) {
+                byte next = b[i + 1];
+                byte out = next == 't' ? (byte) '\t'
+                        : next == 'n' ? (byte) '\n'
+                        : next == 'r' ? (byte) '\r'
+                        : next == '\\' ? (byte) '\\' : 0;
+                if (out != 0) {
+                    scratch[n++] = out;
+                    i++;
+                    escaped = true;
+                    continue;
+                }
+            }
+            scratch[n++] = x;
+        }
+        return escaped ? new String(scratch, 0, n, StandardCharsets.UTF_8)
+                : new String(b, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    // same rules as TaskTable.parseId/parsePriority/parseStatus/parseDay, without building a String
+
+    private static int parsePriority(byte[] b, int from, int to) {
+        while (from < to && blank(b[from])) from++;
+        while (to > from && blank(b[to - 1])) to--;
+        int n = to - from;
+        if (n == 0 || n > 9) return 0;
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            if (b[i] < '0' || b[i] > '9') return 0;
+            v = v * 10 + (b[i] - '0');
+        }
+        return v;
+    }
+
+    private static long parseId(byte[] b, int from, int to) {
+        while (from < to && blank(b[from])) from++;
+        while (to > from && blank(b[to - 1])) to--;
+        int n = to - from;
+        if (n <= 0 || n > 18) return 0;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            if (b[i] < '0' || b[i] > '9') return 0;
+            v = v * 10 + (b[i] - '0');
+        }
+        return v;
+    }
+
+    private static byte parseStatus(byte[] b, int from, int to) {
+        while (from < to && blank(b[from])) from++;
+        while (to > from && blank(b[to - 1])) to--;
+        if (to - from != 4) return TaskTable.STATUS_PENDING;
+        boolean done = (b[from] | 0x20) == 'd' && (b[from + 1] | 0x20) == 'o'
+                && (b[from + 2] | 0x20) == 'n' && (b[from + 3] | 0x20) == 'e';
+        return done ? TaskTable.STATUS_DONE : TaskTable.STATUS_PENDING;
+    }
+
+    private static int parseDay(byte[] b, int from, int to) {
+        while (from < to && blank(b[from])) from++;
+        while (to > from && blank(b[to - 1])) to--;
+        if (to - from != 10 || b[from + 4] != '-' || b[from + 7] != '-') return TaskTable.NO_DATE;
+        int y = digits(b, from, from + 4);
+        int m = digits(b, from + 5, from + 7);
+        int d = digits(b, from + 8, from + 10);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > TaskTable.daysInMonth(y, m)) return TaskTable.NO_DATE;
+        return TaskTable.epochDay(y, m, d);
+    }
+
+    // String.trim() semantics: ASCII control characters and space
+    private static boolean blank(byte x) {
+        return (x & 0xff) <= ' ';
+    }
+
+    private static int digits(byte[] b, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            if (b[i] < '0' || b[i] > '9') return -1;
+            v = v * 10 + (b[i] - '0');
+        }
+        return v;
+    }
+}
@@ -0,0 +1,107 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// On-disk formats for the task table, chosen by file extension.
+public enum TaskFormat {
+
+    TEXT {
+        TaskFileLoader.Result read(Path path) throws IOException {
+            return TaskFileLoader.load(path);
+        }
+
+        public void save(TaskTable table, Path path, long generation) throws IOException {
+            TaskFile.write(table, path, generation);
+        }
+    },
+
+    BINARY {
+        TaskFileLoader.Result read(Path path) throws IOException {
+            return TaskBinaryFile.load(path);
+        }
+
+        public void save(TaskTable table, Path path, long generation) throws IOException {
+            TaskBinaryFile.write(table, path, generation);
+        }
+    },
+
+    // Deflate-compressed blocks with a min/max index per block (TaskBlockFile)
+    BLOCKS {
+        TaskFileLoader.Result read(Path path) throws IOException {
+            return TaskBlockFile.load(path);
+        }
+
+        public void save(TaskTable table, Path path, long generation) throws IOException {
+            TaskBlockFile.write(table, path, generation);
+        }
+    },
+
+    // a manifest of per-category, per-assignee or hashed TSV shards (TaskShards)
+    SHARDED {
+        TaskFileLoader.Result read(Path path) throws IOException {
+            return TaskShards.load(path);
+        }
+
+        public void save(TaskTable table, Path path, long generation) throws IOException {
+            TaskShards.write(table, path, generation);
+        }
+    },
+
+    // the image of a TaskOffHeapTable, mapped and read in place by the store's table
+    MAPPED {
+        TaskFileLoader.Result read(Path path) throws IOException {
+            return TaskOffHeapTable.load(path);
+        }
+
+        public void save(TaskTable table, Path path, long generation) throws IOException {
+            TaskOffHeapTable.write(table, path, generation);
+        }
+    };
+
+    abstract TaskFileLoader.Result read(Path path) throws IOException;
+
+    // timed as a LOAD in TaskMetrics: lines in the file scanned, tasks kept, bytes read
+    public TaskFileLoader.Result load(Path path) throws IOException {
+        return timed(this::read, path);
+    }
+
+    // a binary file with the descriptions left in it until they are read (TaskLazyText)
+    public static TaskFileLoader.Result loadLazy(Path path) throws IOException {
+        if (of(path) != BINARY) throw new IOException("lazy loading needs a binary (.bin) file");
+        return timed(TaskBinaryFile::loadLazy, path);
+    }
+
+    private interface Reader {
+        TaskFileLoader.Result read(Path path) throws IOException;
+    }
+
+    private static TaskFileLoader.Result timed(Reader reader, Path path) throws IOException {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        try {
+            TaskFileLoader.Result loaded = reader.read(path);
+            TaskMetrics.end(e, TaskMetrics.Op.LOAD, loaded.declaredCount, loaded.table.size(), loaded.bytesRead);
+            return loaded;
+        } catch (IOException | RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.LOAD);
+            throw ex;
+        }
+    }
+
+    public abstract void save(TaskTable table, Path path, long generation) throws IOException;
+
+    public static TaskFormat of(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".bin")) return BINARY;
+        if (name.endsWith(".blk")) return BLOCKS;
+        if (name.endsWith(".shards")) return SHARDED;
+        return name.endsWith(".map") ? MAPPED : TEXT;
+    }
+
+    // import/export between formats, e.g. tasks-data.txt -> tasks-data.bin
+    public static int convert(Path from, Path to) throws IOException {
+        TaskFileLoader.Result loaded = of(from).load(from);
+        of(to).save(loaded.table, to, loaded.generation);
+        return loaded.table.size();
+    }
+}
@@ -0,0 +1,188 @@
+package org.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Secondary indexes over a TaskTable, keyed by slot. Callers keep them in sync:
+// add(row) after inserting, remove(row) before changing or deleting a row,
+// rebuild() after TaskTable.compact() moves rows to new slots.
+public class TaskIndex {
+
+    // few keys, each holding a large share of the rows: bitmaps, O(1) to edit
+    private final Map<String, RowBitmap> byCategory = new HashMap<>();
+    private final Map<Integer, RowBitmap> byPriority = new HashMap<>();
+    private final RowBitmap[] byStatus = {new RowBitmap(), new RowBitmap()};
+    private final Map<String, RowSet> byTag = new HashMap<>();
+    // epoch day -> rows, in day order; tasks without the date are left out
+    private final TreeMap<Integer, RowSet> byDue = new TreeMap<>();
+    private final TreeMap<Integer, RowSet> byCreated = new TreeMap<>();
+    // pending rows, best next task first
+    private final PendingHeap pending = new PendingHeap();
+    private boolean bulk;
+
+    private static final PostingList NONE = new RowSet();
+
+    public void rebuild(TaskTable table) {
+        byCategory.clear();
+        byPriority.clear();
+        byStatus[TaskTable.STATUS_PENDING] = new RowBitmap();
+        byStatus[TaskTable.STATUS_DONE] = new RowBitmap();
+        byTag.clear();
+        byDue.clear();
+        byCreated.clear();
+        pending.clear();
+        // the heap is filled unordered and heapified once, O(n) instead of O(n log n)
+        bulk = true;
+        for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+            add(table, row);
+        }
+        bulk = false;
+        pending.heapify();
+    }
+
+    // ===== Maintenance =====
+
+    public void add(TaskTable table, int row) {
+        byCategory.computeIfAbsent(table.categoryKey(row), k -> new RowBitmap()).add(row);
+        byPriority.computeIfAbsent(table.priority(row), k -> new RowBitmap()).add(row);
+        byStatus[table.status(row)].add(row);
+        for (String tag : table.tagKeys(row)) {
+            byTag.computeIfAbsent(tag, k -> new RowSet()).add(row);
+        }
+        int due = table.dueDay(row);
+        if (due != TaskTable.NO_DATE) byDue.computeIfAbsent(due, k -> new RowSet()).add(row);
+        int created = table.createdDay(row);
+        if (created != TaskTable.NO_DATE) byCreated.computeIfAbsent(created, k -> new RowSet()).add(row);
+        if (table.status(row) == TaskTable.STATUS_PENDING) {
+            if (bulk) pending.append(row, table.priority(row), due, table.hours(row));
+            else pending.add(row, table.priority(row), due, table.hours(row));
+        }
+    }
+
+    public void remove(TaskTable table, int row) {
+        removeFrom(byCategory, table.categoryKey(row), row);
+        removeFrom(byPriority, table.priority(row), row);
+        byStatus[table.status(row)].remove(row);
+        for (String tag : table.tagKeys(row)) {
+            removeFrom(byTag, tag, row);
+        }
+        removeFrom(byDue, table.dueDay(row), row);
+        removeFrom(byCreated, table.createdDay(row), row);
+        pending.remove(row);
+    }
+
+    // ===== Lookups (ascending row order) =====
+
+    public PostingList byCategory(String category) {
+        return orNone(byCategory.get(key(category)));
+    }
+
+    public PostingList byPriority(int priority) {
+        return orNone(byPriority.get(priority));
+    }
+
+    // priorities that have at least one task
+    public int[] priorities() {
+        int[] out = new int[byPriority.size()];
+        int n = 0;
+        for (int p : byPriority.keySet()) out[n++] = p;
+        return out;
+    }
+
+    public PostingList byStatus(byte status) {
+        return byStatus[status];
+    }
+
+    public PostingList byTag(String tag) {
+        return orNone(byTag.get(key(tag)));
+    }
+
+    // ===== Next tasks =====
+
+    // best k pending rows (priority, then due date, then estimated time), heap left as is
+    public int[] nextPending(int k) {
+        return pending.top(k);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // ===== Date ranges (epoch days, inclusive; rows ordered by day, then slot) =====
+    // Only the days inside the range are visited, so the cost follows the result size.
+
+    public int[] dueBetween(int from, int to) {
+        return range(byDue, from, to);
+    }
+
+    public int dueCount(int from, int to) {
+        return count(byDue, from, to);
+    }
+
+    public int[] createdBetween(int from, int to) {
+        return range(byCreated, from, to);
+    }
+
+    public int createdCount(int from, int to) {
+        return count(byCreated, from, to);
+    }
+
+    private static int[] range(TreeMap<Integer, RowSet> index, int from, int to) {
+        if (from > to) return new int[0];
+        NavigableMap<Integer, RowSet> days = index.subMap(from, true, to, true);
+        int[] out = new int[count(days)];
+        int n = 0;
+        for (RowSet s : days.values()) n = s.copyTo(out, n);
+        return out;
+    }
+
+    private static int count(TreeMap<Integer, RowSet> index, int from, int to) {
+        return from > to ? 0 : count(index.subMap(from, true, to, true));
+    }
+
+    private static int count(NavigableMap<Integer, RowSet> days) {
+        int n = 0;
+        for (RowSet s : days.values()) n += s.size();
+        return n;
+    }
+
+    // ===== Helpers =====
+
+    static String key(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // "java, School,java" -> [java, school]
+    static List<String> tagTokens(String tags) {
+        if (tags == null || tags.isEmpty()) return List.of();
+        Set<String> out = new LinkedHashSet<>();
+        int start = 0;
+        int n = tags.length();
+        for (int i = 0; i <= n; i++) {
+            if (i == n || tags.charAt(i) == ',') {
+                String t = key(tags.substring(start, i));
+                if (!t.isEmpty()) out.add(t);
+                start = i + 1;
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    private static PostingList orNone(PostingList rows) {
+        return rows == null ? NONE : rows;
+    }
+
+    private static <K> void removeFrom(Map<K, ? extends PostingList> index, K key, int row) {
+        PostingList s = index.get(key);
+        if (s == null) return;
+        s.remove(row);
+        if (s.isEmpty()) index.remove(key);
+    }
+}
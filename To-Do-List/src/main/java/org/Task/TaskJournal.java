@@ -0,0 +1,334 @@
+package org.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only log of mutations on top of the TSV snapshot.
+//
+// Files: the snapshot (tasks-data.txt or .bin) records a generation G in its header and contains
+// every change from logs older than G. Logs are named tasks-data-<gen>.log; on startup the
+// snapshot is loaded and every log with gen >= G is replayed in order.
+//
+// Records (one line, tab separated, fields escaped like the data file). Tasks are named by
+// their stable id, so records stay valid across deletes and compaction:
+//   A <11 fields>        add (the id is the last field)
+//   E <id> <col> <val>   field edit
+//   U <id> (<col> <val>)+ several fields of one task, applied together
+//   S <id> <status>      status change
+//   D <id>               delete
+public class TaskJournal {
+
+    public interface Handler {
+        void add(String[] fields);
+        void edit(long id, int col, String value);
+        void delete(long id);
+    }
+
+    // records buffered before an fsync is forced
+    private static final int GROUP_SIZE = Integer.getInteger("todo.journal.groupSize", 64);
+    // pending records are also synced on this period
+    private static final long SYNC_INTERVAL_MS = Long.getLong("todo.journal.syncMillis", 200);
+    // log size at which the store compacts the journal into a new snapshot
+    private static final long COMPACT_BYTES = Long.getLong("todo.journal.compactBytes", 4L << 20);
+
+    private final Path snapshot;
+    private final String baseName;
+
+    private long generation;
+    private FileChannel channel;
+    private Writer out;
+    private int pending = 0;
+    private long logBytes = 0;
+
+    private ScheduledExecutorService syncer;
+    private ExecutorService compactor;
+    private boolean compacting = false;
+
+    private TaskJournal(Path snapshot, long generation) {
+        this.snapshot = snapshot;
+        String file = snapshot.getFileName().toString();
+        int dot = file.lastIndexOf('.');
+        this.baseName = dot > 0 ? file.substring(0, dot) : file;
+        this.generation = generation;
+    }
+
+    // Replays every log at or after snapshotGeneration into handler and opens the newest for appending.
+    public static TaskJournal open(Path snapshot, long snapshotGeneration, Handler handler) throws IOException {
+        TaskJournal j = new TaskJournal(snapshot, Math.max(1, snapshotGeneration));
+        j.generation = Math.max(j.generation, j.replayLogs(snapshotGeneration, handler));
+        j.openLog();
+        j.syncer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "journal-sync"));
+        j.compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "journal-compact"));
+        j.syncer.scheduleWithFixedDelay(j::syncQuietly, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return j;
+    }
+
+    // Recovery without journal mode: replays leftover logs and returns the newest generation
+    // seen, or -1 when there were none. The next full save must use a higher generation.
+    public static long recover(Path snapshot, long snapshotGeneration, Handler handler) throws IOException {
+        return new TaskJournal(snapshot, snapshotGeneration).replayLogs(snapshotGeneration, handler);
+    }
+
+    // After a full snapshot with this generation has been written, older logs are dead.
+    public static void deleteLogsBefore(Path snapshot, long generation) throws IOException {
+        TaskJournal j = new TaskJournal(snapshot, generation);
+        for (long gen : j.listGenerations()) {
+            if (gen < generation) Files.deleteIfExists(j.logPath(gen));
+        }
+    }
+
+    private long replayLogs(long snapshotGeneration, Handler handler) throws IOException {
+        long last = -1;
+        int replayed = 0;
+        for (long gen : listGenerations()) {
+            if (gen < snapshotGeneration) {
+                // already folded into the snapshot
+                Files.deleteIfExists(logPath(gen));
+                continue;
+            }
+            replayed += replay(logPath(gen), handler);
+            last = gen;
+        }
+        if (replayed > 0) System.out.println("Journal replayed (changes: " + replayed + ")");
+        return last;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    // ===== Records =====
+
+    public void add(TaskTable table, int row) {
+        StringBuilder sb = new StringBuilder("A");
+        for (int c = 0; c < TaskTable.COLS; c++) {
+            sb.append('\t').append(TaskFile.escape(table.field(row, c)));
+        }
+        append(sb.toString());
+    }
+
+    public void edit(TaskTable table, int row, int col) {
+        long id = table.id(row);
+        if (col == TaskTable.COL_STATUS) {
+            append("S\t" + id + "\t" + table.field(row, col));
+        } else {
+            append("E\t" + id + "\t" + col + "\t" + TaskFile.escape(table.field(row, col)));
+        }
+    }
+
+    // one record, so a torn write after a crash drops the whole update, never half of it
+    public void update(TaskTable table, int row, int[] cols) {
+        StringBuilder sb = new StringBuilder("U\t").append(table.id(row));
+        for (int col : cols) {
+            sb.append('\t').append(col).append('\t').append(TaskFile.escape(table.field(row, col)));
+        }
+        append(sb.toString());
+    }
+
+    public void delete(long id) {
+        append("D\t" + id);
+    }
+
+    private synchronized void append(String record) {
+        try {
+            out.write(record);
+            out.write('\n');
+            logBytes += record.length() + 1;
+            TaskMetrics.wrote(record.length() + 1);
+            if (++pending >= GROUP_SIZE) sync();
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+        }
+    }
+
+    // ===== Durability =====
+
+    public synchronized void sync() throws IOException {
+        if (pending == 0) return;
+        out.flush();
+        channel.force(false);
+        pending = 0;
+    }
+
+    private synchronized void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.out.println("Error syncing journal: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        syncer.shutdown();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                sync();
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Error closing journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // ===== Compaction =====
+
+    // true once the log has grown past todo.journal.compactBytes and no compaction is running;
+    // the store then calls compact() once it has released its locks
+    public synchronized boolean compactionDue() {
+        return logBytes >= COMPACT_BYTES && !compacting;
+    }
+
+    // Switches to a fresh log, then writes copy as the snapshot in the background. copy must
+    // hold exactly the changes appended so far: the store takes it and calls this under its
+    // structure write lock, so no record lands between the copy and the switch.
+    // The snapshot header carries the new generation, so once it is in place the older logs
+    // are dead; until then startup still replays them on top of the previous snapshot.
+    public synchronized void compact(TaskTable copy) {
+        if (compacting) return;
+        try {
+            sync();
+            out.close();
+            long newGen = generation + 1;
+            generation = newGen;
+            openLog();
+            compacting = true;
+            compactor.execute(() -> {
+                TaskMetrics.OperationEvent e = TaskMetrics.start();
+                try {
+                    TaskFormat.of(snapshot).save(copy, snapshot, newGen);
+                    deleteLogsBefore(snapshot, newGen);
+                    Path words = TaskTextIndex.fileFor(snapshot);
+                    TaskTextIndex.build(copy).write(words, copy);
+                    TaskMetrics.end(e, TaskMetrics.Op.SAVE, copy.size(), copy.size(),
+                            Files.size(snapshot) + Files.size(words));
+                } catch (IOException ex) {
+                    TaskMetrics.failed(e, TaskMetrics.Op.SAVE);
+                    System.out.println("Error compacting journal: " + ex.getMessage());
+                } finally {
+                    synchronized (TaskJournal.this) {
+                        compacting = false;
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error rotating journal: " + e.getMessage());
+        }
+    }
+
+    // ===== Files =====
+
+    private void openLog() throws IOException {
+        Path log = logPath(generation);
+        channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                StandardCharsets.UTF_8), 1 << 14);
+        logBytes = channel.size();
+        pending = 0;
+    }
+
+    private Path logPath(long gen) {
+        return snapshot.resolveSibling(baseName + "-" + gen + ".log");
+    }
+
+    private List<Long> listGenerations() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        Path dir = snapshot.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, baseName + "-*.log")) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                String num = name.substring(baseName.length() + 1, name.length() - 4);
+                try {
+                    gens.add(Long.parseLong(num));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        gens.sort(null);
+        return gens;
+    }
+
+    private int replay(Path log, Handler handler) throws IOException {
+        int applied = 0;
+        int lineNo = 0;
+        try (BufferedReader in = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isEmpty()) continue;
+                String[] p = line.split("\t", -1);
+                try {
+                    switch (p[0]) {
+                        case "A": {
+                            int cols = p.length - 1;
+                            if (cols != TaskTable.COLS && cols != TaskTable.LEGACY_COLS) {
+                                throw new IllegalArgumentException("bad add");
+                            }
+                            String[] fields = new String[cols];
+                            for (int c = 0; c < cols; c++) fields[c] = TaskFile.unescape(p[c + 1]);
+                            handler.add(fields);
+                            break;
+                        }
+                        case "E":
+                            handler.edit(Long.parseLong(p[1]), Integer.parseInt(p[2]), TaskFile.unescape(p[3]));
+                            break;
+                        case "U": {
+                            if (p.length < 4 || p.length % 2 != 0) throw new IllegalArgumentException("bad update");
+                            long id = Long.parseLong(p[1]);
+                            int[] cols = new int[(p.length - 2) / 2];
+                            for (int i = 0; i < cols.length; i++) cols[i] = Integer.parseInt(p[2 + 2 * i]);
+                            for (int i = 0; i < cols.length; i++) {
+                                handler.edit(id, cols[i], TaskFile.unescape(p[3 + 2 * i]));
+                            }
+                            break;
+                        }
+                        case "S":
+                            handler.edit(Long.parseLong(p[1]), TaskTable.COL_STATUS, p[2]);
+                            break;
+                        case "D":
+                            handler.delete(Long.parseLong(p[1]));
+                            break;
+                        default:
+                            throw new IllegalArgumentException("unknown record " + p[0]);
+                    }
+                    applied++;
+                } catch (RuntimeException e) {
+                    // usually a torn last record after a crash
+                    TaskMetrics.parseError(log, lineNo, String.valueOf(e.getMessage()));
+                    System.out.println("Skipping journal record " + log.getFileName() + ":" + lineNo
+                            + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+        return applied;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
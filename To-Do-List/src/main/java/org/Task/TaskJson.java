@@ -0,0 +1,218 @@
+package org.Task;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for the server: tasks are written field by field into a StringBuilder,
+// request bodies are flat objects whose values come back in text form.
+public class TaskJson {
+
+    // ===== Writing =====
+
+    static void appendTask(StringBuilder sb, Task task) {
+        sb.append("{\"id\":").append(task.getId());
+        sb.append(",\"name\":");
+        appendString(sb, task.getName());
+        sb.append(",\"description\":");
+        appendString(sb, task.getDescription());
+        sb.append(",\"priority\":").append(task.getPriority());
+        sb.append(",\"status\":");
+        appendString(sb, task.getStatus());
+        sb.append(",\"category\":");
+        appendString(sb, task.getCategory());
+        sb.append(",\"dueDate\":");
+        appendDate(sb, task.getDueDate());
+        sb.append(",\"creationDate\":");
+        appendDate(sb, task.getCeationDate());
+        sb.append(",\"estimatedTime\":").append(task.getEstimatedTime());
+        sb.append(",\"tags\":");
+        appendString(sb, task.getTags());
+        sb.append(",\"assignedTo\":");
+        appendString(sb, task.getAssignedTo());
+        sb.append('}');
+    }
+
+    private static void appendDate(StringBuilder sb, LocalDate date) {
+        if (date == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        TaskTableRenderer.appendDate(sb, date);
+        sb.append('"');
+    }
+
+    static void appendString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    // {"since":"2026-..","parseErrors":0,"bytesRead":..,"bytesWritten":..,"operations":{"add":{..},..}},
+    // latencies in nanoseconds
+    static String metrics(TaskMetrics.Snapshot m) {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("{\"since\":");
+        appendString(sb, Instant.ofEpochMilli(m.sinceMillis).toString());
+        sb.append(",\"parseErrors\":").append(m.parseErrors);
+        sb.append(",\"bytesRead\":").append(m.bytesRead);
+        sb.append(",\"bytesWritten\":").append(m.bytesWritten);
+        sb.append(",\"operations\":{");
+        boolean first = true;
+        for (TaskMetrics.Timing t : m.operations) {
+            if (!first) sb.append(',');
+            first = false;
+            appendString(sb, t.operation);
+            sb.append(":{\"count\":").append(t.count);
+            sb.append(",\"failed\":").append(t.failed);
+            sb.append(",\"meanNanos\":").append(t.meanNanos());
+            sb.append(",\"p50Nanos\":").append(t.p50Nanos);
+            sb.append(",\"p90Nanos\":").append(t.p90Nanos);
+            sb.append(",\"p99Nanos\":").append(t.p99Nanos);
+            sb.append(",\"maxNanos\":").append(t.maxNanos);
+            sb.append(",\"rowsScanned\":").append(t.scanned);
+            sb.append(",\"rowsReturned\":").append(t.returned);
+            sb.append(",\"bytes\":").append(t.bytes);
+            sb.append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    static String error(String message) {
+        StringBuilder sb = new StringBuilder(message.length() + 16);
+        sb.append("{\"error\":");
+        appendString(sb, message);
+        return sb.append('}').toString();
+    }
+
+    // ===== Reading =====
+
+    // {"name":"x","priority":3,"dueDate":null} -> name=x, priority=3, dueDate=null.
+    // Strings are unescaped, numbers and booleans kept as written. Nested values are rejected.
+    static Map<String, String> parseObject(String json) {
+        Parser p = new Parser(json);
+        Map<String, String> out = new LinkedHashMap<>();
+        p.skipSpace();
+        p.expect('{');
+        p.skipSpace();
+        if (p.peek() == '}') {
+            p.pos++;
+        } else {
+            while (true) {
+                p.skipSpace();
+                String key = p.string();
+                p.skipSpace();
+                p.expect(':');
+                p.skipSpace();
+                out.put(key, p.value());
+                p.skipSpace();
+                if (p.peek() == ',') {
+                    p.pos++;
+                    continue;
+                }
+                p.expect('}');
+                break;
+            }
+        }
+        p.skipSpace();
+        if (p.pos != json.length()) throw p.fail("trailing characters");
+        return out;
+    }
+
+    private static class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        char peek() {
+            return pos < s.length() ? s.charAt(pos) : 0;
+        }
+
+        void skipSpace() {
+            while (pos < s.length() && s.charAt(pos) <= ' ') pos++;
+        }
+
+        void expect(char c) {
+            if (peek() != c) throw fail("expected '" + c + "'");
+            pos++;
+        }
+
+        String value() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw fail("nested values are not supported");
+            int start = pos;
+            while (pos < s.length() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            String word = s.substring(start, pos);
+            if (word.isEmpty()) throw fail("missing value");
+            if (word.equals("null")) return null;
+            if (word.equals("true") || word.equals("false")) return word;
+            for (int i = 0; i < word.length(); i++) {
+                if ("0123456789+-.eE".indexOf(word.charAt(i)) < 0) throw fail("bad value '" + word + "'");
+            }
+            return word;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= s.length()) throw fail("unterminated string");
+                char c = s.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) throw fail("unterminated string");
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw fail("bad \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw fail("bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: throw fail("bad escape \\" + e);
+                }
+            }
+        }
+
+        IllegalArgumentException fail(String what) {
+            return new IllegalArgumentException("Invalid JSON at " + pos + ": " + what);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.Task;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Descriptions of a table loaded by TaskBinaryFile.loadLazy(): the rows hold the UNLOADED
+// marker, and TaskTable.description() reads the text from the mapped binary file on first
+// use. The last todo.lazy.cacheSize of them are kept; an edit stores its value in the table
+// like any other, so only untouched descriptions come from here.
+//
+// The mapping stays valid after the file is closed or replaced by a save (the old contents
+// live on until the mapping is collected), so the file rows never go stale.
+public final class TaskLazyText {
+
+    static final int CACHE_SIZE = Math.max(16, Integer.getInteger("todo.lazy.cacheSize", 4096));
+
+    // a description still in the file; compared by identity, never shown
+    static final String UNLOADED = new String("");
+
+    private final TaskBinaryFile.Reader file;
+    // task id -> row in the file: binary search over the ids in ascending order, which is
+    // file order for any file this program wrote, so rows is usually null (row = position)
+    private final long[] ids;
+    private final int[] rows;
+    private final Map<Integer, String> cache;
+    private long hits;                  // guarded by cache
+    private long misses;
+
+    // ids: the id of every file row, in file order
+    TaskLazyText(TaskBinaryFile.Reader file, long[] ids, int cacheSize) {
+        this.file = file;
+        boolean ascending = true;
+        for (int i = 1; i < ids.length && ascending; i++) ascending = ids[i - 1] < ids[i];
+        if (ascending) {
+            this.ids = ids;
+            this.rows = null;
+        } else {
+            Integer[] order = new Integer[ids.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+            this.ids = new long[ids.length];
+            this.rows = new int[ids.length];
+            for (int i = 0; i < order.length; i++) {
+                this.ids[i] = ids[order[i]];
+                this.rows[i] = order[i];
+            }
+        }
+        this.cache = new LinkedHashMap<>(Math.min(cacheSize, 1024) * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // readers run concurrently under the store's read locks, so the cache is locked; the
+    // file read itself is not
+    String description(long id) {
+        int row = row(id);
+        synchronized (cache) {
+            String s = cache.get(row);
+            if (s != null) {
+                hits++;
+                return s;
+            }
+            misses++;
+        }
+        String s = file.text(TaskTable.COL_DESC, row);
+        synchronized (cache) {
+            cache.put(row, s);
+        }
+        return s;
+    }
+
+    // String.hashCode() of the description without decoding it into a String
+    int descriptionHash(long id) {
+        return file.textHash(TaskTable.COL_DESC, row(id));
+    }
+
+    // UTF-8 length and bytes of the description as stored, for TaskBinaryFile.write(), which
+    // copies them over without decoding them or going through the cache
+    int length(long id) {
+        return file.textLength(TaskTable.COL_DESC, row(id));
+    }
+
+    ByteBuffer bytes(long id) {
+        return file.textBytes(TaskTable.COL_DESC, row(id));
+    }
+
+    // only asked for ids of rows that came from the file
+    private int row(long id) {
+        int i = Arrays.binarySearch(ids, id);
+        if (i < 0) throw new IllegalStateException("task " + id + " is not in the mapped file");
+        return rows == null ? i : rows[i];
+    }
+
+    public long hits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public long misses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    public int cached() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
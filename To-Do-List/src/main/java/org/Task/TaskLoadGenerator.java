@@ -0,0 +1,217 @@
+package org.Task;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for TaskServer: each client is a virtual thread sending one request at a
+// time for a fixed duration, then requests per second and latency percentiles are printed.
+//
+//   java org.Task.TaskLoadGenerator [url|embedded] [clients] [seconds] [tasks]
+//
+// "embedded" (the default) starts a server in this JVM on a free localhost port with [tasks]
+// generated tasks; a url points at a running server instead (TaskManager --server).
+// Mix: 70% get, 10% edit, 8% filtered list (20 rows), 5% add, 5% status change, 2% delete.
+// The first second is warm-up and not counted.
+public class TaskLoadGenerator {
+
+    private static final String[] OPS = {"get", "edit", "list", "add", "status", "delete"};
+    private static final int[] MIX = {70, 80, 88, 93, 98, 100};
+    private static final String[] CATEGORIES = {"Work", "Home", "School", "Personal", "Health", "Finance"};
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "embedded";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int tasks = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        TaskServer server = null;
+        String base = target;
+        if (target.equals("embedded")) {
+            TaskStore store = new TaskStore(TaskDataGenerator.generate(tasks, 42), Path.of("load-unused.txt"), 0);
+            server = TaskServer.start(store, 0);
+            base = "http://localhost:" + server.port();
+        }
+        if (base.endsWith("/")) base = base.substring(0, base.length() - 1);
+
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(threads)
+                .build();
+
+        AtomicLong maxId = new AtomicLong(maxId(client, base));
+        System.out.println("Target " + base + ", " + clients + " clients, " + seconds + " s (+1 s warm-up), ids up to " + maxId.get());
+
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        long deadline = warmupEnd + seconds * 1_000_000_000L;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Client> workers = new ArrayList<>();
+        List<Thread> running = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Client w = new Client(client, base, maxId, new SplittableRandom(1000 + c));
+            workers.add(w);
+            running.add(Thread.ofVirtual().name("load-" + c).start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                w.run(warmupEnd, deadline);
+            }));
+        }
+        start.countDown();
+        for (Thread t : running) t.join();
+
+        // ===== Report =====
+        long[] all = new long[workers.stream().mapToInt(w -> w.count).sum()];
+        long[] perOp = new long[OPS.length];
+        long errors = 0;
+        long missing = 0;
+        int n = 0;
+        for (Client w : workers) {
+            System.arraycopy(w.latencies, 0, all, n, w.count);
+            n += w.count;
+            for (int i = 0; i < OPS.length; i++) perOp[i] += w.perOp[i];
+            errors += w.errors;
+            missing += w.missing;
+        }
+        Arrays.sort(all);
+        System.out.printf("%d requests in %d s: %.0f req/s%n", n, seconds, n / (double) seconds);
+        if (n > 0) {
+            System.out.printf("latency ms: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                    pct(all, 50), pct(all, 90), pct(all, 99), pct(all, 99.9), all[n - 1] / 1e6);
+        }
+        StringBuilder ops = new StringBuilder("by op:");
+        for (int i = 0; i < OPS.length; i++) ops.append(' ').append(OPS[i]).append(' ').append(perOp[i]);
+        System.out.println(ops);
+        System.out.println("not found " + missing + " (deleted or unknown ids), errors " + errors);
+
+        threads.close();
+        if (server != null) server.stop();
+        if (errors != 0) System.exit(1);
+    }
+
+    private static double pct(long[] sorted, double p) {
+        int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+
+    // ids only grow, and the list is in id order: the last task has the highest id
+    private static long maxId(HttpClient client, String base) throws Exception {
+        HttpResponse<Void> head = client.send(HttpRequest.newBuilder(URI.create(base + "/tasks?limit=0")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        long total = Long.parseLong(head.headers().firstValue("X-Total-Count").orElse("0"));
+        if (total == 0) return 1;
+        HttpResponse<String> last = client.send(HttpRequest.newBuilder(
+                URI.create(base + "/tasks?offset=" + (total - 1) + "&limit=1")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return idIn(last.body());
+    }
+
+    private static long idIn(String json) {
+        int at = json.indexOf("\"id\":");
+        if (at < 0) return 1;
+        int end = at + 5;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) end++;
+        return Long.parseLong(json.substring(at + 5, end));
+    }
+
+    private static class Client {
+        private final HttpClient http;
+        private final String base;
+        private final AtomicLong maxId;
+        private final SplittableRandom random;
+
+        long[] latencies = new long[1 << 14];
+        int count;
+        final long[] perOp = new long[OPS.length];
+        long errors;
+        long missing;
+
+        Client(HttpClient http, String base, AtomicLong maxId, SplittableRandom random) {
+            this.http = http;
+            this.base = base;
+            this.maxId = maxId;
+            this.random = random;
+        }
+
+        void run(long warmupEnd, long deadline) {
+            while (true) {
+                int roll = random.nextInt(100);
+                int op = 0;
+                while (roll >= MIX[op]) op++;
+                HttpRequest request = request(op);
+                long t0 = System.nanoTime();
+                if (t0 >= deadline) return;
+                int code;
+                String body = null;
+                try {
+                    if (op == 3) {
+                        HttpResponse<String> r = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        code = r.statusCode();
+                        body = r.body();
+                    } else {
+                        code = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    }
+                } catch (Exception e) {
+                    code = -1;
+                }
+                long took = System.nanoTime() - t0;
+                if (code == 201 && body != null) maxId.accumulateAndGet(idIn(body), Math::max);
+                if (t0 < warmupEnd) continue;
+
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = took;
+                perOp[op]++;
+                if (code == 404) missing++;
+                else if (code < 200 || code >= 300) errors++;
+            }
+        }
+
+        private HttpRequest request(int op) {
+            String task = base + "/tasks/" + (1 + random.nextLong(maxId.get()));
+            switch (op) {
+                case 0:
+                    return HttpRequest.newBuilder(URI.create(task)).build();
+                case 1: {
+                    String stamp = "load-" + random.nextInt(1_000_000);
+                    return HttpRequest.newBuilder(URI.create(task))
+                            .method("PATCH", json("{\"name\":\"" + stamp + "\",\"priority\":" + (1 + random.nextInt(5)) + "}"))
+                            .build();
+                }
+                case 2:
+                    return HttpRequest.newBuilder(URI.create(base + "/tasks?category="
+                            + CATEGORIES[random.nextInt(CATEGORIES.length)] + "&limit=20")).build();
+                case 3:
+                    return HttpRequest.newBuilder(URI.create(base + "/tasks"))
+                            .POST(json("{\"name\":\"load test\",\"description\":\"generated\",\"priority\":3,"
+                                    + "\"category\":\"Work\",\"dueDate\":\"2026-01-31\",\"estimatedTime\":1.5,"
+                                    + "\"tags\":\"load\",\"assignedTo\":\"bench\"}"))
+                            .build();
+                case 4:
+                    return HttpRequest.newBuilder(URI.create(task + "/status"))
+                            .PUT(json(random.nextBoolean() ? "{\"status\":\"Done\"}" : "{\"status\":\"Pending\"}"))
+                            .build();
+                default:
+                    return HttpRequest.newBuilder(URI.create(task)).DELETE().build();
+            }
+        }
+
+        private static HttpRequest.BodyPublisher json(String body) {
+            return HttpRequest.BodyPublishers.ofString(body);
+        }
+    }
+}
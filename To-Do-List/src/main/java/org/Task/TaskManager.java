@@ -1,42 +1,124 @@
 package org.Task;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
+// The interactive menu. All task state lives in a TaskStore; this class only reads input,
+// calls the store and prints the results.
 public class TaskManager {
 
-    // ===== 2D array storage =====
-    private static String[][] tasks;
-    private static int taskCount = 0;
+    private static TaskStore store;
+    // background saves; null in journal mode, where the log already keeps every change
+    private static TaskAutoSaver autoSaver;
+    private static final long AUTOSAVE_SECONDS = Long.getLong("todo.autosave.seconds", 30);
 
-    // columns
-    private static final int COL_NAME = 0;
-    private static final int COL_DESC = 1;
-    private static final int COL_PRIORITY = 2;
-    private static final int COL_STATUS = 3;
-    private static final int COL_CATEGORY = 4;
-    private static final int COL_DUE = 5;
-    private static final int COL_CREATED = 6;
-    private static final int COL_EST_TIME = 7;
-    private static final int COL_TAGS = 8;
-    private static final int COL_ASSIGNED = 9;
+    private static final String FILE_NAME = "tasks-data.txt";
+    private static final String BINARY_FILE_NAME = "tasks-data.bin";
+    private static final String MAPPED_FILE_NAME = "tasks-data.map";
+    private static final String BLOCK_FILE_NAME = "tasks-data.blk";
+    private static final String SHARD_FILE_NAME = "tasks-data.shards";
+    private static final DateTimeFormatter DATE_FMT = TaskTable.DATE_FMT;
 
-    private static final int COLS = 10;
+    // ===== Output =====
+    private static final TaskTableRenderer renderer = TaskTableRenderer.toStdout();
+    private static int pageSize = Integer.getInteger("todo.pageSize", 50);
+    private static final int DASHBOARD_ROWS = Integer.getInteger("todo.dashboard.rows", 20);
 
-    private static final String FILE_NAME = "tasks-data.txt";
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static Path dataFile = Path.of(FILE_NAME);
+    // descriptions stay in the binary file until shown (--lazy)
+    private static boolean lazy = false;
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
+        boolean journalMode = false;
+        int serverPort = -1;
+        String batchFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--journal":
+                    journalMode = true;
+                    break;
+                case "--binary":
+                    dataFile = Path.of(BINARY_FILE_NAME);
+                    break;
+                case "--mapped":
+                    // the off-heap image (TaskOffHeapTable): rows are read in place from the
+                    // mapping and only the segments edited since startup live on the heap
+                    dataFile = Path.of(MAPPED_FILE_NAME);
+                    break;
+                case "--lazy":
+                    // the binary file, with descriptions read on first use (TaskLazyText)
+                    dataFile = Path.of(BINARY_FILE_NAME);
+                    lazy = true;
+                    break;
+                case "--blocks":
+                    // compressed blocks with a per-block index (TaskBlockFile)
+                    dataFile = Path.of(BLOCK_FILE_NAME);
+                    break;
+                case "--sharded":
+                    // one TSV file per category (todo.shards.key: assigned, hash:N) plus a manifest (TaskShards)
+                    dataFile = Path.of(SHARD_FILE_NAME);
+                    break;
+                case "--convert":
+                    // --convert <from> <to>: TSV, binary (.bin), mapped (.map), blocks (.blk) or shards (.shards) by extension, then exit
+                    if (i + 2 >= args.length) {
+                        System.out.println("Usage: --convert <from> <to>");
+                        return;
+                    }
+                    convert(Path.of(args[i + 1]), Path.of(args[i + 2]));
+                    return;
+                case "--scan":
+                    // --scan <file.blk|file.shards> <query>: query the file without loading all of it, then exit
+                    if (i + 2 >= args.length) {
+                        System.out.println("Usage: --scan <file.blk|file.shards> <query>");
+                        return;
+                    }
+                    scan(Path.of(args[i + 1]), args[i + 2]);
+                    return;
+                case "--server":
+                    // --server [port]: serve the tasks over HTTP/JSON instead of the menu
+                    serverPort = 8080;
+                    if (i + 1 < args.length && args[i + 1].matches("\\d{1,5}")) {
+                        serverPort = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--batch":
+                    // --batch [file]: run the commands in file (stdin if none or "-"), see TaskBatch
+                    batchFile = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "-";
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+            }
+        }
+
+        if (serverPort >= 0) {
+            serve(serverPort, journalMode);
+            return;
+        }
+        if (batchFile != null) {
+            if (!runBatch(batchFile, journalMode)) System.exit(1);
+            return;
+        }
+
         if (!loadFromFile()) {
             setupSystem(scanner);
         }
+        openJournal(journalMode);
+        startAutoSave();
 
         int choice;
         do {
@@ -48,7 +130,7 @@ public class TaskManager {
                     addTask(scanner);
                     break;
                 case 2:
-                    showAllTasks();
+                    showAllTasks(scanner);
                     break;
                 case 3:
                     changeStatus(scanner);
@@ -69,9 +151,18 @@ public class TaskManager {
                     saveToFile();
                     break;
                 case 9:
-                    saveToFile();
+                    closeStore();
                     System.out.println("Exiting...");
                     break;
+                case 10:
+                    showNext(scanner);
+                    break;
+                case 11:
+                    showDashboard();
+                    break;
+                case 12:
+                    showMetrics();
+                    break;
                 default:
                     System.out.println("Invalid option.");
             }
@@ -83,31 +174,74 @@ public class TaskManager {
         int capacity = safeInt(scanner, "Max number of tasks (e.g., 50): ");
         if (capacity <= 0) capacity = 50;
 
-        tasks = new String[capacity][COLS];
-        taskCount = 0;
+        store = new TaskStore(new TaskTable(capacity), dataFile, 0);
         System.out.println("System initialized with capacity: " + capacity);
     }
 
+    // ===== Server mode =====
+
+    // the server's threads keep the JVM alive after main returns; Ctrl+C saves and stops
+    private static void serve(int port, boolean journalMode) {
+        if (!loadFromFile()) {
+            store = new TaskStore(new TaskTable(50), dataFile, 0);
+            System.out.println("No data file, starting with an empty task list.");
+        }
+        openJournal(journalMode);
+        startAutoSave();
+        try {
+            TaskServer server = TaskServer.start(store, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                closeStore();
+            }));
+            System.out.println("Serving tasks on http://localhost:" + server.port() + "/tasks (Ctrl+C to save and stop)");
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            closeStore();
+        }
+    }
+
+    // ===== Batch mode =====
+
+    // no autosaver: every transaction is saved as it commits
+    private static boolean runBatch(String file, boolean journalMode) {
+        if (!loadFromFile()) {
+            store = new TaskStore(new TaskTable(50), dataFile, 0);
+        }
+        openJournal(journalMode);
+        try (BufferedReader in = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+            return new TaskBatch(store, System.out).run(in);
+        } catch (IOException e) {
+            System.out.println("Error reading " + file + ": " + e.getMessage());
+            return false;
+        } finally {
+            store.close();
+        }
+    }
+
     // ===== Menu =====
     private static void printMenu() {
-        System.out.println("\n=== TO-DO LIST MANAGER (2D ARRAY) ===");
+        System.out.println("\n=== TO-DO LIST MANAGER ===");
         System.out.println("1. Add new task");
         System.out.println("2. Show all tasks");
         System.out.println("3. Change status (Pending/Done)");
-        System.out.println("4. Filter tasks (category/priority/tags)");
+        System.out.println("4. Filter tasks (category/priority/tags/query)");
         System.out.println("5. Sort tasks (date/priority/estimated time)");
         System.out.println("6. Edit task details");
         System.out.println("7. Delete task");
         System.out.println("8. Save data");
         System.out.println("9. Exit");
+        System.out.println("10. What to do next (top pending tasks)");
+        System.out.println("11. Dashboard (totals by category and assignee)");
+        System.out.println("12. Statistics (operation timings)");
     }
 
     // ===== Core Features =====
 
     // 1) Add
     private static void addTask(Scanner scanner) {
-        ensureCapacity();
-
         System.out.print("Name: ");
         String name = scanner.nextLine();
 
@@ -133,45 +267,31 @@ public class TaskManager {
         String status = "Pending";
         LocalDate created = LocalDate.now();
 
-        tasks[taskCount][COL_NAME] = name;
-        tasks[taskCount][COL_DESC] = desc;
-        tasks[taskCount][COL_PRIORITY] = String.valueOf(priority);
-        tasks[taskCount][COL_STATUS] = status;
-        tasks[taskCount][COL_CATEGORY] = category;
-        tasks[taskCount][COL_DUE] = dueDate.format(DATE_FMT);
-        tasks[taskCount][COL_CREATED] = created.format(DATE_FMT);
-        tasks[taskCount][COL_EST_TIME] = String.valueOf(estTime);
-        tasks[taskCount][COL_TAGS] = tags;
-        tasks[taskCount][COL_ASSIGNED] = assignedTo;
-
-        taskCount++;
-        System.out.println("Task added! Status is 'Pending'.");
+        long id = store.add(new Task(name, desc, priority, status, category,
+                dueDate, created, estTime, tags, assignedTo));
+        System.out.println("Task added with ID " + id + "! Status is 'Pending'.");
     }
 
     // 2) Show (TABLE)
-    private static void showAllTasks() {
-        if (taskCount == 0) {
+    private static void showAllTasks(Scanner scanner) {
+        if (taskCount() == 0) {
             System.out.println("No tasks found.");
             return;
         }
 
-        printTableHeader();
-        for (int i = 0; i < taskCount; i++) {
-            printTableRow(i);
-        }
-        printLine();
+        showRows(scanner, store.all());
     }
 
     // 3) Change status
     private static void changeStatus(Scanner scanner) {
-        if (taskCount == 0) {
+        if (taskCount() == 0) {
             System.out.println("No tasks to update.");
             return;
         }
 
-        int index = safeInt(scanner, "Task number to update: ") - 1;
-        if (!validIndex(index)) {
-            System.out.println("Invalid task number.");
+        long id = safeLong(scanner, "Task ID to update: ");
+        if (store.get(id) == null) {
+            System.out.println("No task with that ID.");
             return;
         }
 
@@ -183,13 +303,16 @@ public class TaskManager {
             return;
         }
 
-        tasks[index][COL_STATUS] = capitalize(status);
+        if (!store.setStatus(id, TaskTable.parseStatus(status))) {
+            System.out.println("No task with that ID.");
+            return;
+        }
         System.out.println("Status updated!");
     }
 
     // 4) Filter
     private static void filterMenu(Scanner scanner) {
-        if (taskCount == 0) {
+        if (taskCount() == 0) {
             System.out.println("No tasks to filter.");
             return;
         }
@@ -198,77 +321,283 @@ public class TaskManager {
         System.out.println("1. By category");
         System.out.println("2. By priority");
         System.out.println("3. By tag");
+        System.out.println("4. Query (combine conditions)");
+        System.out.println("5. By date (overdue, due soon, date range, recently created)");
+        System.out.println("6. Search name and description");
         int choice = safeInt(scanner, "Select filter: ");
 
         switch (choice) {
             case 1: {
                 System.out.print("Category: ");
                 String cat = scanner.nextLine().trim();
-                filterByCategory(cat);
+                filterByCategory(scanner, cat);
                 break;
             }
             case 2: {
                 int p = safeIntRange(scanner, "Priority (1-5): ", 1, 5);
-                filterByPriority(p);
+                filterByPriority(scanner, p);
                 break;
             }
             case 3: {
                 System.out.print("Tag (one word): ");
                 String tag = scanner.nextLine().trim();
-                filterByTag(tag);
+                filterByTag(scanner, tag);
                 break;
             }
+            case 4:
+                queryTasks(scanner);
+                break;
+            case 5:
+                filterByDate(scanner);
+                break;
+            case 6:
+                searchTasks(scanner);
+                break;
             default:
                 System.out.println("Invalid filter option.");
         }
     }
 
-    private static void filterByCategory(String category) {
-        boolean found = false;
-        printTableHeader();
-        for (int i = 0; i < taskCount; i++) {
-            if (tasks[i][COL_CATEGORY] != null &&
-                    tasks[i][COL_CATEGORY].equalsIgnoreCase(category)) {
-                printTableRow(i);
-                found = true;
-            }
+    private static void filterByCategory(Scanner scanner, String category) {
+        long[] ids = store.byCategory(category);
+        if (ids.length == 0) {
+            System.out.println("No tasks found for category: " + category);
+            return;
         }
-        printLine();
-        if (!found) System.out.println("No tasks found for category: " + category);
+        showRows(scanner, ids);
     }
 
-    private static void filterByPriority(int priority) {
-        boolean found = false;
-        printTableHeader();
-        for (int i = 0; i < taskCount; i++) {
-            int p = parseIntSafe(tasks[i][COL_PRIORITY], -1);
-            if (p == priority) {
-                printTableRow(i);
-                found = true;
+    private static void filterByPriority(Scanner scanner, int priority) {
+        long[] ids = store.byPriority(priority);
+        if (ids.length == 0) {
+            System.out.println("No tasks found for priority: " + priority);
+            return;
+        }
+        showRows(scanner, ids);
+    }
+
+    private static void filterByTag(Scanner scanner, String tag) {
+        long[] ids = store.byTag(tag);
+        if (ids.length == 0) {
+            System.out.println("No tasks found with tag: " + tag);
+            return;
+        }
+        showRows(scanner, ids);
+    }
+
+    // results come from the date indexes, ordered by date
+    private static void filterByDate(Scanner scanner) {
+        System.out.println("1. Overdue (pending, due before today)");
+        System.out.println("2. Due today");
+        System.out.println("3. Due in the next 7 days");
+        System.out.println("4. Due between two dates");
+        System.out.println("5. Created in the last N days");
+        int choice = safeInt(scanner, "Select: ");
+
+        LocalDate today = LocalDate.now();
+        long[] ids;
+        switch (choice) {
+            case 1:
+                ids = store.overdue(today);
+                break;
+            case 2:
+                ids = store.dueBetween(today, today);
+                break;
+            case 3:
+                ids = store.dueBetween(today, today.plusDays(6));
+                break;
+            case 4: {
+                LocalDate from = safeDate(scanner, "From (yyyy-MM-dd): ");
+                LocalDate to = safeDate(scanner, "To (yyyy-MM-dd): ");
+                ids = store.dueBetween(from, to);
+                break;
+            }
+            case 5: {
+                int days = safeIntRange(scanner, "Days: ", 1, 36500);
+                ids = store.createdBetween(today.minusDays(days - 1), today);
+                break;
             }
+            default:
+                System.out.println("Invalid option.");
+                return;
         }
-        printLine();
-        if (!found) System.out.println("No tasks found for priority: " + priority);
+        if (ids.length == 0) {
+            System.out.println("No tasks found.");
+            return;
+        }
+        showRows(scanner, ids);
+    }
+
+    private static void queryTasks(Scanner scanner) {
+        System.out.println("Conditions joined with AND, then optional ORDER BY and LIMIT, e.g.");
+        System.out.println("  category=work AND priority>=4 AND tag:urgent AND due<2026-01-01 AND status=Pending ORDER BY due LIMIT 20");
+        System.out.println("Fields: category, assigned, name, description (= != ~), tag (: !=), status (= !=),");
+        System.out.println("        priority, hours, due, created (= != < <= > >=). Sort keys: priority, due, created, hours.");
+        System.out.print("Query: ");
+        String text = scanner.nextLine();
+
+        TaskQuery.Result result;
+        try {
+            result = store.query(TaskQuery.parse(text));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        System.out.println("Plan: " + result.plan + " -> " + result.ids.length + " match(es)");
+        if (result.ids.length == 0) {
+            System.out.println("No tasks match the query.");
+            return;
+        }
+        showRows(scanner, result.ids);
+    }
+
+    // ranked by relevance; every word has to match, a trailing * matches any word with that start
+    private static void searchTasks(Scanner scanner) {
+        System.out.print("Search (e.g. blej ushq*): ");
+        String text = scanner.nextLine();
+        TaskTextIndex.Result result = store.search(text, Integer.MAX_VALUE);
+        if (result.ids.length == 0) {
+            System.out.println("No tasks match: " + text.trim());
+            return;
+        }
+        System.out.println(result.total + " match(es), best first");
+        showRows(scanner, result.ids);
     }
 
-    private static void filterByTag(String tag) {
-        boolean found = false;
-        String t = tag.toLowerCase();
-        printTableHeader();
-        for (int i = 0; i < taskCount; i++) {
-            String tags = safeStr(tasks[i][COL_TAGS]).toLowerCase();
-            if (tags.contains(t)) {
-                printTableRow(i);
-                found = true;
+    // Small results print at once. Bigger ones ask first: pages or just the count,
+    // so a huge result is never written out in one go.
+    private static void showRows(Scanner scanner, long[] ids) {
+        int n = ids.length;
+        if (n <= pageSize) {
+            renderer.page(store.get(ids, 0, n));
+            return;
+        }
+
+        System.out.print(n + " tasks. Show (p)ages or (c)ount only? ");
+        if (!scanner.hasNextLine()) return;
+        if (scanner.nextLine().trim().equalsIgnoreCase("c")) {
+            renderer.countOnly(n);
+            return;
+        }
+
+        int from = 0;
+        while (true) {
+            int to = Math.min(n, from + pageSize);
+            renderer.page(store.get(ids, from, to));
+            int pages = (n + pageSize - 1) / pageSize;
+            System.out.print("Rows " + (from + 1) + "-" + to + " of " + n
+                    + " (page " + (from / pageSize + 1) + "/" + pages + ")"
+                    + "  [n]ext [p]rev [g <row>] jump [s <size>] page size [q]uit: ");
+            if (!scanner.hasNextLine()) return;
+            String[] cmd = scanner.nextLine().trim().split("\\s+");
+            try {
+                switch (cmd[0].toLowerCase(Locale.ROOT)) {
+                    case "":
+                    case "n":
+                        if (to >= n) return;
+                        from = to;
+                        break;
+                    case "p":
+                        from = Math.max(0, from - pageSize);
+                        break;
+                    case "g": {
+                        // jump to the page holding that row (1-based position in the result)
+                        int row = Math.max(1, Math.min(n, Integer.parseInt(cmd[1])));
+                        from = (row - 1) / pageSize * pageSize;
+                        break;
+                    }
+                    case "s":
+                        pageSize = Math.max(1, Integer.parseInt(cmd[1]));
+                        from = from / pageSize * pageSize;
+                        break;
+                    case "q":
+                        return;
+                    default:
+                        System.out.println("Unknown command.");
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                System.out.println("Invalid number. Try again.");
             }
         }
-        printLine();
-        if (!found) System.out.println("No tasks found containing tag: " + tag);
+    }
+
+    // 10) Next tasks: read straight off the pending heap, nothing is sorted
+    private static void showNext(Scanner scanner) {
+        int k = safeIntRange(scanner, "How many tasks (1-1000): ", 1, 1000);
+        long[] ids = store.next(k);
+        if (ids.length == 0) {
+            System.out.println("Nothing pending.");
+            return;
+        }
+        showRows(scanner, ids);
+    }
+
+    // 11) Dashboard: running counters kept by the store, no task is scanned
+    private static void showDashboard() {
+        TaskStats.Snapshot d = store.dashboard();
+        TaskStats.Group all = d.total;
+        System.out.println("\n=== DASHBOARD (" + TaskTable.formatDay(d.asOf) + ") ===");
+        System.out.printf("%d tasks: %d pending (%.1f h), %d done (%.1f h), %d overdue%n",
+                all.tasks(), all.pending, all.pendingHours, all.done, all.doneHours, all.overdue);
+
+        List<TaskStats.Group> categories = new ArrayList<>(d.byCategory);
+        categories.sort(Comparator.comparing((TaskStats.Group g) -> g.label, String.CASE_INSENSITIVE_ORDER));
+        System.out.println("\nBy category");
+        System.out.printf("%-16s %8s %8s %10s %8s%n", "Category", "Pending", "Done", "Pending h", "Overdue");
+        for (TaskStats.Group g : categories) {
+            System.out.printf("%-16s %8d %8d %10.1f %8d%n", cut(g.label, 16), g.pending, g.done, g.pendingHours, g.overdue);
+        }
+
+        // busiest people first; long tails are cut to keep the screen readable
+        List<TaskStats.Group> people = new ArrayList<>(d.byAssignee);
+        people.sort(Comparator.comparingDouble((TaskStats.Group g) -> g.pendingHours).reversed()
+                .thenComparing(g -> g.label, String.CASE_INSENSITIVE_ORDER));
+        int shown = Math.min(people.size(), DASHBOARD_ROWS);
+        System.out.println("\nBy assignee (by pending hours)");
+        System.out.printf("%-16s %8s %8s %10s %8s%n", "Assigned", "Pending", "Done", "Pending h", "Overdue");
+        for (TaskStats.Group g : people.subList(0, shown)) {
+            System.out.printf("%-16s %8d %8d %10.1f %8d%n", cut(g.label, 16), g.pending, g.done, g.pendingHours, g.overdue);
+        }
+        if (people.size() > shown) System.out.println("... " + (people.size() - shown) + " more");
+    }
+
+    // 12) Statistics: what TaskMetrics counted since startup
+    private static void showMetrics() {
+        TaskMetrics.Snapshot m = TaskMetrics.snapshot();
+        System.out.println("\n=== STATISTICS (since " + Instant.ofEpochMilli(m.sinceMillis) + ") ===");
+        System.out.printf("%-7s %8s %6s %10s %10s %10s %10s %12s %12s %10s%n", "Op", "Count", "Failed",
+                "Mean ms", "p50 ms", "p99 ms", "Max ms", "Scanned", "Returned", "Bytes");
+        for (TaskMetrics.Timing t : m.operations) {
+            System.out.printf("%-7s %8d %6d %10.3f %10.3f %10.3f %10.3f %12d %12d %10s%n", t.operation, t.count, t.failed,
+                    ms(t.meanNanos()), ms(t.p50Nanos), ms(t.p99Nanos), ms(t.maxNanos), t.scanned, t.returned, bytes(t.bytes));
+        }
+        System.out.println("Read " + bytes(m.bytesRead) + ", written " + bytes(m.bytesWritten)
+                + ", lines skipped as unreadable: " + m.parseErrors);
+        TaskLazyText lazyText = store.lazyText();
+        if (lazyText != null) {
+            System.out.println("Descriptions read from the file: " + lazyText.misses() + ", from the cache: "
+                    + lazyText.hits() + " (" + lazyText.cached() + " of " + TaskLazyText.CACHE_SIZE + " cached)");
+        }
+        System.out.println("(percentiles are bucket limits: at most 2x high)");
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String bytes(long n) {
+        if (n < 1024) return n + " B";
+        if (n < 1024 * 1024) return String.format("%.1f KB", n / 1024.0);
+        return String.format("%.1f MB", n / (1024.0 * 1024.0));
+    }
+
+    private static String cut(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max - 1) + ".";
     }
 
     // 5) Sort
     private static void sortMenu(Scanner scanner) {
-        if (taskCount == 0) {
+        if (taskCount() == 0) {
             System.out.println("No tasks to sort.");
             return;
         }
@@ -277,86 +606,53 @@ public class TaskManager {
         System.out.println("1. By due date");
         System.out.println("2. By priority (high to low)");
         System.out.println("3. By estimated time (low to high)");
+        System.out.println("4. By priority, then due date, then estimated time");
         int choice = safeInt(scanner, "Select sort: ");
 
+        long[] order;
         switch (choice) {
             case 1:
-                sortByDueDate();
+                order = store.sorted(TaskSorter.Key.DUE_ASC);
                 System.out.println("Sorted by due date.");
                 break;
             case 2:
-                sortByPriorityDesc();
+                order = store.sorted(TaskSorter.Key.PRIORITY_DESC);
                 System.out.println("Sorted by priority (high to low).");
                 break;
             case 3:
-                sortByEstimatedTimeAsc();
+                order = store.sorted(TaskSorter.Key.HOURS_ASC);
                 System.out.println("Sorted by estimated time (low to high).");
                 break;
+            case 4:
+                order = store.sorted(TaskSorter.Key.PRIORITY_DESC,
+                        TaskSorter.Key.DUE_ASC, TaskSorter.Key.HOURS_ASC);
+                System.out.println("Sorted by priority, due date and estimated time.");
+                break;
             default:
                 System.out.println("Invalid sort option.");
                 return;
         }
 
-        showAllTasks();
-    }
-
-    private static void sortByDueDate() {
-        for (int i = 0; i < taskCount - 1; i++) {
-            int minIdx = i;
-            for (int j = i + 1; j < taskCount; j++) {
-                LocalDate d1 = parseDateSafe(tasks[minIdx][COL_DUE]);
-                LocalDate d2 = parseDateSafe(tasks[j][COL_DUE]);
-                if (d2.isBefore(d1)) {
-                    minIdx = j;
-                }
-            }
-            swapRows(i, minIdx);
-        }
-    }
-
-    private static void sortByPriorityDesc() {
-        for (int i = 0; i < taskCount - 1; i++) {
-            int bestIdx = i;
-            for (int j = i + 1; j < taskCount; j++) {
-                int p1 = parseIntSafe(tasks[bestIdx][COL_PRIORITY], 0);
-                int p2 = parseIntSafe(tasks[j][COL_PRIORITY], 0);
-                if (p2 > p1) {
-                    bestIdx = j;
-                }
-            }
-            swapRows(i, bestIdx);
-        }
-    }
-
-    private static void sortByEstimatedTimeAsc() {
-        for (int i = 0; i < taskCount - 1; i++) {
-            int minIdx = i;
-            for (int j = i + 1; j < taskCount; j++) {
-                double t1 = parseDoubleSafe(tasks[minIdx][COL_EST_TIME], Double.MAX_VALUE);
-                double t2 = parseDoubleSafe(tasks[j][COL_EST_TIME], Double.MAX_VALUE);
-                if (t2 < t1) {
-                    minIdx = j;
-                }
-            }
-            swapRows(i, minIdx);
-        }
+        // tasks keep their IDs; only the display order changes
+        showRows(scanner, order);
     }
 
     // 6) Edit
     private static void editTask(Scanner scanner) {
-        if (taskCount == 0) {
+        if (taskCount() == 0) {
             System.out.println("No tasks to edit.");
             return;
         }
 
-        int index = safeInt(scanner, "Task number to edit: ") - 1;
-        if (!validIndex(index)) {
-            System.out.println("Invalid task number.");
+        long id = safeLong(scanner, "Task ID to edit: ");
+        Task task = store.get(id);
+        if (task == null) {
+            System.out.println("No task with that ID.");
             return;
         }
 
-        System.out.println("\nEditing task #" + (index + 1));
-        printOne(index);
+        System.out.println("\nEditing task #" + id);
+        printOne(task);
 
         System.out.println("\nFields:");
         System.out.println("1. Name");
@@ -370,41 +666,42 @@ public class TaskManager {
         System.out.println("9. Status");
         int field = safeInt(scanner, "Select field: ");
 
+        TaskUpdate update = new TaskUpdate();
         switch (field) {
             case 1:
                 System.out.print("New name: ");
-                tasks[index][COL_NAME] = scanner.nextLine();
+                update.name(scanner.nextLine());
                 break;
             case 2:
                 System.out.print("New description: ");
-                tasks[index][COL_DESC] = scanner.nextLine();
+                update.description(scanner.nextLine());
                 break;
             case 3:
                 System.out.print("New category: ");
-                tasks[index][COL_CATEGORY] = scanner.nextLine();
+                update.category(scanner.nextLine());
                 break;
             case 4: {
                 LocalDate newDue = safeDate(scanner, "New due date (yyyy-MM-dd): ");
-                tasks[index][COL_DUE] = newDue.format(DATE_FMT);
+                update.dueDay((int) newDue.toEpochDay());
                 break;
             }
             case 5: {
                 int p = safeIntRange(scanner, "New priority (1-5): ", 1, 5);
-                tasks[index][COL_PRIORITY] = String.valueOf(p);
+                update.priority(p);
                 break;
             }
             case 6: {
                 double t = safeDouble(scanner, "New estimated time (hours): ");
-                tasks[index][COL_EST_TIME] = String.valueOf(t);
+                update.hours(t);
                 break;
             }
             case 7:
                 System.out.print("New tags: ");
-                tasks[index][COL_TAGS] = scanner.nextLine();
+                update.tags(scanner.nextLine());
                 break;
             case 8:
                 System.out.print("New assigned to: ");
-                tasks[index][COL_ASSIGNED] = scanner.nextLine();
+                update.assignedTo(scanner.nextLine());
                 break;
             case 9:
                 System.out.print("New status (Pending/Done): ");
@@ -413,176 +710,195 @@ public class TaskManager {
                     System.out.println("Invalid status.");
                     return;
                 }
-                tasks[index][COL_STATUS] = capitalize(s);
+                update.status(TaskTable.parseStatus(s));
                 break;
             default:
                 System.out.println("Invalid field.");
                 return;
         }
+        if (!store.update(id, update)) {
+            System.out.println("No task with that ID.");
+            return;
+        }
 
         System.out.println("Task updated!");
     }
 
     // 7) Delete
     private static void deleteTask(Scanner scanner) {
-        if (taskCount == 0) {
+        if (taskCount() == 0) {
             System.out.println("No tasks to delete.");
             return;
         }
 
-        int index = safeInt(scanner, "Task number to delete: ") - 1;
-        if (!validIndex(index)) {
-            System.out.println("Invalid task number.");
+        long id = safeLong(scanner, "Task ID to delete: ");
+        if (!store.delete(id)) {
+            System.out.println("No task with that ID.");
             return;
         }
 
-        for (int i = index; i < taskCount - 1; i++) {
-            tasks[i] = tasks[i + 1];
-        }
-        tasks[taskCount - 1] = new String[COLS];
-        taskCount--;
-
         System.out.println("Task deleted!");
     }
 
     // 8) Save / Load
     private static void saveToFile() {
-        try (FileWriter writer = new FileWriter(FILE_NAME)) {
-            writer.write(taskCount + " " + tasks.length + "\n");
-
-            for (int i = 0; i < taskCount; i++) {
-                for (int c = 0; c < COLS; c++) {
-                    writer.write(escape(tasks[i][c]));
-                    if (c < COLS - 1) writer.write("\t");
-                }
-                writer.write("\n");
+        if (autoSaver != null) {
+            // the menu stays responsive; the file is replaced when the write is complete
+            autoSaver.saveSoon(true);
+            System.out.println("Saving to " + dataFile + " in the background");
+            String error = autoSaver.lastError();
+            if (error != null) System.out.println("The last save failed: " + error);
+            return;
+        }
+        try {
+            store.save();
+            if (store.journaling()) {
+                // every change is already in the log, save only makes sure it is on disk
+                System.out.println("Journal synced (" + dataFile + ", generation " + store.journalGeneration() + ")");
+            } else {
+                System.out.println("Data saved to " + dataFile);
             }
-
-            System.out.println("Data saved to " + FILE_NAME);
         } catch (IOException e) {
             System.out.println("Error saving file: " + e.getMessage());
         }
     }
 
+    private static void startAutoSave() {
+        if (store.journaling()) return;
+        autoSaver = new TaskAutoSaver(store, AUTOSAVE_SECONDS);
+    }
+
+    // waits for a background save in progress, then saves what is left
+    private static void closeStore() {
+        if (autoSaver == null) {
+            saveToFile();
+        } else {
+            try {
+                autoSaver.close();
+                System.out.println("Data saved to " + dataFile);
+            } catch (IOException e) {
+                System.out.println("Error saving file: " + e.getMessage());
+            }
+        }
+        store.close();
+    }
+
     private static boolean loadFromFile() {
+        Path file = dataFile;
+        if (!Files.exists(file) && TaskFormat.of(file) != TaskFormat.TEXT
+                && Files.exists(Path.of(FILE_NAME))) {
+            // first run in another format: import the existing TSV, the next save writes the new file
+            file = Path.of(FILE_NAME);
+            System.out.println(dataFile + " not found, importing " + file);
+        }
+        if (!Files.exists(file)) return false;
+
         try {
-            File file = new File(FILE_NAME);
-            if (!file.exists()) return false;
-
-            Scanner scanner = new Scanner(file);
-            int loadedCount = scanner.nextInt();
-            int capacity = scanner.nextInt();
-            scanner.nextLine();
-
-            if (capacity <= 0) capacity = 50;
-            tasks = new String[capacity][COLS];
-            taskCount = 0;
-
-            for (int i = 0; i < loadedCount; i++) {
-                if (!scanner.hasNextLine()) break;
-                String line = scanner.nextLine();
-                String[] parts = line.split("\t", -1);
-                if (parts.length != COLS) continue;
-
-                for (int c = 0; c < COLS; c++) {
-                    tasks[taskCount][c] = unescape(parts[c]);
-                }
-                taskCount++;
+            TaskFileLoader.Result loaded = lazy && file.equals(dataFile)
+                    ? TaskFormat.loadLazy(file) : TaskFormat.of(file).load(file);
+            for (String error : loaded.errors) {
+                System.out.println("Skipped " + error);
             }
-
-            scanner.close();
-            System.out.println("Data loaded from " + FILE_NAME + " (tasks: " + taskCount + ")");
+            store = new TaskStore(loaded.table, dataFile, loaded.generation);
+            System.out.println("Data loaded from " + file + " (tasks: " + store.size() + ")");
             return true;
-        } catch (Exception e) {
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading " + file + ": " + e.getMessage());
             return false;
         }
     }
 
-    // ===== Helpers =====
-
-    private static void printTableHeader() {
-        printLine();
-        System.out.printf("%-4s %-12s %-18s %-5s %-10s %-10s %-12s %-12s %-7s %-14s %-12s%n",
-                "No", "Name", "Description", "Pr", "Status", "Category",
-                "Due", "Created", "Hours", "Tags", "Assigned");
-        printLine();
+    private static void convert(Path from, Path to) {
+        try {
+            int n = TaskFormat.convert(from, to);
+            System.out.println("Converted " + from + " -> " + to + " (tasks: " + n + ")");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error converting " + from + ": " + e.getMessage());
+        }
     }
 
-    private static void printTableRow(int i) {
-        System.out.printf("%-4d %-12s %-18s %-5s %-10s %-10s %-12s %-12s %-7s %-14s %-12s%n",
-                (i + 1),
-                cut(safeStr(tasks[i][COL_NAME]), 12),
-                cut(safeStr(tasks[i][COL_DESC]), 18),
-                safeStr(tasks[i][COL_PRIORITY]),
-                cut(safeStr(tasks[i][COL_STATUS]), 10),
-                cut(safeStr(tasks[i][COL_CATEGORY]), 10),
-                safeStr(tasks[i][COL_DUE]),
-                safeStr(tasks[i][COL_CREATED]),
-                cut(safeStr(tasks[i][COL_EST_TIME]), 7),
-                cut(safeStr(tasks[i][COL_TAGS]), 14),
-                cut(safeStr(tasks[i][COL_ASSIGNED]), 12)
-        );
+    private static void scan(Path file, String query) {
+        TaskFormat format = TaskFormat.of(file);
+        if (format != TaskFormat.BLOCKS && format != TaskFormat.SHARDED) {
+            System.out.println("--scan reads block files (.blk) and shard manifests (.shards); convert with --convert "
+                    + file + " tasks-data.blk");
+            return;
+        }
+        try {
+            TaskTable table;
+            int[] rows;
+            String read;
+            if (format == TaskFormat.BLOCKS) {
+                TaskBlockFile.Scan found = TaskBlockFile.scan(file, TaskQuery.parse(query));
+                table = found.table;
+                rows = found.rows;
+                read = found.blocksRead + " of " + found.blocks + " blocks (" + bytes(found.bytesRead) + ")";
+            } else {
+                TaskShards.Scan found = TaskShards.scan(file, TaskQuery.parse(query));
+                table = found.table;
+                rows = found.rows;
+                read = found.shardsRead + " of " + found.shards + " shards (" + bytes(found.bytesRead) + ")";
+            }
+            List<Task> tasks = new ArrayList<>(rows.length);
+            for (int row : rows) tasks.add(Task.of(table, row));
+            if (!tasks.isEmpty()) renderer.page(tasks);
+            System.out.println(tasks.size() + " match(es), read " + read);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Error reading " + file + ": " + e.getMessage());
+        }
     }
 
-    private static void printLine() {
-        System.out.println("------------------------------------------------------------------------------------------------------------");
+    private static void openJournal(boolean journalMode) {
+        try {
+            store.openJournal(journalMode);
+            if (journalMode) {
+                System.out.println("Journal mode on (generation " + store.journalGeneration() + ")");
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e.getMessage());
+        }
     }
 
-    private static String cut(String s, int max) {
-        if (s == null) return "";
-        s = s.trim();
-        if (s.length() <= max) return s;
-        return s.substring(0, max - 1) + ".";
-    }
+    // ===== Helpers =====
 
-    private static void printOne(int i) {
+    private static void printOne(Task task) {
         System.out.println("--------------------------------------------------");
-        System.out.println("Task #" + (i + 1));
-        System.out.println("Name: " + safeStr(tasks[i][COL_NAME]));
-        System.out.println("Description: " + safeStr(tasks[i][COL_DESC]));
-        System.out.println("Priority: " + safeStr(tasks[i][COL_PRIORITY]));
-        System.out.println("Status: " + safeStr(tasks[i][COL_STATUS]));
-        System.out.println("Category: " + safeStr(tasks[i][COL_CATEGORY]));
-        System.out.println("Due Date: " + safeStr(tasks[i][COL_DUE]));
-        System.out.println("Creation Date: " + safeStr(tasks[i][COL_CREATED]));
-        System.out.println("Estimated Time: " + safeStr(tasks[i][COL_EST_TIME]) + " h");
-        System.out.println("Tags: " + safeStr(tasks[i][COL_TAGS]));
-        System.out.println("Assigned To: " + safeStr(tasks[i][COL_ASSIGNED]));
+        System.out.println("Task #" + task.getId());
+        System.out.println("Name: " + safeStr(task.getName()));
+        System.out.println("Description: " + safeStr(task.getDescription()));
+        System.out.println("Priority: " + task.getPriority());
+        System.out.println("Status: " + safeStr(task.getStatus()));
+        System.out.println("Category: " + safeStr(task.getCategory()));
+        System.out.println("Due Date: " + formatDate(task.getDueDate()));
+        System.out.println("Creation Date: " + formatDate(task.getCeationDate()));
+        System.out.println("Estimated Time: " + task.getEstimatedTime() + " h");
+        System.out.println("Tags: " + safeStr(task.getTags()));
+        System.out.println("Assigned To: " + safeStr(task.getAssignedTo()));
         System.out.println("--------------------------------------------------");
     }
 
-    private static boolean validIndex(int idx) {
-        return idx >= 0 && idx < taskCount;
+    private static int taskCount() {
+        return store.size();
     }
 
-    private static void ensureCapacity() {
-        if (tasks == null) {
-            tasks = new String[50][COLS];
-            return;
-        }
-        if (taskCount < tasks.length) return;
-
-        int newCap = tasks.length + 20;
-        String[][] newArr = new String[newCap][COLS];
-        for (int i = 0; i < tasks.length; i++) {
-            newArr[i] = tasks[i];
+    private static int safeInt(Scanner scanner, String message) {
+        while (true) {
+            try {
+                System.out.print(message);
+                return Integer.parseInt(scanner.nextLine().trim());
+            } catch (Exception e) {
+                System.out.println("Invalid number. Try again.");
+            }
         }
-        tasks = newArr;
-        System.out.println("Capacity increased to: " + newCap);
-    }
-
-    private static void swapRows(int i, int j) {
-        if (i == j) return;
-        String[] tmp = tasks[i];
-        tasks[i] = tasks[j];
-        tasks[j] = tmp;
     }
 
-    private static int safeInt(Scanner scanner, String message) {
+    private static long safeLong(Scanner scanner, String message) {
         while (true) {
             try {
                 System.out.print(message);
-                return Integer.parseInt(scanner.nextLine().trim());
+                return Long.parseLong(scanner.nextLine().trim());
             } catch (Exception e) {
                 System.out.println("Invalid number. Try again.");
             }
@@ -620,47 +936,11 @@ public class TaskManager {
         }
     }
 
-    private static LocalDate parseDateSafe(String s) {
-        try {
-            return LocalDate.parse(s, DATE_FMT);
-        } catch (Exception e) {
-            return LocalDate.of(9999, 12, 31);
-        }
-    }
-
-    private static int parseIntSafe(String s, int def) {
-        try { return Integer.parseInt(s); }
-        catch (Exception e) { return def; }
-    }
-
-    private static double parseDoubleSafe(String s, double def) {
-        try { return Double.parseDouble(s); }
-        catch (Exception e) { return def; }
+    private static String formatDate(LocalDate date) {
+        return date == null ? "" : date.format(DATE_FMT);
     }
 
     private static String safeStr(String s) {
         return (s == null) ? "" : s;
     }
-
-    private static String escape(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace("\t", "\\t")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r");
-    }
-
-    private static String unescape(String s) {
-        if (s == null) return "";
-        return s.replace("\\t", "\t")
-                .replace("\\n", "\n")
-                .replace("\\r", "\r")
-                .replace("\\\\", "\\");
-    }
-
-    private static String capitalize(String s) {
-        if (s == null || s.isEmpty()) return s;
-        String lower = s.toLowerCase();
-        return Character.toUpperCase(lower.charAt(0)) + lower.substring(1);
-    }
 }
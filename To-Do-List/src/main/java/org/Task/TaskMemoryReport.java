@@ -0,0 +1,100 @@
+package org.Task;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Heap used by a loaded task list, with the category, tags and assignee columns dictionary
+// coded (as TaskTable stores them) and with one String per row in those columns (as the
+// loader used to produce them).
+//
+//   java org.Task.TaskMemoryReport [tasks] [seed]      (default 1,000,000 tasks, seed 42)
+//
+// The data is generated, saved to a temp file and loaded back through TaskFileLoader, so the
+// strings are fresh per row like in a real load. Run with a heap big enough for both layouts.
+// The last lines copy the table into a TaskOffHeapTable for comparison, and load it back as
+// a mapped file (TaskFormat.MAPPED), which the table reads in place.
+public class TaskMemoryReport {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        Path file = Files.createTempFile("todo-memory", ".txt");
+        Path mapped = file.resolveSibling(file.getFileName() + ".map");
+        try {
+            TaskFormat.of(file).save(TaskDataGenerator.generate(size, seed), file, 0);
+            long fileBytes = Files.size(file);
+
+            long empty = usedHeap();
+            TaskTable table = TaskFileLoader.load(file).table;
+            long encoded = usedHeap() - empty;
+
+            // the old layout: the same three columns, one decoded String per row
+            String[][] perRow = new String[3][table.slots()];
+            for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+                perRow[0][row] = fresh(table.category(row));
+                perRow[1][row] = fresh(table.tags(row));
+                perRow[2][row] = fresh(table.assignedTo(row));
+            }
+            long withStrings = usedHeap() - empty;
+            // the reference arrays took the place of the code arrays, only the strings are extra
+            long strings = withStrings - encoded - 3L * (16 + 4L * table.slots());
+            long before = encoded + strings;
+
+            System.out.printf("Tasks:                         %,d (data file %s)%n", table.size(), mb(fileBytes));
+            System.out.printf("Heap, one String per row:      %s (estimated: coded table + strings)%n", mb(before));
+            System.out.printf("Heap, dictionary coded:        %s%n", mb(encoded));
+            System.out.printf("Saved:                         %s (%.0f%%), %.1f bytes per task%n",
+                    mb(strings), 100.0 * strings / Math.max(1, before), (double) strings / Math.max(1, table.size()));
+            System.out.println("Distinct values:");
+            report("category", table.dictionary(TaskTable.COL_CATEGORY));
+            report("tags", table.dictionary(TaskTable.COL_TAGS));
+            report("assignedTo", table.dictionary(TaskTable.COL_ASSIGNED));
+            // keep both layouts reachable until everything was measured
+            if (perRow[0].length != table.slots()) throw new IllegalStateException();
+
+            // the same tasks outside the heap: what is left on the heap is a few objects
+            long heapBefore = usedHeap();
+            try (TaskOffHeapTable offHeap = TaskOffHeapTable.copyOf(table, null, 0)) {
+                System.out.printf("Off-heap (TaskOffHeapTable):   %s native memory, %s heap%n",
+                        mb(offHeap.nativeBytes()), mb(Math.max(0, usedHeap() - heapBefore)));
+            }
+
+            // left on the heap: the segment directory, the id index and the coded values
+            TaskFormat.MAPPED.save(table, mapped, 0);
+            heapBefore = usedHeap();
+            TaskTable inPlace = TaskFormat.MAPPED.load(mapped).table;
+            System.out.printf("Mapped (TaskFormat.MAPPED):    %s file, %s heap%n",
+                    mb(Files.size(mapped)), mb(Math.max(0, usedHeap() - heapBefore)));
+            if (inPlace.size() != table.size()) throw new IllegalStateException();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(mapped);
+        }
+    }
+
+    private static void report(String column, TaskDictionary d) {
+        // code 0 is null, not a value
+        System.out.printf("  %-12s %,9d values, %,9d case-insensitive keys%n", column, d.size() - 1, d.keyCount());
+    }
+
+    // what the loader's decode() produced: a new String with its own bytes, "" shared
+    private static String fresh(String s) {
+        if (s == null || s.isEmpty()) return s;
+        return new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%,.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
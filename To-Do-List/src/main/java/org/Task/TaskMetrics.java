@@ -0,0 +1,260 @@
+package org.Task;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms for every store operation, plus the same operations as
+// custom JFR events. Always on: recording is a nanoTime pair and a few LongAdder increments,
+// and the events cost nothing unless a recording enables them, e.g.
+//
+//   java -XX:StartFlightRecording:filename=todo.jfr,settings=profile org.Task.TaskManager
+//   jfr print --events org.Task.Operation todo.jfr
+//
+// Usage: OperationEvent e = TaskMetrics.start(); ...; TaskMetrics.end(e, Op.FILTER, scanned, returned, 0);
+// snapshot() reads everything for the menu and GET /stats.
+public final class TaskMetrics {
+
+    public enum Op { ADD, EDIT, DELETE, FILTER, SORT, SEARCH, SAVE, LOAD, BATCH }
+
+    // bucket b counts latencies in [2^(b+9), 2^(b+10)) ns, bucket 0 everything under ~1 us;
+    // the last one is open ended (over ~9 minutes)
+    private static final int BUCKETS = 40;
+
+    private static final Counters[] COUNTERS = new Counters[Op.values().length];
+    private static final LongAdder PARSE_ERRORS = new LongAdder();
+    private static final LongAdder BYTES_READ = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final long STARTED = System.currentTimeMillis();
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) COUNTERS[i] = new Counters();
+    }
+
+    private TaskMetrics() {
+    }
+
+    private static final class Counters {
+        final LongAdder failed = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+        final LongAdder scanned = new LongAdder();
+        final LongAdder returned = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder[] buckets = new LongAdder[BUCKETS];    // the call count is their sum
+
+        Counters() {
+            for (int b = 0; b < BUCKETS; b++) buckets[b] = new LongAdder();
+        }
+
+        void time(long took) {
+            nanos.add(took);
+            buckets[bucket(took)].increment();
+            // racing writers only ever raise it
+            long m = max.get();
+            while (took > m && !max.compareAndSet(m, took)) m = max.get();
+        }
+    }
+
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos >>> 10));
+    }
+
+    // upper end of a bucket, in ns
+    private static long bucketLimit(int b) {
+        return 1L << (b + 10);
+    }
+
+    // ===== JFR events =====
+
+    @Name("org.Task.Operation")
+    @Label("Task Operation")
+    @Category("To-Do List")
+    @Description("One task store operation: add, edit, delete, filter, sort, search, save, load or batch")
+    @StackTrace(false)
+    public static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Rows Scanned")
+        @Description("Rows the operation looked at")
+        long scanned;
+
+        @Label("Rows Returned")
+        long returned;
+
+        @Label("Bytes")
+        @Description("Bytes read (load) or written (save)")
+        @DataAmount
+        long bytes;
+
+        @Label("Failed")
+        boolean failed;
+
+        // not recorded, the histograms' clock
+        transient long started;
+    }
+
+    @Name("org.Task.ParseError")
+    @Label("Task Parse Error")
+    @Category("To-Do List")
+    @Description("A line of a data file or journal that could not be read and was skipped")
+    @StackTrace(false)
+    public static final class ParseErrorEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Line")
+        long line;
+
+        @Label("Reason")
+        String reason;
+    }
+
+    // ===== Recording =====
+
+    // the event doubles as the timer; while JFR is off it never leaves start()/end() and
+    // the JIT drops the allocation
+    public static OperationEvent start() {
+        OperationEvent e = new OperationEvent();
+        e.begin();
+        e.started = System.nanoTime();
+        return e;
+    }
+
+    public static void end(OperationEvent e, Op op, long scanned, long returned, long bytes) {
+        long took = System.nanoTime() - e.started;
+        Counters c = COUNTERS[op.ordinal()];
+        c.time(took);
+        c.scanned.add(scanned);
+        c.returned.add(returned);
+        if (bytes > 0) {
+            c.bytes.add(bytes);
+            (op == Op.LOAD ? BYTES_READ : BYTES_WRITTEN).add(bytes);
+        }
+        commit(e, op, scanned, returned, bytes, false);
+    }
+
+    // the operation threw; it counts towards the latencies like any other
+    public static void failed(OperationEvent e, Op op) {
+        long took = System.nanoTime() - e.started;
+        Counters c = COUNTERS[op.ordinal()];
+        c.time(took);
+        c.failed.increment();
+        commit(e, op, 0, 0, 0, true);
+    }
+
+    private static void commit(OperationEvent e, Op op, long scanned, long returned, long bytes, boolean failed) {
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.operation = name(op);
+        e.scanned = scanned;
+        e.returned = returned;
+        e.bytes = bytes;
+        e.failed = failed;
+        e.commit();
+    }
+
+    // bytes written outside a timed operation (journal records)
+    public static void wrote(long bytes) {
+        BYTES_WRITTEN.add(bytes);
+    }
+
+    // a skipped line; line numbers are 1-based
+    public static void parseError(Path file, long line, String reason) {
+        PARSE_ERRORS.increment();
+        ParseErrorEvent e = new ParseErrorEvent();
+        if (!e.shouldCommit()) return;
+        e.file = String.valueOf(file);
+        e.line = line;
+        e.reason = reason;
+        e.commit();
+    }
+
+    static String name(Op op) {
+        return op.name().toLowerCase(Locale.ROOT);
+    }
+
+    // ===== Reading =====
+
+    public static final class Timing {
+        public final String operation;
+        public final long count;
+        public final long failed;
+        public final long totalNanos;
+        public final long p50Nanos;
+        public final long p90Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+        public final long scanned;
+        public final long returned;
+        public final long bytes;
+
+        Timing(Op op, Counters c) {
+            operation = name(op);
+            long[] hist = new long[BUCKETS];
+            long n = 0;
+            for (int b = 0; b < BUCKETS; b++) n += hist[b] = c.buckets[b].sum();
+            count = n;
+            failed = c.failed.sum();
+            totalNanos = c.nanos.sum();
+            maxNanos = c.max.get();
+            p50Nanos = percentile(hist, n, 0.50, maxNanos);
+            p90Nanos = percentile(hist, n, 0.90, maxNanos);
+            p99Nanos = percentile(hist, n, 0.99, maxNanos);
+            scanned = c.scanned.sum();
+            returned = c.returned.sum();
+            bytes = c.bytes.sum();
+        }
+
+        public long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        // upper end of the bucket holding the q-th call, so at most 2x too high, never above max
+        private static long percentile(long[] hist, long n, double q, long max) {
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += hist[b];
+                if (seen >= rank) return Math.min(bucketLimit(b), max);
+            }
+            return max;
+        }
+    }
+
+    public static final class Snapshot {
+        public final List<Timing> operations;
+        public final long parseErrors;
+        public final long bytesRead;
+        public final long bytesWritten;
+        public final long sinceMillis;
+
+        Snapshot(List<Timing> operations) {
+            this.operations = operations;
+            parseErrors = PARSE_ERRORS.sum();
+            bytesRead = BYTES_READ.sum();
+            bytesWritten = BYTES_WRITTEN.sum();
+            sinceMillis = STARTED;
+        }
+    }
+
+    // weakly consistent with operations running at the same time
+    public static Snapshot snapshot() {
+        List<Timing> out = new ArrayList<>(COUNTERS.length);
+        for (Op op : Op.values()) out.add(new Timing(op, COUNTERS[op.ordinal()]));
+        return new Snapshot(out);
+    }
+}
@@ -0,0 +1,497 @@
+package org.Task;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Task storage outside the Java heap (Foreign Function & Memory API): one fixed-width record
+// per task and a string arena with the UTF-8 bytes of the text fields, both in a single
+// MemorySegment. The GC sees a handful of objects however many tasks there are.
+//
+// The segment is either native memory (allocate) or a mapped file (create/open). A file is
+// the segment's image, so open() maps it and the tasks are readable at once, with nothing
+// parsed or copied onto the heap; the OS pages records in as they are touched. As a data
+// file (TaskFormat.MAPPED) it is mapped read-only and the store's TaskTable reads its rows
+// from here until it writes to them (TaskTable.mapped()).
+//
+//   header   64 bytes, little endian: magic "TDOH", int version, long slots, long live,
+//            long recordCapacity, long arenaUsed, long arenaCapacity, long generation, long nextId
+//   records  recordCapacity x RECORD (96 bytes, laid out below)
+//   arena    arenaCapacity bytes; text fields point into it (offset, length; length -1 = null)
+//
+// Strings are never overwritten: setText() appends the new bytes and leaves the old ones as
+// garbage until the table is copied (copyOf). Repeated category, tags and assignee
+// values written by one instance share their bytes. Deleted rows stay as tombstones.
+// Growing moves everything to a bigger segment (a new file renamed over the old one).
+//
+// Not thread-safe, like TaskTable: reads may run in parallel, writes need the caller's lock.
+// Memory is freed by close(); a read after close() throws instead of touching freed memory.
+// A read-only mapping (map()) is unmapped once nothing refers to it, so close() leaves it.
+public class TaskOffHeapTable implements AutoCloseable {
+
+    static final int MAGIC = 0x484F4454;   // "TDOH" read as little endian
+    static final int VERSION = 1;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    // the five text columns, in this order, in the text arrays of a record
+    private static final int[] TEXT_COLS = {TaskTable.COL_NAME, TaskTable.COL_DESC,
+            TaskTable.COL_CATEGORY, TaskTable.COL_TAGS, TaskTable.COL_ASSIGNED};
+    private static final int TEXTS = TEXT_COLS.length;
+
+    static final StructLayout HEADER = MemoryLayout.structLayout(
+            INT.withName("magic"),
+            INT.withName("version"),
+            LONG.withName("slots"),
+            LONG.withName("live"),
+            LONG.withName("recordCapacity"),
+            LONG.withName("arenaUsed"),
+            LONG.withName("arenaCapacity"),
+            LONG.withName("generation"),
+            LONG.withName("nextId"));
+
+    static final StructLayout RECORD = MemoryLayout.structLayout(
+            LONG.withName("id"),
+            DOUBLE.withName("hours"),
+            MemoryLayout.sequenceLayout(TEXTS, LONG).withName("textOffset"),
+            MemoryLayout.sequenceLayout(TEXTS, INT).withName("textLength"),
+            INT.withName("due"),
+            INT.withName("created"),
+            INT.withName("priority"),
+            BYTE.withName("status"),
+            BYTE.withName("flags"),
+            MemoryLayout.paddingLayout(6));
+
+    private static final long HEADER_BYTES = HEADER.byteSize();
+    private static final long RECORD_BYTES = RECORD.byteSize();
+    private static final byte LIVE = 1;
+    // first guess of string bytes per task, before the arena has to grow
+    private static final int AVERAGE_TEXT_BYTES = 64;
+
+    // record fields, addressed as (segment, records base, row[, text index])
+    private static final VarHandle ID = field(PathElement.groupElement("id"));
+    private static final VarHandle HOURS = field(PathElement.groupElement("hours"));
+    private static final VarHandle TEXT_OFFSET = field(PathElement.groupElement("textOffset"), PathElement.sequenceElement());
+    private static final VarHandle TEXT_LENGTH = field(PathElement.groupElement("textLength"), PathElement.sequenceElement());
+    private static final VarHandle DUE = field(PathElement.groupElement("due"));
+    private static final VarHandle CREATED = field(PathElement.groupElement("created"));
+    private static final VarHandle PRIORITY = field(PathElement.groupElement("priority"));
+    private static final VarHandle STATUS = field(PathElement.groupElement("status"));
+    private static final VarHandle FLAGS = field(PathElement.groupElement("flags"));
+
+    private static VarHandle field(PathElement... path) {
+        return RECORD.arrayElementVarHandle(path);
+    }
+
+    private static long header(String name) {
+        return HEADER.byteOffset(PathElement.groupElement(name));
+    }
+
+    private static final long H_SLOTS = header("slots");
+    private static final long H_LIVE = header("live");
+    private static final long H_RECORD_CAPACITY = header("recordCapacity");
+    private static final long H_ARENA_USED = header("arenaUsed");
+    private static final long H_ARENA_CAPACITY = header("arenaCapacity");
+    private static final long H_GENERATION = header("generation");
+    private static final long H_NEXT_ID = header("nextId");
+
+    private final Path file;            // null: native memory only
+    private final boolean readOnly;     // map(): automatic arena, no writes
+    private Arena arena;
+    private MemorySegment segment;
+    private long arenaBase;             // where the string arena starts in segment
+    // values of the repetitive columns written by this instance -> their arena offset
+    private final Map<String, Long> shared = new HashMap<>();
+
+    private TaskOffHeapTable(Path file, Arena arena, MemorySegment segment) {
+        this.file = file;
+        this.readOnly = segment.isReadOnly();
+        this.arena = arena;
+        this.segment = segment;
+        this.arenaBase = HEADER_BYTES + recordCapacity() * RECORD_BYTES;
+    }
+
+    // ===== Opening =====
+
+    // native memory for about capacity tasks (it grows past that)
+    public static TaskOffHeapTable allocate(int capacity) {
+        long records = Math.max(16, capacity);
+        return allocate(records, records * AVERAGE_TEXT_BYTES);
+    }
+
+    private static TaskOffHeapTable allocate(long records, long strings) {
+        Arena arena = Arena.ofShared();
+        MemorySegment s = arena.allocate(HEADER_BYTES + records * RECORD_BYTES + strings, 8);
+        init(s, records, strings);
+        return new TaskOffHeapTable(null, arena, s);
+    }
+
+    // a new, empty file-backed table (an existing file is replaced)
+    public static TaskOffHeapTable create(Path file, int capacity) throws IOException {
+        long records = Math.max(16, capacity);
+        return create(file, records, records * AVERAGE_TEXT_BYTES);
+    }
+
+    private static TaskOffHeapTable create(Path file, long records, long strings) throws IOException {
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment s = map(file, arena, HEADER_BYTES + records * RECORD_BYTES + strings, true);
+            init(s, records, strings);
+            return new TaskOffHeapTable(file, arena, s);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    // maps an existing file; only the header is checked, nothing is read
+    public static TaskOffHeapTable open(Path file) throws IOException {
+        return open(file, Arena.ofShared(), false);
+    }
+
+    // Read-only, in an automatic arena: the mapping lives as long as this object is
+    // reachable, so a TaskTable and its copies can share it without anyone closing it.
+    static TaskOffHeapTable map(Path file) throws IOException {
+        return open(file, Arena.ofAuto(), true);
+    }
+
+    private static TaskOffHeapTable open(Path file, Arena arena, boolean readOnly) throws IOException {
+        try {
+            long size = Files.size(file);
+            if (size < HEADER_BYTES) throw new IOException("not an off-heap task file: " + file);
+            MemorySegment s = readOnly ? mapReadOnly(file, arena, size) : map(file, arena, size, false);
+            if (s.get(INT, header("magic")) != MAGIC) throw new IOException("not an off-heap task file: " + file);
+            int version = s.get(INT, header("version"));
+            if (version != VERSION) throw new IOException("unsupported off-heap version " + version);
+            long records = s.get(LONG, H_RECORD_CAPACITY);
+            long strings = s.get(LONG, H_ARENA_CAPACITY);
+            if (records < 0 || strings < 0 || HEADER_BYTES + records * RECORD_BYTES + strings != size
+                    || s.get(LONG, H_SLOTS) > records || s.get(LONG, H_ARENA_USED) > strings) {
+                throw new IOException("damaged off-heap task file: " + file);
+            }
+            return new TaskOffHeapTable(file, arena, s);
+        } catch (IOException | RuntimeException e) {
+            if (!readOnly) arena.close();
+            throw e;
+        }
+    }
+
+    private static MemorySegment mapReadOnly(Path file, Arena arena, long size) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+        }
+    }
+
+    private static MemorySegment map(Path file, Arena arena, long size, boolean fresh) throws IOException {
+        try (FileChannel ch = fresh
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping outlives the channel; it belongs to the arena
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+        }
+    }
+
+    private static void init(MemorySegment s, long records, long strings) {
+        s.asSlice(0, HEADER_BYTES).fill((byte) 0);
+        s.set(INT, header("magic"), MAGIC);
+        s.set(INT, header("version"), VERSION);
+        s.set(LONG, H_RECORD_CAPACITY, records);
+        s.set(LONG, H_ARENA_CAPACITY, strings);
+        s.set(LONG, H_NEXT_ID, 1);
+    }
+
+    // ===== Conversion =====
+
+    // live rows of a heap table, compacted; file null = native memory.
+    // Sized exactly, so a saved file has no slack.
+    public static TaskOffHeapTable copyOf(TaskTable table, Path file, long generation) throws IOException {
+        int n = table.size();
+        long strings = 0;
+        Set<String> distinct = new HashSet<>();
+        for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+            strings += utf8Length(table.name(row)) + utf8Length(table.description(row));
+            if (distinct.add(table.category(row))) strings += utf8Length(table.category(row));
+            if (distinct.add(table.tags(row))) strings += utf8Length(table.tags(row));
+            if (distinct.add(table.assignedTo(row))) strings += utf8Length(table.assignedTo(row));
+        }
+        TaskOffHeapTable t = file == null ? allocate(n, strings) : create(file, n, strings);
+        try {
+            for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+                t.addWithId(table.id(row), table.name(row), table.description(row), table.priority(row),
+                        table.status(row), table.category(row), table.dueDay(row), table.createdDay(row),
+                        table.hours(row), table.tags(row), table.assignedTo(row));
+            }
+            t.segment.set(LONG, H_NEXT_ID, Math.max(t.nextId(), table.nextId()));
+            t.segment.set(LONG, H_GENERATION, generation);
+            return t;
+        } catch (IOException | RuntimeException e) {
+            t.close();
+            throw e;
+        }
+    }
+
+    private static int utf8Length(String s) {
+        return s == null ? 0 : TaskBinaryFile.utf8Length(s);
+    }
+
+    // ===== Reads =====
+
+    public int slots() {
+        return (int) segment.get(LONG, H_SLOTS);
+    }
+
+    public int size() {
+        return (int) segment.get(LONG, H_LIVE);
+    }
+
+    public long generation() {
+        return segment.get(LONG, H_GENERATION);
+    }
+
+    public long nextId() {
+        return segment.get(LONG, H_NEXT_ID);
+    }
+
+    private long recordCapacity() {
+        return segment.get(LONG, H_RECORD_CAPACITY);
+    }
+
+    // bytes of native memory (or file) in use, garbage strings included
+    public long nativeBytes() {
+        return segment.byteSize();
+    }
+
+    public boolean isLive(int row) {
+        return ((byte) FLAGS.get(segment, HEADER_BYTES, (long) row) & LIVE) != 0;
+    }
+
+    // liveness of rows 64 * w .. 64 * w + 63 as one bit each, like TaskTable's live words
+    long liveWord(int w) {
+        int from = w << 6;
+        int n = Math.min(64, slots() - from);
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLive(from + i)) bits |= 1L << i;
+        }
+        return bits;
+    }
+
+    public long id(int row) { return (long) ID.get(segment, HEADER_BYTES, (long) row); }
+    public int priority(int row) { return (int) PRIORITY.get(segment, HEADER_BYTES, (long) row); }
+    public byte status(int row) { return (byte) STATUS.get(segment, HEADER_BYTES, (long) row); }
+    public int dueDay(int row) { return (int) DUE.get(segment, HEADER_BYTES, (long) row); }
+    public int createdDay(int row) { return (int) CREATED.get(segment, HEADER_BYTES, (long) row); }
+    public double hours(int row) { return (double) HOURS.get(segment, HEADER_BYTES, (long) row); }
+
+    public String name(int row) { return text(TaskTable.COL_NAME, row); }
+    public String description(int row) { return text(TaskTable.COL_DESC, row); }
+    public String category(int row) { return text(TaskTable.COL_CATEGORY, row); }
+    public String tags(int row) { return text(TaskTable.COL_TAGS, row); }
+    public String assignedTo(int row) { return text(TaskTable.COL_ASSIGNED, row); }
+
+    // decoded from the arena on every call; col is one of the TaskTable.COL_* text columns
+    public String text(int col, int row) {
+        long t = textIndex(col);
+        int length = (int) TEXT_LENGTH.get(segment, HEADER_BYTES, (long) row, t);
+        if (length < 0) return null;
+        if (length == 0) return "";
+        long offset = (long) TEXT_OFFSET.get(segment, HEADER_BYTES, (long) row, t);
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(segment, BYTE, arenaBase + offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // copy of one live row, null for a tombstone
+    public Task task(int row) {
+        if (!isLive(row)) return null;
+        Task task = new Task(name(row), description(row), priority(row), TaskTable.statusName(status(row)),
+                category(row), date(dueDay(row)), date(createdDay(row)), hours(row), tags(row), assignedTo(row));
+        task.setId(id(row));
+        return task;
+    }
+
+    // Equal keys mean equal values, without decoding them: 0 for null, -1 for "", otherwise
+    // the arena offset + 1 (strings are never overwritten, so an offset starts one string).
+    // Repeated values written by one instance share their bytes and so their key.
+    long textKey(int col, int row) {
+        long t = textIndex(col);
+        int length = (int) TEXT_LENGTH.get(segment, HEADER_BYTES, (long) row, t);
+        if (length <= 0) return length < 0 ? 0 : -1;
+        return (long) TEXT_OFFSET.get(segment, HEADER_BYTES, (long) row, t) + 1;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay == TaskTable.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static long textIndex(int col) {
+        for (int t = 0; t < TEXTS; t++) {
+            if (TEXT_COLS[t] == col) return t;
+        }
+        throw new IllegalArgumentException("not a text column: " + col);
+    }
+
+    // ===== Writes =====
+
+    public int add(String name, String desc, int priority, byte status, String category,
+                   int dueDay, int createdDay, double estHours, String tagList, String assignedTo) throws IOException {
+        return addWithId(nextId(), name, desc, priority, status, category, dueDay, createdDay,
+                estHours, tagList, assignedTo);
+    }
+
+    public int addWithId(long id, String name, String desc, int priority, byte status, String category,
+                         int dueDay, int createdDay, double estHours, String tagList, String assignedTo) throws IOException {
+        int row = slots();
+        if (row == recordCapacity()) grow(row + 1L, 0);
+        long r = row;
+        ID.set(segment, HEADER_BYTES, r, id);
+        HOURS.set(segment, HEADER_BYTES, r, estHours);
+        DUE.set(segment, HEADER_BYTES, r, dueDay);
+        CREATED.set(segment, HEADER_BYTES, r, createdDay);
+        PRIORITY.set(segment, HEADER_BYTES, r, priority);
+        STATUS.set(segment, HEADER_BYTES, r, status);
+        setText(row, TaskTable.COL_NAME, name);
+        setText(row, TaskTable.COL_DESC, desc);
+        setText(row, TaskTable.COL_CATEGORY, category);
+        setText(row, TaskTable.COL_TAGS, tagList);
+        setText(row, TaskTable.COL_ASSIGNED, assignedTo);
+        // the record is complete before the header counts it
+        FLAGS.set(segment, HEADER_BYTES, r, LIVE);
+        segment.set(LONG, H_SLOTS, r + 1);
+        segment.set(LONG, H_LIVE, segment.get(LONG, H_LIVE) + 1);
+        if (id >= nextId()) segment.set(LONG, H_NEXT_ID, id + 1);
+        return row;
+    }
+
+    public void setText(int row, int col, String value) throws IOException {
+        long t = textIndex(col);
+        if (value == null) {
+            TEXT_LENGTH.set(segment, HEADER_BYTES, (long) row, t, -1);
+            return;
+        }
+        boolean repetitive = col != TaskTable.COL_NAME && col != TaskTable.COL_DESC;
+        Long at = repetitive ? shared.get(value) : null;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (at == null) {
+            at = append(bytes);
+            if (repetitive) shared.put(value, at);
+        }
+        TEXT_OFFSET.set(segment, HEADER_BYTES, (long) row, t, (long) at);
+        TEXT_LENGTH.set(segment, HEADER_BYTES, (long) row, t, bytes.length);
+    }
+
+    private long append(byte[] bytes) throws IOException {
+        long used = segment.get(LONG, H_ARENA_USED);
+        if (used + bytes.length > segment.get(LONG, H_ARENA_CAPACITY)) grow(0, used + bytes.length);
+        MemorySegment.copy(bytes, 0, segment, BYTE, arenaBase + used, bytes.length);
+        segment.set(LONG, H_ARENA_USED, used + bytes.length);
+        return used;
+    }
+
+    public void setPriority(int row, int v) { PRIORITY.set(segment, HEADER_BYTES, (long) row, v); }
+    public void setStatus(int row, byte v) { STATUS.set(segment, HEADER_BYTES, (long) row, v); }
+    public void setDueDay(int row, int v) { DUE.set(segment, HEADER_BYTES, (long) row, v); }
+    public void setHours(int row, double v) { HOURS.set(segment, HEADER_BYTES, (long) row, v); }
+
+    public void delete(int row) {
+        if (!isLive(row)) return;
+        FLAGS.set(segment, HEADER_BYTES, (long) row, (byte) 0);
+        segment.set(LONG, H_LIVE, segment.get(LONG, H_LIVE) - 1);
+    }
+
+    // Moves everything to a segment with room for at least minRecords records and minArena
+    // string bytes (each at least doubled), then frees the old one.
+    private void grow(long minRecords, long minArena) throws IOException {
+        long records = recordCapacity();
+        long strings = segment.get(LONG, H_ARENA_CAPACITY);
+        long newRecords = Math.max(records, minRecords) > records ? Math.max(records * 2, minRecords) : records;
+        long newStrings = Math.max(strings, minArena) > strings ? Math.max(strings * 2, minArena) : strings;
+        long size = HEADER_BYTES + newRecords * RECORD_BYTES + newStrings;
+
+        Arena newArena = Arena.ofShared();
+        MemorySegment s;
+        Path tmp = file == null ? null : file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            s = tmp == null ? newArena.allocate(size, 8) : map(tmp, newArena, size, true);
+            MemorySegment.copy(segment, 0, s, 0, HEADER_BYTES + slots() * RECORD_BYTES);
+            long newBase = HEADER_BYTES + newRecords * RECORD_BYTES;
+            MemorySegment.copy(segment, arenaBase, s, newBase, segment.get(LONG, H_ARENA_USED));
+            s.set(LONG, H_RECORD_CAPACITY, newRecords);
+            s.set(LONG, H_ARENA_CAPACITY, newStrings);
+            if (tmp != null) {
+                s.force();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            arenaBase = newBase;
+        } catch (IOException | RuntimeException e) {
+            newArena.close();
+            throw e;
+        }
+        arena.close();
+        arena = newArena;
+        segment = s;
+    }
+
+    // ===== Lifetime =====
+
+    // file-backed: write dirty pages to disk
+    public void force() {
+        if (file != null && !readOnly) segment.force();
+    }
+
+    @Override
+    public void close() {
+        if (readOnly || !arena.scope().isAlive()) return;
+        force();
+        arena.close();
+    }
+
+    // ===== As a data file (TaskFormat.MAPPED) =====
+
+    // same temp file + rename as the other formats, so a crash leaves the old file
+    static void write(TaskTable table, Path path, long generation) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (TaskOffHeapTable t = copyOf(table, tmp, generation)) {
+            t.force();
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // The table reads the file in place (TaskTable.mapped()); bytesRead counts the mapping,
+    // of which only the pages that get touched are ever read.
+    static TaskFileLoader.Result load(Path path) throws IOException {
+        TaskOffHeapTable t = map(path);
+        TaskFileLoader.Result result = new TaskFileLoader.Result();
+        result.table = TaskTable.mapped(t);
+        result.declaredCount = t.size();
+        result.capacity = t.size();
+        result.generation = t.generation();
+        result.bytesRead = t.nativeBytes();
+        return result;
+    }
+}
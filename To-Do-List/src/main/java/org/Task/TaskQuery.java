@@ -0,0 +1,582 @@
+package org.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Small query language over the task table:
+//
+//   category=work AND priority>=4 AND tag:urgent AND due<2026-01-01 AND status=Pending
+//   ORDER BY priority, due LIMIT 20
+//
+// Conditions (joined with AND, keywords in any case; quote values with spaces):
+//   category, assigned, name, description   = != ~ (contains), case-insensitive
+//   tag                                     : = != (one tag of the comma list)
+//   status                                  = != Pending|Done
+//   priority, hours                         = != < <= > >=
+//   due, created                            = != < <= > >= yyyy-MM-dd (tasks without a date never match)
+// ORDER BY takes the TaskSorter keys: priority (high first), due, created, hours.
+//
+// parse() folds all conditions into one fused filter: ranges per numeric column, a status
+// mask, tag and text lists, checked cheapest first in a single pass over each row. The
+// planner drives that pass from the smallest index posting list among the conditions that
+// have one (category, priority, status, tag, due and created ranges), or scans all live rows
+// if none is smaller.
+public class TaskQuery {
+
+    private static final TaskSorter.Key[] NO_KEYS = new TaskSorter.Key[0];
+
+    // ===== Fused filter =====
+    private boolean impossible;                 // contradictory conditions, matches nothing
+    private int statusMask = 0b11;              // bit per status byte
+    private final IntRange priority = new IntRange();
+    private final IntRange due = new IntRange();
+    private final IntRange created = new IntRange();
+    private double hoursLo = Double.NEGATIVE_INFINITY;
+    private double hoursHi = Double.POSITIVE_INFINITY;
+    private double[] hoursNot = new double[0];
+    private String category;                    // index key, null = any
+    private final List<String> tags = new ArrayList<>();
+    private final List<String> tagsNot = new ArrayList<>();
+    private final List<Text> texts = new ArrayList<>();
+
+    private TaskSorter.Key[] orderBy = NO_KEYS;
+    private int limit = Integer.MAX_VALUE;
+    private final String text;
+
+    private TaskQuery(String text) {
+        this.text = text;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    // ===== Execution =====
+
+    // Which rows feed the single pass: a copied posting list (and what it came from), or all live rows.
+    static final class Plan {
+        final String source;
+        final int[] rows;
+
+        Plan(String source, int[] rows) {
+            this.source = source;
+            this.rows = rows;
+        }
+    }
+
+    // matching ids in result order, and how they were found
+    public static final class Result {
+        public final long[] ids;
+        public final String plan;
+
+        Result(long[] ids, String plan) {
+            this.ids = ids;
+            this.plan = plan;
+        }
+    }
+
+    // caller keeps the indexes still (TaskStore synchronizes on them)
+    Plan plan(TaskIndex indexes, int liveRows) {
+        if (impossible) return new Plan("nothing (conditions contradict)", new int[0]);
+        String best = null;
+        int bestSize = liveRows;
+        PostingList[] bestSets = null;
+
+        if (category != null) {
+            PostingList s = indexes.byCategory(category);
+            if (s.size() < bestSize) {
+                best = "category=" + category;
+                bestSize = s.size();
+                bestSets = new PostingList[]{s};
+            }
+        }
+        if (Integer.bitCount(statusMask) == 1) {
+            byte status = (byte) Integer.numberOfTrailingZeros(statusMask);
+            PostingList s = indexes.byStatus(status);
+            if (s.size() < bestSize) {
+                best = "status=" + TaskTable.statusName(status);
+                bestSize = s.size();
+                bestSets = new PostingList[]{s};
+            }
+        }
+        for (String tag : tags) {
+            PostingList s = indexes.byTag(tag);
+            if (s.size() < bestSize) {
+                best = "tag=" + tag;
+                bestSize = s.size();
+                bestSets = new PostingList[]{s};
+            }
+        }
+        // a priority range is the union of the posting lists of the priorities in it
+        if (priority.lo != Integer.MIN_VALUE || priority.hi != Integer.MAX_VALUE || priority.not.length > 0) {
+            List<PostingList> sets = new ArrayList<>();
+            int total = 0;
+            for (int p : indexes.priorities()) {
+                if (!priority.test(p)) continue;
+                PostingList s = indexes.byPriority(p);
+                sets.add(s);
+                total += s.size();
+            }
+            if (total < bestSize) {
+                best = "priority in " + sets.size() + " value(s)";
+                bestSize = total;
+                bestSets = sets.toArray(new PostingList[0]);
+            }
+        }
+
+        // date ranges come from the day-ordered indexes, only the days in range are visited
+        int[] dated = null;
+        if (due.lo != Integer.MIN_VALUE || due.hi != Integer.MAX_VALUE) {
+            int n = indexes.dueCount(due.lo, due.hi);
+            if (n < bestSize) {
+                best = "due " + days(due);
+                bestSize = n;
+                dated = indexes.dueBetween(due.lo, due.hi);
+            }
+        }
+        if (created.lo != Integer.MIN_VALUE || created.hi != Integer.MAX_VALUE) {
+            int n = indexes.createdCount(created.lo, created.hi);
+            if (n < bestSize) {
+                best = "created " + days(created);
+                bestSize = n;
+                dated = indexes.createdBetween(created.lo, created.hi);
+            }
+        }
+        if (dated != null) {
+            // day order -> slot order, like every other source
+            Arrays.sort(dated);
+            return new Plan("index " + best + " (" + bestSize + " candidates)", dated);
+        }
+
+        if (best == null) return new Plan("scan of all " + liveRows + " tasks", null);
+        int[] rows;
+        if (bestSets.length == 1) {
+            rows = bestSets[0].toArray();
+        } else {
+            rows = new int[bestSize];
+            int n = 0;
+            for (PostingList s : bestSets) n = s.copyTo(rows, n);
+            // posting lists of different priorities are disjoint; restore slot order
+            Arrays.sort(rows);
+        }
+        return new Plan("index " + best + " (" + bestSize + " candidates)", rows);
+    }
+
+    // False when no row of a block with these bounds can match, so TaskBlockFile can skip it.
+    // The due bounds cover dated rows only; a date condition never matches an undated row.
+    boolean mayMatch(int statuses, int minPriority, int maxPriority, int minDue, int maxDue) {
+        if (impossible || (statusMask & statuses) == 0) return false;
+        if (maxPriority < priority.lo || minPriority > priority.hi) return false;
+        if (due.lo == Integer.MIN_VALUE && due.hi == Integer.MAX_VALUE) return true;
+        return minDue <= due.hi && maxDue >= due.lo;
+    }
+
+    // the value an "=" condition pins a category or assignee to (as a TaskIndex key), or null
+    String keyValue(int col) {
+        if (col == TaskTable.COL_CATEGORY) return category;
+        for (Text t : texts) {
+            if (t.col == col && t.op.equals("=")) return t.needle;
+        }
+        return null;
+    }
+
+    boolean ordered() {
+        return orderBy.length > 0;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    // "2025-01-01..2025-01-31", open ends left blank
+    private static String days(IntRange r) {
+        return (r.lo == Integer.MIN_VALUE ? "" : TaskTable.formatDay(r.lo)) + ".."
+                + (r.hi >= TaskTable.NO_DATE - 1 ? "" : TaskTable.formatDay(r.hi));
+    }
+
+    // Matching slots: in slot order, or ORDER BY order, cut to LIMIT.
+    int[] execute(TaskTable table, Plan plan) {
+        // without ORDER BY the scan can stop as soon as LIMIT rows matched
+        int want = orderBy.length == 0 ? limit : Integer.MAX_VALUE;
+        int[] out = new int[Math.min(plan.rows != null ? plan.rows.length : table.size(), want)];
+        int n = 0;
+        Codes codes = bind(table);
+        if (plan.rows != null) {
+            for (int row : plan.rows) {
+                if (n == out.length) break;
+                if (matches(table, codes, row)) out[n++] = row;
+            }
+        } else {
+            for (int row = table.nextLive(0); row >= 0 && n < out.length; row = table.nextLive(row + 1)) {
+                if (matches(table, codes, row)) out[n++] = row;
+            }
+        }
+        if (n < out.length) out = Arrays.copyOf(out, n);
+        if (orderBy.length > 0) {
+            out = TaskSorter.sort(table, out, orderBy);
+            if (out.length > limit) out = Arrays.copyOf(out, limit);
+        }
+        return out;
+    }
+
+    // The query's category, tag and text values as key codes of the table's dictionaries,
+    // looked up once per execution so rows are compared by int. -1: no task has the value.
+    private static final class Codes {
+        final int category;
+        final int[] tags;
+        final int[] tagsNot;
+        final int[] texts;      // Text.NOT_CODED for name, description and ~
+
+        Codes(int category, int[] tags, int[] tagsNot, int[] texts) {
+            this.category = category;
+            this.tags = tags;
+            this.tagsNot = tagsNot;
+            this.texts = texts;
+        }
+    }
+
+    private Codes bind(TaskTable table) {
+        TaskDictionary tagLists = table.dictionary(TaskTable.COL_TAGS);
+        int[] tagKeys = new int[tags.size()];
+        for (int i = 0; i < tagKeys.length; i++) tagKeys[i] = tagLists.findKey(tags.get(i));
+        int[] tagNotKeys = new int[tagsNot.size()];
+        for (int i = 0; i < tagNotKeys.length; i++) tagNotKeys[i] = tagLists.findKey(tagsNot.get(i));
+        int[] textKeys = new int[texts.size()];
+        for (int i = 0; i < textKeys.length; i++) textKeys[i] = texts.get(i).bind(table);
+        int categoryKey = category == null ? -1 : table.dictionary(TaskTable.COL_CATEGORY).findKey(category);
+        return new Codes(categoryKey, tagKeys, tagNotKeys, textKeys);
+    }
+
+    boolean matches(TaskTable table, int row) {
+        return matches(table, bind(table), row);
+    }
+
+    // the fused predicate: byte and int compares first, strings last
+    private boolean matches(TaskTable table, Codes codes, int row) {
+        if (impossible) return false;
+        if ((statusMask & (1 << table.status(row))) == 0) return false;
+        if (!priority.test(table.priority(row))) return false;
+        if (!due.test(table.dueDay(row))) return false;
+        if (!created.test(table.createdDay(row))) return false;
+        double h = table.hours(row);
+        if (h < hoursLo || h > hoursHi) return false;
+        for (double x : hoursNot) {
+            if (h == x) return false;
+        }
+        if (category != null && table.keyCode(row, TaskTable.COL_CATEGORY) != codes.category) return false;
+        for (int tag : codes.tags) {
+            if (!table.hasTag(row, tag)) return false;
+        }
+        for (int tag : codes.tagsNot) {
+            if (table.hasTag(row, tag)) return false;
+        }
+        for (int i = 0; i < texts.size(); i++) {
+            if (!texts.get(i).test(table, row, codes.texts[i])) return false;
+        }
+        return true;
+    }
+
+    // ===== Parsing =====
+
+    public static TaskQuery parse(String text) {
+        TaskQuery q = new TaskQuery(text.trim());
+        Lexer lx = new Lexer(text);
+        if (lx.atEnd()) return q;
+        if (!lx.peekKeyword("ORDER") && !lx.peekKeyword("LIMIT")) {
+            do {
+                q.condition(lx);
+            } while (lx.keyword("AND"));
+        }
+        if (lx.keyword("ORDER")) {
+            if (!lx.keyword("BY")) throw lx.fail("expected BY after ORDER");
+            List<TaskSorter.Key> keys = new ArrayList<>();
+            do {
+                keys.add(sortKey(lx.word("sort key"), lx));
+            } while (lx.symbol(","));
+            q.orderBy = keys.toArray(NO_KEYS);
+        }
+        if (lx.keyword("LIMIT")) {
+            String n = lx.word("limit");
+            try {
+                q.limit = Integer.parseInt(n);
+            } catch (NumberFormatException e) {
+                throw lx.fail("LIMIT needs a number, got '" + n + "'");
+            }
+            if (q.limit < 0) throw lx.fail("LIMIT cannot be negative");
+        }
+        if (!lx.atEnd()) throw lx.fail("unexpected '" + lx.rest() + "'");
+        return q;
+    }
+
+    private void condition(Lexer lx) {
+        String field = lx.word("field").toLowerCase(Locale.ROOT);
+        String op = lx.operator();
+        String value = lx.value();
+        switch (field) {
+            case "category":
+                if (op.equals("=")) {
+                    String key = TaskIndex.key(value);
+                    if (category != null && !category.equals(key)) impossible = true;
+                    category = key;
+                } else {
+                    texts.add(Text.of(TaskTable.COL_CATEGORY, op, value, lx));
+                }
+                break;
+            case "assigned":
+                texts.add(Text.of(TaskTable.COL_ASSIGNED, op, value, lx));
+                break;
+            case "name":
+                texts.add(Text.of(TaskTable.COL_NAME, op, value, lx));
+                break;
+            case "description":
+                texts.add(Text.of(TaskTable.COL_DESC, op, value, lx));
+                break;
+            case "tag":
+                if (op.equals(":") || op.equals("=")) tags.add(TaskIndex.key(value));
+                else if (op.equals("!=")) tagsNot.add(TaskIndex.key(value));
+                else throw lx.fail("tag takes ':', '=' or '!='");
+                break;
+            case "status": {
+                if (!value.equalsIgnoreCase("Pending") && !value.equalsIgnoreCase("Done")) {
+                    throw lx.fail("status is Pending or Done");
+                }
+                int bit = 1 << TaskTable.parseStatus(value);
+                if (op.equals("=")) statusMask &= bit;
+                else if (op.equals("!=")) statusMask &= ~bit;
+                else throw lx.fail("status takes '=' or '!='");
+                if (statusMask == 0) impossible = true;
+                break;
+            }
+            case "priority": {
+                int p;
+                try {
+                    p = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw lx.fail("priority needs a whole number, got '" + value + "'");
+                }
+                priority.apply(op, p, lx);
+                break;
+            }
+            case "due":
+            case "created": {
+                int day = TaskTable.parseDay(value);
+                if (day == TaskTable.NO_DATE) throw lx.fail("dates are yyyy-MM-dd, got '" + value + "'");
+                IntRange r = field.equals("due") ? due : created;
+                r.apply(op, day, lx);
+                // a task without a date (NO_DATE) never satisfies a date condition
+                if (r.hi >= TaskTable.NO_DATE) r.hi = TaskTable.NO_DATE - 1;
+                break;
+            }
+            case "hours": {
+                double h;
+                try {
+                    h = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    throw lx.fail("hours needs a number, got '" + value + "'");
+                }
+                switch (op) {
+                    case "=": hoursLo = Math.max(hoursLo, h); hoursHi = Math.min(hoursHi, h); break;
+                    case "!=": hoursNot = Arrays.copyOf(hoursNot, hoursNot.length + 1); hoursNot[hoursNot.length - 1] = h; break;
+                    case "<": hoursHi = Math.min(hoursHi, Math.nextDown(h)); break;
+                    case "<=": hoursHi = Math.min(hoursHi, h); break;
+                    case ">": hoursLo = Math.max(hoursLo, Math.nextUp(h)); break;
+                    case ">=": hoursLo = Math.max(hoursLo, h); break;
+                    default: throw lx.fail("hours takes = != < <= > >=");
+                }
+                break;
+            }
+            default:
+                throw lx.fail("unknown field '" + field + "'");
+        }
+        if (priority.lo > priority.hi || due.lo > due.hi || created.lo > created.hi || hoursLo > hoursHi) {
+            impossible = true;
+        }
+    }
+
+    private static TaskSorter.Key sortKey(String word, Lexer lx) {
+        switch (word.toLowerCase(Locale.ROOT)) {
+            case "priority": return TaskSorter.Key.PRIORITY_DESC;
+            case "due": return TaskSorter.Key.DUE_ASC;
+            case "created": return TaskSorter.Key.CREATED_ASC;
+            case "hours": return TaskSorter.Key.HOURS_ASC;
+            default: throw lx.fail("unknown sort key '" + word + "' (priority, due, created, hours)");
+        }
+    }
+
+    // ===== Pieces of the filter =====
+
+    // inclusive [lo, hi] minus a few excluded values
+    private static final class IntRange {
+        int lo = Integer.MIN_VALUE;
+        int hi = Integer.MAX_VALUE;
+        int[] not = new int[0];
+
+        void apply(String op, int v, Lexer lx) {
+            switch (op) {
+                case "=": lo = Math.max(lo, v); hi = Math.min(hi, v); break;
+                case "!=": not = Arrays.copyOf(not, not.length + 1); not[not.length - 1] = v; break;
+                case "<": hi = (int) Math.min(hi, v - 1L); break;
+                case "<=": hi = Math.min(hi, v); break;
+                case ">": lo = (int) Math.max(lo, v + 1L); break;
+                case ">=": lo = Math.max(lo, v); break;
+                default: throw lx.fail("expected = != < <= > >=, got '" + op + "'");
+            }
+        }
+
+        boolean test(int v) {
+            if (v < lo || v > hi) return false;
+            for (int x : not) {
+                if (v == x) return false;
+            }
+            return true;
+        }
+    }
+
+    // case-insensitive compare on a text column; =, != on the trimmed value, ~ = contains
+    private static final class Text {
+        static final int NOT_CODED = -2;
+
+        final int col;
+        final String op;
+        final String needle;
+
+        private Text(int col, String op, String needle) {
+            this.col = col;
+            this.op = op;
+            this.needle = needle;
+        }
+
+        static Text of(int col, String op, String value, Lexer lx) {
+            if (!op.equals("=") && !op.equals("!=") && !op.equals("~")) {
+                throw lx.fail("text fields take '=', '!=' or '~'");
+            }
+            return new Text(col, op, op.equals("~") ? value.toLowerCase(Locale.ROOT) : TaskIndex.key(value));
+        }
+
+        // key code to compare with on a dictionary-coded column, or NOT_CODED
+        int bind(TaskTable table) {
+            TaskDictionary d = table.dictionary(col);
+            return d == null || op.equals("~") ? NOT_CODED : d.findKey(needle);
+        }
+
+        boolean test(TaskTable table, int row, int key) {
+            if (key != NOT_CODED) {
+                boolean equal = table.keyCode(row, col) == key;
+                return op.equals("=") ? equal : !equal;
+            }
+            String v = table.field(row, col);
+            switch (op) {
+                case "=": return equalsKey(v, needle);
+                case "!=": return !equalsKey(v, needle);
+                default: return contains(v, needle);
+            }
+        }
+    }
+
+    // TaskIndex.key(s).equals(key) without building the key
+    static boolean equalsKey(String s, String key) {
+        if (s == null) return key.isEmpty();
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) <= ' ') from++;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to - from == key.length() && s.regionMatches(true, from, key, 0, key.length());
+    }
+
+    private static boolean contains(String s, String needle) {
+        if (s == null) return needle.isEmpty();
+        for (int i = 0; i + needle.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
+    // ===== Lexer =====
+
+    private static final class Lexer {
+        private final String s;
+        private int pos;
+
+        Lexer(String s) {
+            this.s = s;
+            skip();
+        }
+
+        boolean atEnd() {
+            return pos >= s.length();
+        }
+
+        String rest() {
+            return s.substring(pos);
+        }
+
+        private void skip() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private static boolean wordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == '+' || c == '/' || c == '@';
+        }
+
+        // a bare word, not consumed unless it is the keyword
+        boolean peekKeyword(String kw) {
+            int end = pos;
+            while (end < s.length() && wordChar(s.charAt(end))) end++;
+            return end - pos == kw.length() && s.regionMatches(true, pos, kw, 0, kw.length());
+        }
+
+        boolean keyword(String kw) {
+            if (!peekKeyword(kw)) return false;
+            pos += kw.length();
+            skip();
+            return true;
+        }
+
+        boolean symbol(String sym) {
+            if (!s.startsWith(sym, pos)) return false;
+            pos += sym.length();
+            skip();
+            return true;
+        }
+
+        String word(String what) {
+            int start = pos;
+            while (pos < s.length() && wordChar(s.charAt(pos))) pos++;
+            if (pos == start) throw fail("expected " + what);
+            String w = s.substring(start, pos);
+            skip();
+            return w;
+        }
+
+        String operator() {
+            for (String op : new String[]{"<=", ">=", "!=", "=", "<", ">", ":", "~"}) {
+                if (symbol(op)) return op;
+            }
+            throw fail("expected an operator (= != < <= > >= : ~)");
+        }
+
+        // bare word or "quoted text" with \" and \\ escapes
+        String value() {
+            if (pos < s.length() && (s.charAt(pos) == '"' || s.charAt(pos) == '\'')) {
+                char quote = s.charAt(pos++);
+                StringBuilder sb = new StringBuilder();
+                while (true) {
+                    if (pos >= s.length()) throw fail("unterminated quote");
+                    char c = s.charAt(pos++);
+                    if (c == quote) break;
+                    if (c == '\\' && pos < s.length()) c = s.charAt(pos++);
+                    sb.append(c);
+                }
+                skip();
+                return sb.toString();
+            }
+            return word("a value");
+        }
+
+        IllegalArgumentException fail(String what) {
+            return new IllegalArgumentException("Query error at " + (pos + 1) + ": " + what);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package org.Task;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HTTP/JSON front end over a TaskStore (started with TaskManager --server [port]).
+// Every request runs on its own virtual thread; the store does all the locking.
+//
+//   GET    /tasks                     list; ?category= &priority= &tag= &status= filter (combined with AND),
+//                                     ?q= takes a TaskQuery (e.g. q=priority>=4 AND tag:urgent ORDER BY due),
+//                                     ?search= full-text search of name and description, best match first
+//                                     (every word must match, ushq* = prefix),
+//                                     ?sort=priority,due,created,hours  ?offset= &limit= page the result
+//   POST   /tasks                     add   {"name":..,"priority":3,"dueDate":"2025-01-31",..} -> {"id":N}
+//   GET    /tasks/next?k=10           the k pending tasks to do next (priority, due date, estimated time)
+//   GET    /tasks/{id}                one task
+//   PATCH  /tasks/{id}                edit  any of name, description, category, dueDate, priority,
+//                                     estimatedTime, tags, assignedTo, status (applied as one update)
+//   PUT    /tasks/{id}/status         change status  {"status":"Done"}
+//   DELETE /tasks/{id}
+//   POST   /save                      save now (journal mode: sync the log)
+//   GET    /stats                     operation counts, latencies (ns), rows scanned/returned, bytes, parse errors
+//
+// Lists are streamed as a chunked JSON array, a batch of tasks at a time, so a large
+// result never sits in memory as one string. X-Total-Count carries the match count.
+public class TaskServer {
+
+    private static final int BATCH = 256;
+    private static final int MAX_BODY = 1 << 20;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        // headers and body go out as separate writes; with Nagle on, every keep-alive
+        // response waits for the client's delayed ACK (~40 ms). Read once, at the first create().
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TaskStore store;
+    private final HttpServer http;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private TaskServer(TaskStore store, HttpServer http) {
+        this.store = store;
+        this.http = http;
+    }
+
+    // port 0 picks a free port, see port()
+    public static TaskServer start(TaskStore store, int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("todo.server.backlog", 1024));
+        TaskServer server = new TaskServer(store, http);
+        http.createContext("/tasks", server::tasks);
+        http.createContext("/save", server::save);
+        http.createContext("/stats", server::stats);
+        http.setExecutor(server.executor);
+        http.start();
+        return server;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public void stop() {
+        http.stop(1);
+        executor.close();
+    }
+
+    // ===== Routing =====
+
+    private void tasks(HttpExchange ex) {
+        try {
+            String[] path = ex.getRequestURI().getPath().substring("/tasks".length()).split("/");
+            // "" -> [""], "/12" -> ["", "12"], "/12/status" -> ["", "12", "status"]
+            String method = ex.getRequestMethod();
+            if (path.length <= 1) {
+                if (!path[0].isEmpty()) {
+                    send(ex, 404, TaskJson.error("Not found"));
+                } else if (method.equals("GET")) {
+                    list(ex);
+                } else if (method.equals("POST")) {
+                    add(ex);
+                } else {
+                    notAllowed(ex, "GET, POST");
+                }
+                return;
+            }
+            if (path.length == 2 && path[1].equals("next")) {
+                if (method.equals("GET")) next(ex);
+                else notAllowed(ex, "GET");
+                return;
+            }
+            long id = TaskTable.parseId(path[1]);
+            if (id == 0 || path.length > 3 || (path.length == 3 && !path[2].equals("status"))) {
+                send(ex, 404, TaskJson.error("Not found"));
+            } else if (path.length == 3) {
+                if (method.equals("PUT") || method.equals("POST")) status(ex, id);
+                else notAllowed(ex, "PUT");
+            } else if (method.equals("GET")) {
+                one(ex, id);
+            } else if (method.equals("PATCH") || method.equals("PUT")) {
+                edit(ex, id);
+            } else if (method.equals("DELETE")) {
+                delete(ex, id);
+            } else {
+                notAllowed(ex, "GET, PATCH, DELETE");
+            }
+        } catch (IllegalArgumentException e) {
+            trySend(ex, 400, TaskJson.error(e.getMessage()));
+        } catch (IOException e) {
+            // client went away mid-response; nothing left to tell it
+        } catch (RuntimeException e) {
+            trySend(ex, 500, TaskJson.error(String.valueOf(e)));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void save(HttpExchange ex) {
+        try {
+            if (!ex.getRequestMethod().equals("POST")) {
+                notAllowed(ex, "POST");
+                return;
+            }
+            try {
+                store.save();
+                send(ex, 204, null);
+            } catch (IOException e) {
+                send(ex, 500, TaskJson.error("Error saving file: " + e.getMessage()));
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void stats(HttpExchange ex) {
+        try {
+            if (!ex.getRequestMethod().equals("GET")) {
+                notAllowed(ex, "GET");
+                return;
+            }
+            send(ex, 200, TaskJson.metrics(TaskMetrics.snapshot()));
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            ex.close();
+        }
+    }
+
+    // ===== Handlers =====
+
+    private void list(HttpExchange ex) throws IOException {
+        Map<String, String> q = query(ex.getRequestURI().getRawQuery());
+        // a query string goes first so its ORDER BY order is the one the other filters keep
+        long[] ids = q.containsKey("q") ? store.query(TaskQuery.parse(q.get("q"))).ids : null;
+        if (q.containsKey("search")) {
+            // ranked: the search order wins over the query's
+            long[] hits = store.search(q.get("search"), Integer.MAX_VALUE).ids;
+            ids = ids == null ? hits : keep(hits, ids);
+        }
+        for (Map.Entry<String, String> e : q.entrySet()) {
+            long[] match;
+            switch (e.getKey()) {
+                case "category": match = store.byCategory(e.getValue()); break;
+                case "priority": match = store.byPriority(priority(e.getValue())); break;
+                case "tag": match = store.byTag(e.getValue()); break;
+                case "status": match = store.byStatus(status(e.getValue())); break;
+                case "q": case "search": case "sort": case "offset": case "limit": continue;
+                default: throw new IllegalArgumentException("Unknown parameter: " + e.getKey());
+            }
+            ids = ids == null ? match : keep(ids, match);
+        }
+        String sort = q.get("sort");
+        if (sort != null) {
+            long[] order = store.sorted(sortKeys(sort));
+            ids = ids == null ? order : keep(order, ids);
+        }
+        if (ids == null) ids = store.all();
+
+        int from = Math.min(ids.length, count(q.get("offset"), 0));
+        int to = (int) Math.min(ids.length, (long) from + count(q.get("limit"), Integer.MAX_VALUE));
+
+        ex.getResponseHeaders().set("Content-Type", JSON);
+        ex.getResponseHeaders().set("X-Total-Count", String.valueOf(ids.length));
+        ex.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder sb = new StringBuilder(BATCH * 256);
+            out.append('[');
+            boolean first = true;
+            for (int i = from; i < to; i += BATCH) {
+                // a task deleted since the ids were taken is skipped
+                for (Task task : store.get(ids, i, Math.min(to, i + BATCH))) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    TaskJson.appendTask(sb, task);
+                }
+                out.append(sb);
+                sb.setLength(0);
+            }
+            out.append(']');
+        }
+    }
+
+    private void next(HttpExchange ex) throws IOException {
+        Map<String, String> q = query(ex.getRequestURI().getRawQuery());
+        long[] ids = store.next(Math.min(count(q.get("k"), 10), 10_000));
+        StringBuilder sb = new StringBuilder(ids.length * 256 + 2).append('[');
+        for (Task task : store.get(ids, 0, ids.length)) {
+            if (sb.length() > 1) sb.append(',');
+            TaskJson.appendTask(sb, task);
+        }
+        send(ex, 200, sb.append(']').toString());
+    }
+
+    private void one(HttpExchange ex, long id) throws IOException {
+        Task task = store.get(id);
+        if (task == null) {
+            send(ex, 404, TaskJson.error("No task with ID " + id));
+            return;
+        }
+        StringBuilder sb = new StringBuilder(256);
+        TaskJson.appendTask(sb, task);
+        send(ex, 200, sb.toString());
+    }
+
+    private void add(HttpExchange ex) throws IOException {
+        long id = store.add(task(TaskJson.parseObject(body(ex))));
+        ex.getResponseHeaders().set("Location", "/tasks/" + id);
+        send(ex, 201, "{\"id\":" + id + "}");
+    }
+
+    private void edit(HttpExchange ex, long id) throws IOException {
+        if (!store.update(id, update(TaskJson.parseObject(body(ex))))) {
+            send(ex, 404, TaskJson.error("No task with ID " + id));
+            return;
+        }
+        one(ex, id);
+    }
+
+    private void status(HttpExchange ex, long id) throws IOException {
+        Map<String, String> f = TaskJson.parseObject(body(ex));
+        if (f.size() != 1 || !f.containsKey("status")) throw new IllegalArgumentException("Expected {\"status\":\"Pending\"|\"Done\"}");
+        if (!store.setStatus(id, status(f.get("status")))) {
+            send(ex, 404, TaskJson.error("No task with ID " + id));
+            return;
+        }
+        one(ex, id);
+    }
+
+    private void delete(HttpExchange ex, long id) throws IOException {
+        if (!store.delete(id)) {
+            send(ex, 404, TaskJson.error("No task with ID " + id));
+            return;
+        }
+        send(ex, 204, null);
+    }
+
+    // ===== Fields =====
+    // (TaskBatch commands use the same field names and checks)
+
+    // a new task from its fields by JSON name; priority and dueDate are required
+    static Task task(Map<String, String> f) {
+        for (String key : f.keySet()) {
+            if (!key.equals("status") && column(key) < 0) throw new IllegalArgumentException("Unknown field: " + key);
+        }
+        if (!f.containsKey("priority")) throw new IllegalArgumentException("priority is required");
+        if (!f.containsKey("dueDate")) throw new IllegalArgumentException("dueDate is required");
+        return new Task(text(f.get("name")), text(f.get("description")), priority(f.get("priority")),
+                TaskTable.statusName(f.containsKey("status") ? status(f.get("status")) : TaskTable.STATUS_PENDING),
+                text(f.get("category")), date(f.get("dueDate")), LocalDate.now(),
+                f.containsKey("estimatedTime") ? hours(f.get("estimatedTime")) : 0,
+                text(f.get("tags")), text(f.get("assignedTo")));
+    }
+
+    // the changed fields by JSON name as one update
+    static TaskUpdate update(Map<String, String> f) {
+        TaskUpdate update = new TaskUpdate();
+        for (Map.Entry<String, String> e : f.entrySet()) {
+            String v = e.getValue();
+            switch (e.getKey()) {
+                case "priority": update.priority(priority(v)); break;
+                case "status": update.status(status(v)); break;
+                case "dueDate": update.dueDay((int) date(v).toEpochDay()); break;
+                case "estimatedTime": update.hours(hours(v)); break;
+                default:
+                    int col = column(e.getKey());
+                    if (col < 0) throw new IllegalArgumentException("Unknown or read-only field: " + e.getKey());
+                    update.set(col, text(v));
+            }
+        }
+        return update;
+    }
+
+    // editable columns by JSON name, -1 for anything else (id, creationDate, unknown)
+    private static int column(String field) {
+        switch (field) {
+            case "name": return TaskTable.COL_NAME;
+            case "description": return TaskTable.COL_DESC;
+            case "category": return TaskTable.COL_CATEGORY;
+            case "tags": return TaskTable.COL_TAGS;
+            case "assignedTo": return TaskTable.COL_ASSIGNED;
+            case "priority": return TaskTable.COL_PRIORITY;
+            case "dueDate": return TaskTable.COL_DUE;
+            case "estimatedTime": return TaskTable.COL_EST_TIME;
+            default: return -1;
+        }
+    }
+
+    private static String text(String v) {
+        return v == null ? "" : v;
+    }
+
+    private static int priority(String v) {
+        int p = TaskTable.parsePriority(v);
+        if (p < 1 || p > 5) throw new IllegalArgumentException("priority must be between 1 and 5");
+        return p;
+    }
+
+    static byte status(String v) {
+        if (v == null || (!v.equalsIgnoreCase("Pending") && !v.equalsIgnoreCase("Done"))) {
+            throw new IllegalArgumentException("status must be 'Pending' or 'Done'");
+        }
+        return TaskTable.parseStatus(v);
+    }
+
+    private static LocalDate date(String v) {
+        try {
+            return LocalDate.parse(v == null ? "" : v.trim(), TaskTable.DATE_FMT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("dueDate must be yyyy-MM-dd");
+        }
+    }
+
+    private static double hours(String v) {
+        try {
+            double h = Double.parseDouble(v == null ? "" : v.trim());
+            if (h >= 0 && h < Double.POSITIVE_INFINITY) return h;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("estimatedTime must be a number of hours");
+    }
+
+    private static TaskSorter.Key[] sortKeys(String spec) {
+        List<TaskSorter.Key> keys = new ArrayList<>();
+        for (String k : spec.split(",")) {
+            switch (k.trim().toLowerCase(Locale.ROOT)) {
+                case "priority": keys.add(TaskSorter.Key.PRIORITY_DESC); break;
+                case "due": keys.add(TaskSorter.Key.DUE_ASC); break;
+                case "created": keys.add(TaskSorter.Key.CREATED_ASC); break;
+                case "hours": keys.add(TaskSorter.Key.HOURS_ASC); break;
+                default: throw new IllegalArgumentException("Unknown sort key: " + k);
+            }
+        }
+        return keys.toArray(new TaskSorter.Key[0]);
+    }
+
+    private static int count(String v, int dflt) {
+        if (v == null) return dflt;
+        try {
+            return Math.max(0, Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + v);
+        }
+    }
+
+    // ids of order that are also in subset, in the order of order
+    private static long[] keep(long[] order, long[] subset) {
+        IdIndex in = new IdIndex(subset.length);
+        for (long id : subset) in.put(id, 0);
+        long[] out = new long[Math.min(order.length, subset.length)];
+        int n = 0;
+        for (long id : order) {
+            if (n < out.length && in.get(id) >= 0) out[n++] = id;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    // ===== HTTP =====
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> q = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return q;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String k = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String v = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            q.put(k, v);
+        }
+        return q;
+    }
+
+    private static String body(HttpExchange ex) throws IOException {
+        InputStream in = ex.getRequestBody();
+        byte[] bytes = in.readNBytes(MAX_BODY + 1);
+        if (bytes.length > MAX_BODY) throw new IllegalArgumentException("Request body too large");
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void notAllowed(HttpExchange ex, String allow) throws IOException {
+        ex.getResponseHeaders().set("Allow", allow);
+        send(ex, 405, TaskJson.error("Method not allowed"));
+    }
+
+    // null body -> no content
+    private static void send(HttpExchange ex, int code, String body) throws IOException {
+        if (body == null) {
+            ex.sendResponseHeaders(code, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", JSON);
+        ex.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // error path: fails quietly when the response has already started
+    private static void trySend(HttpExchange ex, int code, String body) {
+        try {
+            if (ex.getResponseCode() == -1) send(ex, code, body);
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package org.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Sharded storage (tasks-data.shards): one TSV file per shard plus a manifest naming them.
+//
+//   tasks-shards 1
+//   key category                 category, assigned or hash:N (todo.shards.key, default category)
+//   generation 0
+//   next 7                       counter for shard file names
+//   <rows> TAB <file> TAB <shard> one line per shard; the shard is the category or assignee key
+//                                (escaped like a data file field) or the hash bucket
+//
+// Shards load and save in parallel on the ForkJoin pool. A save writes only the shards the
+// store marked dirty, each to a new file (tasks-data-work-7.txt), then replaces the manifest
+// and deletes the files it no longer names; a crash in between leaves the old manifest and
+// the old files intact. Changing todo.shards.key re-shards everything on the next save.
+//
+// The loaded table holds every task, grouped by shard; scan() answers a query from the
+// matching shard files alone when it pins the shard key (category=work, assigned=ana).
+public final class TaskShards {
+
+    static final String HEADER = "tasks-shards 1";
+
+    enum Key { CATEGORY, ASSIGNED, HASH }
+
+    private final Path manifest;
+    private final Key key;
+    private final String[] buckets;     // HASH: the shard names "0" .. "N-1"
+
+    // shards changed since the last save; all of them after a failed read of the manifest,
+    // a key change or a journal replay
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean allDirty;
+
+    private TaskShards(Path manifest, String spec) {
+        this.manifest = manifest;
+        String s = spec.trim().toLowerCase(Locale.ROOT);
+        if (s.equals("category")) {
+            key = Key.CATEGORY;
+            buckets = null;
+        } else if (s.equals("assigned")) {
+            key = Key.ASSIGNED;
+            buckets = null;
+        } else if (s.startsWith("hash:")) {
+            int n;
+            try {
+                n = Integer.parseInt(s.substring(5));
+            } catch (NumberFormatException e) {
+                n = 0;
+            }
+            if (n < 1 || n > 4096) throw new IllegalArgumentException("hash:N takes 1 to 4096 shards, got " + spec);
+            key = Key.HASH;
+            buckets = new String[n];
+            for (int i = 0; i < n; i++) buckets[i] = String.valueOf(i);
+        } else {
+            throw new IllegalArgumentException("shard key is category, assigned or hash:N, got " + spec);
+        }
+    }
+
+    // the manifest's scheme, or todo.shards.key when it is set or there is no manifest yet
+    public static TaskShards forFile(Path manifest) {
+        String configured = System.getProperty("todo.shards.key");
+        Manifest m = null;
+        try {
+            if (Files.exists(manifest)) m = Manifest.read(manifest);
+        } catch (IOException | RuntimeException e) {
+            // written from scratch on the next save
+        }
+        TaskShards shards = new TaskShards(manifest,
+                configured != null ? configured : m != null ? m.key : "category");
+        if (m == null || !m.key.equals(shards.spec())) shards.allDirty = true;
+        return shards;
+    }
+
+    String spec() {
+        return key == Key.HASH ? "hash:" + buckets.length : key.name().toLowerCase(Locale.ROOT);
+    }
+
+    // the column that decides the shard; edits of other columns keep a task in place
+    int column() {
+        switch (key) {
+            case CATEGORY: return TaskTable.COL_CATEGORY;
+            case ASSIGNED: return TaskTable.COL_ASSIGNED;
+            default: return TaskTable.COL_ID;
+        }
+    }
+
+    String shardOf(TaskTable table, int row) {
+        switch (key) {
+            case CATEGORY: return table.categoryKey(row);
+            case ASSIGNED: return table.assigneeKey(row);
+            default: {
+                long h = table.id(row) * 0x9E3779B97F4A7C15L;
+                return buckets[(int) Math.floorMod(h ^ (h >>> 32), (long) buckets.length)];
+            }
+        }
+    }
+
+    // ===== Dirty tracking (TaskStore) =====
+
+    // called with the row's store lock held, before and after anything that may move it
+    void changed(TaskTable table, int row) {
+        if (!allDirty) dirty.add(shardOf(table, row));
+    }
+
+    void changedAll() {
+        allDirty = true;
+    }
+
+    // under the structure write lock, with the snapshot it belongs to; null means every shard
+    Set<String> takeDirty() {
+        Set<String> taken = allDirty ? null : Set.copyOf(dirty);
+        allDirty = false;
+        dirty.clear();
+        return taken;
+    }
+
+    // a save failed: its shards are still to be written
+    void restoreDirty(Set<String> shards) {
+        if (shards == null) allDirty = true;
+        else dirty.addAll(shards);
+    }
+
+    // ===== Manifest =====
+
+    private static final class Entry {
+        final String shard;
+        final int rows;
+        final String file;
+
+        Entry(String shard, int rows, String file) {
+            this.shard = shard;
+            this.rows = rows;
+            this.file = file;
+        }
+    }
+
+    private static final class Manifest {
+        String key;
+        long generation;
+        long next = 1;
+        final Map<String, Entry> shards = new LinkedHashMap<>();
+
+        static Manifest read(Path path) throws IOException {
+            Manifest m = new Manifest();
+            try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                if (!HEADER.equals(in.readLine())) throw new IOException(path + " is not a shard manifest");
+                m.key = value(in.readLine(), "key");
+                m.generation = Long.parseLong(value(in.readLine(), "generation"));
+                m.next = Long.parseLong(value(in.readLine(), "next"));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    String[] p = line.split("\t", -1);
+                    if (p.length != 3) throw new IOException("bad shard line: " + line);
+                    String shard = TaskFile.unescape(p[2]);
+                    m.shards.put(shard, new Entry(shard, Integer.parseInt(p[0]), p[1]));
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ": " + e.getMessage());
+            }
+            return m;
+        }
+
+        private static String value(String line, String name) throws IOException {
+            if (line == null || !line.startsWith(name + " ")) throw new IOException("expected " + name);
+            return line.substring(name.length() + 1).trim();
+        }
+
+        // temp file + rename, like the data files
+        void write(Path path) throws IOException {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write(HEADER + "\nkey " + key + "\ngeneration " + generation + "\nnext " + next + "\n");
+                for (Entry e : shards.values()) {
+                    out.write(e.rows + "\t" + e.file + "\t" + TaskFile.escape(e.shard) + "\n");
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    // ===== Saving =====
+
+    // every shard, as TaskFormat.save() does it (conversions, journal snapshots)
+    public static void write(TaskTable table, Path manifest, long generation) throws IOException {
+        TaskShards shards = forFile(manifest);
+        shards.save(table, generation, null);
+    }
+
+    // Writes the shards named in dirty (null: all of them) from a table nobody edits, plus any
+    // whose row count no longer matches the manifest, then the manifest. Returns bytes written.
+    long save(TaskTable table, long generation, Set<String> dirty) throws IOException {
+        Manifest old = null;
+        try {
+            if (Files.exists(manifest)) old = Manifest.read(manifest);
+        } catch (IOException e) {
+            // replaced as a whole below
+        }
+        // another key: every shard is new, but the old files still go once the manifest is replaced
+        boolean sameKey = old != null && old.key.equals(spec());
+
+        // live rows by shard, shards in name order
+        Map<String, RowSet> groups = new TreeMap<>();
+        for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+            groups.computeIfAbsent(shardOf(table, row), k -> new RowSet()).add(row);
+        }
+
+        Manifest next = new Manifest();
+        next.key = spec();
+        next.generation = generation;
+        next.next = old != null ? old.next : 1;
+        List<ForkJoinTask<Long>> writes = new ArrayList<>();
+        List<Path> written = new ArrayList<>();
+        for (Map.Entry<String, RowSet> g : groups.entrySet()) {
+            String shard = g.getKey();
+            int[] rows = g.getValue().toArray();
+            Entry before = sameKey ? old.shards.get(shard) : null;
+            if (before != null && before.rows == rows.length && dirty != null && !dirty.contains(shard)) {
+                next.shards.put(shard, before);
+                continue;
+            }
+            String name = fileName(shard, next.next++);
+            Path file = manifest.resolveSibling(name);
+            next.shards.put(shard, new Entry(shard, rows.length, name));
+            written.add(file);
+            writes.add(ForkJoinPool.commonPool().submit(() -> {
+                TaskFile.write(table, rows, rows.length, file, 0);
+                return Files.size(file);
+            }));
+        }
+        long bytes = 0;
+        try {
+            for (ForkJoinTask<Long> w : writes) bytes += join(w);
+            next.write(manifest);
+        } catch (IOException | RuntimeException e) {
+            // the old manifest still names the old files; drop the half-done new ones
+            for (ForkJoinTask<Long> w : writes) w.quietlyJoin();
+            for (Path p : written) Files.deleteIfExists(p);
+            throw e;
+        }
+        bytes += Files.size(manifest);
+        if (old != null) {
+            for (Entry e : old.shards.values()) {
+                Entry now = next.shards.get(e.shard);
+                if (now == null || !now.file.equals(e.file)) Files.deleteIfExists(manifest.resolveSibling(e.file));
+            }
+        }
+        return bytes;
+    }
+
+    // tasks-data.shards + "Work Stuff" -> tasks-data-work_stuff-12.txt. Shards whose names
+    // differ only in case or punctuation share a slug; the manifest sequence number keeps
+    // their files apart.
+    private String fileName(String shard, long seq) {
+        String base = manifest.getFileName().toString();
+        int dot = base.lastIndexOf('.');
+        if (dot > 0) base = base.substring(0, dot);
+        shard = shard.toLowerCase(Locale.ROOT);
+        StringBuilder slug = new StringBuilder();
+        for (int i = 0; i < shard.length() && slug.length() < 32; i++) {
+            char c = shard.charAt(i);
+            slug.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        if (slug.length() == 0) slug.append("none");
+        return base + "-" + (key == Key.HASH ? "h" : "") + slug + "-" + seq + ".txt";
+    }
+
+    // ===== Loading =====
+
+    // every shard, loaded in parallel and stitched together in manifest order
+    public static TaskFileLoader.Result load(Path manifest) throws IOException {
+        Manifest m = Manifest.read(manifest);
+        List<ForkJoinTask<TaskFileLoader.Result>> parts = new ArrayList<>();
+        int total = 0;
+        for (Entry e : m.shards.values()) {
+            Path file = manifest.resolveSibling(e.file);
+            parts.add(ForkJoinPool.commonPool().submit(() -> TaskFileLoader.load(file)));
+            total += e.rows;
+        }
+        TaskFileLoader.Result result = new TaskFileLoader.Result();
+        TaskTable table = new TaskTable(Math.max(total, 1));
+        int i = 0;
+        for (Entry e : m.shards.values()) {
+            TaskFileLoader.Result part = join(parts.get(i++));
+            for (String error : part.errors) result.errors.add(e.file + ": " + error);
+            if (part.table.size() != e.rows) {
+                result.errors.add(e.file + ": " + part.table.size() + " tasks, the manifest says " + e.rows);
+            }
+            table.appendAll(part.table, part.table.size());
+            result.declaredCount += part.declaredCount;
+            result.bytesRead += part.bytesRead;
+        }
+        table.finishLoad();
+        result.table = table;
+        result.capacity = total;
+        result.generation = m.generation;
+        result.bytesRead += Files.size(manifest);
+        return result;
+    }
+
+    // what scan() found and what it cost
+    public static final class Scan {
+        public final TaskTable table;   // the matching tasks only
+        public final int[] rows;        // rows of table in query order, cut to LIMIT
+        public final int shards;
+        public final int shardsRead;
+        public final long bytesRead;
+
+        Scan(TaskTable table, int[] rows, int shards, int shardsRead, long bytesRead) {
+            this.table = table;
+            this.rows = rows;
+            this.shards = shards;
+            this.shardsRead = shardsRead;
+            this.bytesRead = bytesRead;
+        }
+    }
+
+    // Runs a query on the shard files without loading the rest: when the query pins the
+    // shard key only that shard is read, otherwise all of them (in parallel).
+    public static Scan scan(Path manifest, TaskQuery query) throws IOException {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        try {
+            Manifest m = Manifest.read(manifest);
+            TaskShards scheme = new TaskShards(manifest, m.key);
+            String pinned = scheme.key == Key.HASH ? null : query.keyValue(scheme.column());
+            List<ForkJoinTask<TaskFileLoader.Result>> parts = new ArrayList<>();
+            for (Entry entry : m.shards.values()) {
+                if (pinned != null && !pinned.equals(entry.shard)) continue;
+                Path file = manifest.resolveSibling(entry.file);
+                parts.add(ForkJoinPool.commonPool().submit(() -> TaskFileLoader.load(file)));
+            }
+            TaskQuery.Plan all = new TaskQuery.Plan("scan", null);
+            TaskTable matches = new TaskTable(16);
+            long bytes = Files.size(manifest);
+            long scanned = 0;
+            for (ForkJoinTask<TaskFileLoader.Result> part : parts) {
+                TaskFileLoader.Result r = join(part);
+                bytes += r.bytesRead;
+                scanned += r.table.size();
+                for (int row : query.execute(r.table, all)) {
+                    TaskTable t = r.table;
+                    matches.addWithId(t.id(row), t.name(row), t.description(row), t.priority(row), t.status(row),
+                            t.category(row), t.dueDay(row), t.createdDay(row), t.hours(row), t.tags(row),
+                            t.assignedTo(row));
+                }
+            }
+            // every row matches again; this applies ORDER BY and LIMIT across shards
+            int[] result = query.execute(matches, all);
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, scanned, result.length, bytes);
+            return new Scan(matches, result, m.shards.size(), parts.size(), bytes);
+        } catch (IOException | RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.FILTER);
+            throw ex;
+        }
+    }
+
+    // join() wraps the IOException of the task, possibly more than once
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof IOException) throw (IOException) t;
+            }
+            throw e;
+        }
+    }
+}
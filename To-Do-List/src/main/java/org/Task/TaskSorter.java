@@ -0,0 +1,105 @@
+package org.Task;
+
+import java.util.Arrays;
+
+public class TaskSorter {
+
+    public enum Key {
+        PRIORITY_DESC,
+        DUE_ASC,
+        CREATED_ASC,
+        HOURS_ASC
+    }
+
+    // above this many rows the packed keys are sorted with Arrays.parallelSort
+    private static int parallelThreshold = Integer.getInteger("todo.sort.parallelThreshold", 1 << 16);
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int rows) {
+        parallelThreshold = Math.max(1, rows);
+    }
+
+    // Returns the live slots of the table in sorted order; the table itself is not touched.
+    // Keys are given most significant first, e.g. sort(t, PRIORITY_DESC, DUE_ASC, HOURS_ASC).
+    public static int[] sort(TaskTable table, Key... keys) {
+        return sort(table, table.liveSlots(), keys);
+    }
+
+    // same for a subset of live slots (e.g. a query result); slots may be returned as is
+    public static int[] sort(TaskTable table, int[] slots, Key... keys) {
+        int n = slots.length;
+        if (n < 2 || keys.length == 0) return slots;
+        // order holds positions into slots until the last pass is done
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+
+        // LSD: stable pass per key, least significant first
+        long[] packed = new long[n];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            int[] key = extract(table, slots, keys[k]);
+            for (int i = 0; i < n; i++) {
+                // high half = key, low half = current position (keeps each pass stable)
+                packed[i] = ((long) key[order[i]] << 32) | i;
+            }
+            if (n >= parallelThreshold) {
+                Arrays.parallelSort(packed);
+            } else {
+                Arrays.sort(packed);
+            }
+            int[] next = new int[n];
+            for (int i = 0; i < n; i++) {
+                next[i] = order[(int) packed[i]];
+            }
+            order = next;
+        }
+        for (int i = 0; i < n; i++) order[i] = slots[order[i]];
+        return order;
+    }
+
+    // one int per slot, ordered so that ascending int order is the wanted order
+    private static int[] extract(TaskTable table, int[] slots, Key key) {
+        int n = slots.length;
+        int[] out = new int[n];
+        switch (key) {
+            case PRIORITY_DESC:
+                for (int i = 0; i < n; i++) out[i] = -table.priority(slots[i]);
+                break;
+            case DUE_ASC:
+                for (int i = 0; i < n; i++) out[i] = table.dueDay(slots[i]);
+                break;
+            case CREATED_ASC:
+                for (int i = 0; i < n; i++) out[i] = table.createdDay(slots[i]);
+                break;
+            case HOURS_ASC:
+                rankHours(table, slots, out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort key: " + key);
+        }
+        return out;
+    }
+
+    // doubles do not fit in 32 bits, so they are replaced by their rank among the distinct values
+    private static void rankHours(TaskTable table, int[] slots, int[] out) {
+        int n = slots.length;
+        double[] distinct = new double[n];
+        for (int i = 0; i < n; i++) distinct[i] = table.hours(slots[i]);
+        if (n >= parallelThreshold) {
+            Arrays.parallelSort(distinct);
+        } else {
+            Arrays.sort(distinct);
+        }
+        int d = 0;
+        for (int i = 0; i < n; i++) {
+            if (d == 0 || Double.compare(distinct[d - 1], distinct[i]) != 0) {
+                distinct[d++] = distinct[i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            out[i] = Arrays.binarySearch(distinct, 0, d, table.hours(slots[i]));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Dashboard aggregates kept as running counters: pending/done counts, estimated hours and
+// overdue counts, in total and per category and per assignee. Callers keep them in sync
+// like TaskIndex (remove(row) before a change, add(row) after), so reads never scan tasks.
+//
+// "Overdue" means pending and due before asOf. When the day changes, advance() moves asOf
+// forward using only the tasks due in the days that passed.
+public class TaskStats {
+
+    public static final class Group {
+        public final String label;
+        public int pending;
+        public int done;
+        public double pendingHours;
+        public double doneHours;
+        public int overdue;
+
+        Group(String label) {
+            this.label = label;
+        }
+
+        public int tasks() {
+            return pending + done;
+        }
+
+        Group copy() {
+            Group g = new Group(label);
+            g.merge(this);
+            return g;
+        }
+
+        void merge(Group o) {
+            pending += o.pending;
+            done += o.done;
+            pendingHours += o.pendingHours;
+            doneHours += o.doneHours;
+            overdue += o.overdue;
+        }
+
+        // sign = +1 to count the row in, -1 to take it out
+        void count(int sign, boolean isPending, double hours, boolean isOverdue) {
+            if (isPending) {
+                pending += sign;
+                pendingHours += sign * hours;
+                // sums of doubles drift on add/remove; an empty bucket is exactly zero
+                if (pending == 0) pendingHours = 0;
+            } else {
+                done += sign;
+                doneHours += sign * hours;
+                if (done == 0) doneHours = 0;
+            }
+            if (isOverdue) overdue += sign;
+        }
+    }
+
+    private final Group total = new Group("All tasks");
+    private final Map<String, Group> byCategory = new HashMap<>();
+    private final Map<String, Group> byAssignee = new HashMap<>();
+    private int asOf;
+
+    public TaskStats(int asOfDay) {
+        this.asOf = asOfDay;
+    }
+
+    // Counts every live row, one parallel task per table segment, merged at the end.
+    public static TaskStats build(TaskTable table, int asOfDay) {
+        int slots = table.slots();
+        int segments = (slots + TaskTable.SEGMENT_SIZE - 1) >> TaskTable.SEGMENT_SHIFT;
+        return IntStream.range(0, segments).parallel()
+                .mapToObj(seg -> {
+                    TaskStats part = new TaskStats(asOfDay);
+                    int end = Math.min(slots, (seg + 1) << TaskTable.SEGMENT_SHIFT);
+                    for (int row = table.nextLive(seg << TaskTable.SEGMENT_SHIFT); row >= 0 && row < end;
+                         row = table.nextLive(row + 1)) {
+                        part.add(table, row);
+                    }
+                    return part;
+                })
+                .reduce(TaskStats::merge)
+                .orElseGet(() -> new TaskStats(asOfDay));
+    }
+
+    private TaskStats merge(TaskStats o) {
+        total.merge(o.total);
+        mergeInto(byCategory, o.byCategory);
+        mergeInto(byAssignee, o.byAssignee);
+        return this;
+    }
+
+    private static void mergeInto(Map<String, Group> into, Map<String, Group> from) {
+        for (Map.Entry<String, Group> e : from.entrySet()) {
+            into.computeIfAbsent(e.getKey(), k -> new Group(e.getValue().label)).merge(e.getValue());
+        }
+    }
+
+    // ===== Maintenance =====
+
+    public void add(TaskTable table, int row) {
+        count(table, row, 1);
+    }
+
+    public void remove(TaskTable table, int row) {
+        count(table, row, -1);
+    }
+
+    private void count(TaskTable table, int row, int sign) {
+        boolean isPending = table.status(row) == TaskTable.STATUS_PENDING;
+        double hours = table.hours(row);
+        boolean isOverdue = isPending && table.dueDay(row) < asOf;
+        total.count(sign, isPending, hours, isOverdue);
+        group(byCategory, table.categoryKey(row), table.category(row), sign)
+                .count(sign, isPending, hours, isOverdue);
+        group(byAssignee, table.assigneeKey(row), table.assignedTo(row), sign)
+                .count(sign, isPending, hours, isOverdue);
+    }
+
+    // groups are case-insensitive (same keys as TaskIndex); empty groups are dropped
+    private static Group group(Map<String, Group> groups, String key, String value, int sign) {
+        Group g = groups.get(key);
+        if (g == null) {
+            g = new Group(key.isEmpty() ? "(none)" : value.trim());
+            groups.put(key, g);
+        } else if (sign < 0 && g.tasks() == 1) {
+            // taken out after this call returns; removing now keeps the map small
+            groups.remove(key);
+        }
+        return g;
+    }
+
+    public int asOf() {
+        return asOf;
+    }
+
+    // Moves the overdue cut-off to today. rows are the tasks due in [asOf, today - 1],
+    // the only ones whose overdue state changes.
+    public void advance(TaskTable table, int[] rows, int today) {
+        for (int row : rows) {
+            if (table.status(row) != TaskTable.STATUS_PENDING) continue;
+            total.overdue++;
+            byCategory.get(table.categoryKey(row)).overdue++;
+            byAssignee.get(table.assigneeKey(row)).overdue++;
+        }
+        asOf = today;
+    }
+
+    // ===== Reads (copies of the counters, no task is looked at) =====
+
+    public static final class Snapshot {
+        public final int asOf;
+        public final Group total;
+        public final List<Group> byCategory;
+        public final List<Group> byAssignee;
+
+        Snapshot(TaskStats s) {
+            asOf = s.asOf;
+            total = s.total.copy();
+            byCategory = copy(s.byCategory);
+            byAssignee = copy(s.byAssignee);
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    private static List<Group> copy(Map<String, Group> groups) {
+        List<Group> out = new ArrayList<>(groups.size());
+        for (Group g : groups.values()) out.add(g.copy());
+        return out;
+    }
+}
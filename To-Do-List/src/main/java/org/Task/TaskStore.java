@@ -0,0 +1,759 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+// Thread-safe owner of the task table, its indexes and its persistence.
+// Callers name tasks by id and get Task copies back.
+//
+// Locking:
+//   structure  StampedLock over slots, segments, the id index and compaction.
+//              add/delete/compact/snapshot take it exclusively, edits and scans share it.
+//   stripes    one StampedLock per id stripe. Edits hold their stripe exclusively, so edits
+//              to different tasks only meet on the shared structure read lock.
+//   indexes    the secondary indexes (TaskIndex), the dashboard counters (statsLock) and the
+//   statsLock  full-text index (textLock) are plain maps, each behind its own monitor. An edit
+//   textLock   takes only the monitors of the structures its columns feed, in that order:
+//              name and description edits never meet status or priority edits, but every edit
+//              of an indexed column (status, priority, category, tags, dates, hours) still
+//              serializes on indexes, for the few O(1) bitmap and O(log n) heap updates it makes.
+//              Scans that copy from a structure hold its monitor briefly.
+//   saving     snapshot() holds the structure lock only for a copy-on-write TaskTable.copy();
+//              the file is written from the copy with no store lock held, one save at a time.
+// Single-task reads are optimistic on both stamps and fall back to read locks when a
+// writer got in the way. Scans see each task consistently but the list as a whole is
+// weakly consistent with edits running at the same time (adds and deletes are excluded).
+//
+// Every query, write, save and load is timed in TaskMetrics (and emitted as a JFR event).
+public class TaskStore {
+
+    private static final int STRIPES = Integer.highestOneBit(
+            Math.max(1, Integer.getInteger("todo.store.stripes", 64)));
+    // a batch at least this big (and at least 1/8 of the table) rebuilds the indexes once
+    // instead of updating them row by row
+    private static final int REBUILD_MIN = Integer.getInteger("todo.batch.rebuildMin", 4096);
+
+    private final TaskTable table;
+    private final TaskIndex indexes = new TaskIndex();
+    private TaskStats stats;           // guarded by statsLock
+    private TaskTextIndex text;        // guarded by textLock
+    private final Object statsLock = new Object();
+    private final Object textLock = new Object();
+    private final StampedLock structure = new StampedLock();
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+
+    // ===== Persistence =====
+    private final Path file;
+    private long generation;           // snapshot generation, see TaskJournal
+    private TaskJournal journal;       // null unless journal mode is on
+    // bumped by every add, edit and delete; a save remembers the count its snapshot saw
+    private final AtomicLong changes = new AtomicLong();
+    private final Object saving = new Object();
+    private long savedChanges;         // guarded by saving
+    // sharded files only: which shards the changes since the last save touched
+    private final TaskShards shards;
+
+    public TaskStore(TaskTable table, Path file, long generation) {
+        this.table = table;
+        this.file = file;
+        this.generation = generation;
+        this.shards = TaskFormat.of(file) == TaskFormat.SHARDED ? TaskShards.forFile(file) : null;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new StampedLock();
+        table.buildIdIndex();
+        indexes.rebuild(table);
+        stats = TaskStats.build(table, today());
+        // saved with the data file; tokenize everything only when it is missing or stale
+        text = TaskTextIndex.load(TaskTextIndex.fileFor(file), table);
+        if (text == null) text = TaskTextIndex.build(table);
+    }
+
+    private static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    private StampedLock stripe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 32) & (STRIPES - 1)];
+    }
+
+    // ===== Reads =====
+
+    // null unless the table was loaded with TaskFormat.loadLazy()
+    public TaskLazyText lazyText() {
+        return table.lazyText();
+    }
+
+    public int size() {
+        long stamp = structure.tryOptimisticRead();
+        int n = table.size();
+        if (structure.validate(stamp)) return n;
+        stamp = structure.readLock();
+        try {
+            return table.size();
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(long id) {
+        long stamp = structure.readLock();
+        try {
+            return table.slotOf(id) >= 0;
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // null when there is no such task
+    public Task get(long id) {
+        StampedLock stripe = stripe(id);
+        long s = structure.tryOptimisticRead();
+        long t = stripe.tryOptimisticRead();
+        if (s != 0 && t != 0) {
+            try {
+                Task task = read(id);
+                if (structure.validate(s) && stripe.validate(t)) return task;
+            } catch (RuntimeException e) {
+                // torn view of a structure a writer was changing, retry under the locks
+            }
+        }
+        s = structure.readLock();
+        try {
+            t = stripe.readLock();
+            try {
+                return read(id);
+            } finally {
+                stripe.unlockRead(t);
+            }
+        } finally {
+            structure.unlockRead(s);
+        }
+    }
+
+    private Task read(long id) {
+        int row = table.slotOf(id);
+        return row < 0 ? null : Task.of(table, row);
+    }
+
+    // tasks for ids[from, to), skipping ids deleted in the meantime
+    public List<Task> get(long[] ids, int from, int to) {
+        List<Task> out = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            Task task = get(ids[i]);
+            if (task != null) out.add(task);
+        }
+        return out;
+    }
+
+    // ===== Queries (ids in display order) =====
+
+    public long[] all() {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            int[] rows = table.liveSlots();
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, rows.length, rows.length, 0);
+            return ids(rows, rows.length);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    public long[] byCategory(String category) {
+        return indexed(ix -> ix.byCategory(category));
+    }
+
+    public long[] byPriority(int priority) {
+        return indexed(ix -> ix.byPriority(priority));
+    }
+
+    public long[] byStatus(byte status) {
+        return indexed(ix -> ix.byStatus(status));
+    }
+
+    public long[] byTag(String tag) {
+        return indexed(ix -> ix.byTag(tag));
+    }
+
+    // an index lookup reads its posting list and nothing else: scanned = returned
+    private long[] indexed(Function<TaskIndex, PostingList> lookup) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            int[] rows;
+            synchronized (indexes) {
+                rows = lookup.apply(indexes).toArray();
+            }
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, rows.length, rows.length, 0);
+            return ids(rows, rows.length);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // the k pending tasks to do next: highest priority, then earliest due, then shortest
+    public long[] next(int k) {
+        return fromIndex(ix -> ix.nextPending(k), false);
+    }
+
+    // ===== Dashboard =====
+
+    // Counters as of today. A new day only visits the tasks that fell due since the last read.
+    public TaskStats.Snapshot dashboard() {
+        long stamp = structure.readLock();
+        try {
+            synchronized (indexes) {
+                synchronized (statsLock) {
+                    int today = today();
+                    if (today < stats.asOf()) {
+                        // clock went back: recount
+                        stats = TaskStats.build(table, today);
+                    } else if (today > stats.asOf()) {
+                        stats.advance(table, indexes.dueBetween(stats.asOf(), today - 1), today);
+                    }
+                    return stats.snapshot();
+                }
+            }
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // ===== Date ranges (ids ordered by day; null = open end) =====
+
+    public long[] dueBetween(LocalDate from, LocalDate to) {
+        int lo = day(from, Integer.MIN_VALUE);
+        int hi = day(to, TaskTable.NO_DATE - 1);
+        return fromIndex(ix -> ix.dueBetween(lo, hi), false);
+    }
+
+    public long[] createdBetween(LocalDate from, LocalDate to) {
+        int lo = day(from, Integer.MIN_VALUE);
+        int hi = day(to, TaskTable.NO_DATE - 1);
+        return fromIndex(ix -> ix.createdBetween(lo, hi), false);
+    }
+
+    // pending tasks due before today
+    public long[] overdue(LocalDate today) {
+        int hi = day(today, TaskTable.NO_DATE) - 1;
+        return fromIndex(ix -> ix.dueBetween(Integer.MIN_VALUE, hi), true);
+    }
+
+    private long[] fromIndex(Function<TaskIndex, int[]> lookup, boolean pendingOnly) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            int[] rows;
+            synchronized (indexes) {
+                rows = lookup.apply(indexes);
+            }
+            int n = rows.length;
+            if (pendingOnly) {
+                n = 0;
+                for (int row : rows) {
+                    if (table.status(row) == TaskTable.STATUS_PENDING) rows[n++] = row;
+                }
+            }
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, rows.length, n, 0);
+            return ids(rows, n);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    private static int day(LocalDate date, int open) {
+        return date == null ? open : (int) Math.max(Integer.MIN_VALUE, Math.min(TaskTable.NO_DATE - 1, date.toEpochDay()));
+    }
+
+    public long[] sorted(TaskSorter.Key... keys) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            int[] rows = TaskSorter.sort(table, keys);
+            TaskMetrics.end(e, TaskMetrics.Op.SORT, rows.length, rows.length, 0);
+            return ids(rows, rows.length);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // one pass of the query's fused filter over the rows of the planner's choice
+    public TaskQuery.Result query(TaskQuery query) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            TaskQuery.Plan plan;
+            synchronized (indexes) {
+                plan = query.plan(indexes, table.size());
+            }
+            int[] rows = query.execute(table, plan);
+            // a plan without rows is a scan of the whole table
+            int scanned = plan.rows == null ? table.size() : plan.rows.length;
+            TaskMetrics.end(e, TaskMetrics.Op.FILTER, scanned, rows.length, 0);
+            return new TaskQuery.Result(ids(rows, rows.length), plan.source);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // ===== Full-text search =====
+
+    // tasks whose name and description contain every word of the query (ushq* = prefix),
+    // best BM25 score first, at most limit of them
+    public TaskTextIndex.Result search(String query, int limit) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.readLock();
+        try {
+            TaskTextIndex.Hits hits;
+            synchronized (textLock) {
+                hits = text.search(query, limit);
+            }
+            TaskMetrics.end(e, TaskMetrics.Op.SEARCH, hits.scanned, hits.rows.length, 0);
+            return new TaskTextIndex.Result(ids(hits.rows, hits.rows.length), hits.scores, hits.total);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    private long[] ids(int[] rows, int n) {
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) out[i] = table.id(rows[i]);
+        return out;
+    }
+
+    // ===== Writes =====
+
+    // returns the new task's id; task.getId() is ignored
+    public long add(Task task) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.writeLock();
+        try {
+            int row = insert(task);
+            if (shards != null) shards.changed(table, row);
+            indexes.add(table, row);
+            stats.add(table, row);
+            text.add(table, row);
+            if (journal != null) journal.add(table, row);
+            changes.incrementAndGet();
+            compactDictionaries();
+            compactJournal();
+            TaskMetrics.end(e, TaskMetrics.Op.ADD, 0, 0, 0);
+            return table.id(row);
+        } catch (RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.ADD);
+            throw ex;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    private int insert(Task task) {
+        return table.add(task.getName(), task.getDescription(), task.getPriority(),
+                TaskTable.parseStatus(task.getStatus()), task.getCategory(),
+                epochDay(task.getDueDate()), epochDay(task.getCeationDate()),
+                task.getEstimatedTime(), task.getTags(), task.getAssignedTo());
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? TaskTable.NO_DATE : (int) date.toEpochDay();
+    }
+
+    public boolean setStatus(long id, byte status) {
+        return update(id, new TaskUpdate().status(status));
+    }
+
+    // Applies every field of the update at once: concurrent readers of this task see
+    // either the old or the new values, never a mix. Returns false if the task is gone.
+    public boolean update(long id, TaskUpdate update) {
+        if (update.isEmpty()) return get(id) != null;
+        int[] cols = update.columns();
+        boolean indexed = update.touchesIndexes();
+        boolean counted = update.touchesStats();
+        boolean words = update.touchesText();
+        boolean moves = shards != null && update.value(shards.column()) != null;
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long s = structure.readLock();
+        try {
+            int row = table.slotOf(id);
+            if (row < 0) {
+                TaskMetrics.end(e, TaskMetrics.Op.EDIT, 0, 0, 0);
+                return false;
+            }
+            StampedLock stripe = stripe(id);
+            long t = stripe.writeLock();
+            try {
+                if (shards != null) shards.changed(table, row);
+                apply(row, update, cols, indexed, counted, words);
+                if (moves) shards.changed(table, row);
+                if (journal != null) {
+                    if (cols.length == 1) journal.edit(table, row, cols[0]);
+                    else journal.update(table, row, cols);
+                }
+                changes.incrementAndGet();
+            } finally {
+                stripe.unlockWrite(t);
+            }
+            TaskMetrics.end(e, TaskMetrics.Op.EDIT, 0, 0, 0);
+        } catch (RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.EDIT);
+            throw ex;
+        } finally {
+            structure.unlockRead(s);
+        }
+        // not under the read lock: both rewrite or copy the table, which needs edits kept out
+        if (table.dictionariesBloated() || (journal != null && journal.compactionDue())) {
+            long stamp = structure.writeLock();
+            try {
+                compactDictionaries();
+                compactJournal();
+            } finally {
+                structure.unlockWrite(stamp);
+            }
+        }
+        return true;
+    }
+
+    private void apply(int row, TaskUpdate update, int[] cols) {
+        for (int col : cols) table.setField(row, col, update.value(col));
+    }
+
+    // Each structure the update feeds is locked across the table write, so its readers never
+    // see the row half-moved; the others are left alone. Order: indexes, statsLock, textLock.
+    private void apply(int row, TaskUpdate update, int[] cols, boolean indexed, boolean counted, boolean words) {
+        if (indexed) {
+            synchronized (indexes) {
+                indexes.remove(table, row);
+                apply(row, update, cols, false, counted, words);
+                indexes.add(table, row);
+            }
+        } else if (counted) {
+            synchronized (statsLock) {
+                stats.remove(table, row);
+                apply(row, update, cols, false, false, words);
+                stats.add(table, row);
+            }
+        } else if (words) {
+            synchronized (textLock) {
+                text.remove(table, row);
+                apply(row, update, cols);
+                text.add(table, row);
+            }
+        } else {
+            apply(row, update, cols);
+        }
+    }
+
+    public boolean delete(long id) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.writeLock();
+        try {
+            int row = table.slotOf(id);
+            if (row < 0) {
+                TaskMetrics.end(e, TaskMetrics.Op.DELETE, 0, 0, 0);
+                return false;
+            }
+            if (shards != null) shards.changed(table, row);
+            indexes.remove(table, row);
+            stats.remove(table, row);
+            text.remove(table, row);
+            table.delete(row);
+            if (journal != null) journal.delete(id);
+            changes.incrementAndGet();
+            compactIfNeeded();
+            compactDictionaries();
+            compactJournal();
+            TaskMetrics.end(e, TaskMetrics.Op.DELETE, 0, 0, 0);
+            return true;
+        } catch (RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.DELETE);
+            throw ex;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    // ===== Batches =====
+
+    // Applies a transaction as a unit, under one structure write lock: readers see none or all
+    // of it. Every change is checked first (the task must exist and not be deleted earlier in
+    // the batch), so a bad one leaves the store untouched. A big batch updates only the table
+    // and rebuilds the id index, secondary indexes, counters and search index once at the end;
+    // a small one updates them per row, which is cheaper than a rebuild.
+    // Returns the ids of the added tasks, in order.
+    public long[] apply(List<TaskBatch.Change> batch) {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        long stamp = structure.writeLock();
+        try {
+            int adds = 0;
+            IdIndex gone = new IdIndex(16);
+            for (int i = 0; i < batch.size(); i++) {
+                TaskBatch.Change c = batch.get(i);
+                if (c.kind == TaskBatch.Change.ADD) {
+                    adds++;
+                } else if (table.slotOf(c.id) < 0 || gone.get(c.id) >= 0) {
+                    throw new IllegalArgumentException("change " + (i + 1) + ": no task with ID " + c.id);
+                } else if (c.kind == TaskBatch.Change.DELETE) {
+                    gone.put(c.id, 0);
+                }
+            }
+            boolean rebuild = batch.size() >= Math.max(REBUILD_MIN, table.size() / 8);
+            long[] added = new long[adds];
+            adds = 0;
+            for (TaskBatch.Change c : batch) {
+                if (c.kind == TaskBatch.Change.ADD) {
+                    int row = c.task != null ? insert(c.task) : table.addRaw(c.fields);
+                    if (shards != null) shards.changed(table, row);
+                    if (!rebuild) {
+                        indexes.add(table, row);
+                        stats.add(table, row);
+                        text.add(table, row);
+                    }
+                    if (journal != null) journal.add(table, row);
+                    added[adds++] = table.id(row);
+                    continue;
+                }
+                int row = table.slotOf(c.id);
+                if (shards != null) shards.changed(table, row);
+                if (!rebuild) {
+                    indexes.remove(table, row);
+                    stats.remove(table, row);
+                    text.remove(table, row);
+                }
+                if (c.kind == TaskBatch.Change.DELETE) {
+                    table.delete(row);
+                    if (journal != null) journal.delete(c.id);
+                    continue;
+                }
+                int[] cols = c.update.columns();
+                apply(row, c.update, cols);
+                if (shards != null) shards.changed(table, row);
+                if (!rebuild) {
+                    indexes.add(table, row);
+                    stats.add(table, row);
+                    text.add(table, row);
+                }
+                if (journal != null) {
+                    if (cols.length == 1) journal.edit(table, row, cols[0]);
+                    else journal.update(table, row, cols);
+                }
+            }
+            changes.addAndGet(batch.size());
+            if (rebuild) {
+                if (table.needsCompaction()) table.compact();
+                table.buildIdIndex();
+                indexes.rebuild(table);
+                stats = TaskStats.build(table, today());
+                text = TaskTextIndex.build(table);
+            } else {
+                compactIfNeeded();
+            }
+            compactDictionaries();
+            compactJournal();
+            TaskMetrics.end(e, TaskMetrics.Op.BATCH, batch.size(), adds, 0);
+            return added;
+        } catch (RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.BATCH);
+            throw ex;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    // caller holds the structure write lock (or is the only thread, during recovery)
+    private void compactIfNeeded() {
+        if (!table.needsCompaction()) return;
+        int[] before = table.liveSlots();
+        table.compact();
+        table.buildIdIndex();
+        indexes.rebuild(table);
+        text.compacted(before);
+    }
+
+    // Caller holds the structure write lock. Every derived structure is keyed by value, not
+    // by dictionary code, so nothing else has to change with the codes.
+    private void compactDictionaries() {
+        if (table.dictionariesBloated()) table.compactDictionaries();
+    }
+
+    // Caller holds the structure write lock. The journal never snapshots by itself: appends
+    // also come from update(), which only holds the read lock, and TaskTable.copy() needs every
+    // writer kept out. The copy and the switch to a new log happen under the same lock, so
+    // each change is in exactly one of the new snapshot and the new log.
+    private void compactJournal() {
+        if (journal != null && journal.compactionDue()) journal.compact(table.copy());
+    }
+
+    // Point-in-time copy. The write lock keeps edits out, so no task is half-updated in it;
+    // the copy shares segments with the table, so edits are only held up for O(segments).
+    public TaskTable snapshot() {
+        long stamp = structure.writeLock();
+        try {
+            return table.copy();
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    // ===== Persistence =====
+
+    public Path file() {
+        return file;
+    }
+
+    public boolean journaling() {
+        return journal != null;
+    }
+
+    public long journalGeneration() {
+        return journal == null ? -1 : journal.generation();
+    }
+
+    // Journal mode: replays logs and appends every change from now on. Otherwise leftover logs
+    // from an earlier journal session are applied and folded in by the next save().
+    // Call before other threads use the store.
+    public void openJournal(boolean journalMode) throws IOException {
+        TaskJournal.Handler replay = new TaskJournal.Handler() {
+            public void add(String[] fields) {
+                int row = table.addRaw(fields);
+                if (shards != null) shards.changed(table, row);
+                indexes.add(table, row);
+                stats.add(table, row);
+                text.add(table, row);
+            }
+
+            public void edit(long id, int col, String value) {
+                int row = slotOf(id);
+                if (shards != null) shards.changed(table, row);
+                indexes.remove(table, row);
+                stats.remove(table, row);
+                text.remove(table, row);
+                table.setField(row, col, value);
+                if (shards != null) shards.changed(table, row);
+                indexes.add(table, row);
+                stats.add(table, row);
+                text.add(table, row);
+            }
+
+            public void delete(long id) {
+                int row = slotOf(id);
+                if (shards != null) shards.changed(table, row);
+                indexes.remove(table, row);
+                stats.remove(table, row);
+                text.remove(table, row);
+                table.delete(row);
+                compactIfNeeded();
+            }
+
+            private int slotOf(long id) {
+                int row = table.slotOf(id);
+                if (row < 0) throw new IllegalArgumentException("unknown task id " + id);
+                return row;
+            }
+        };
+        long stamp = structure.writeLock();
+        try {
+            if (journalMode) {
+                journal = TaskJournal.open(file, generation, replay);
+            } else {
+                long last = TaskJournal.recover(file, generation, replay);
+                if (last >= 0) {
+                    generation = last + 1;
+                    // replayed changes are not in the data file yet
+                    changes.incrementAndGet();
+                }
+            }
+            table.buildIdIndex();
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    // adds, edits and deletes so far
+    public long changes() {
+        return changes.get();
+    }
+
+    // journal mode: force the log to disk; otherwise write a full snapshot of the table
+    public void save() throws IOException {
+        if (journal != null) {
+            TaskMetrics.OperationEvent e = TaskMetrics.start();
+            try {
+                journal.sync();
+            } catch (IOException ex) {
+                TaskMetrics.failed(e, TaskMetrics.Op.SAVE);
+                throw ex;
+            }
+            TaskMetrics.end(e, TaskMetrics.Op.SAVE, 0, 0, 0);
+            return;
+        }
+        synchronized (saving) {
+            write();
+        }
+    }
+
+    // Writes a snapshot unless nothing changed since the last save; false when skipped.
+    // The journal keeps its own snapshots, so journal mode always skips.
+    public boolean saveIfChanged() throws IOException {
+        if (journal != null) return false;
+        synchronized (saving) {
+            if (changes.get() == savedChanges) return false;
+            write();
+            return true;
+        }
+    }
+
+    // caller holds saving; edits carry on while the copy is written (temp file + rename)
+    private void write() throws IOException {
+        TaskMetrics.OperationEvent e = TaskMetrics.start();
+        try {
+            // read before the copy: a change that races in is saved now and again next time,
+            // never counted as saved without being in the file
+            long seen = changes.get();
+            TaskTable copy;
+            Set<String> dirty = null;
+            long bytes;
+            if (shards != null) {
+                // the shards changed up to this copy, taken under the same lock
+                long stamp = structure.writeLock();
+                try {
+                    copy = table.copy();
+                    dirty = shards.takeDirty();
+                } finally {
+                    structure.unlockWrite(stamp);
+                }
+                try {
+                    bytes = shards.save(copy, generation, dirty);
+                } catch (IOException | RuntimeException ex) {
+                    shards.restoreDirty(dirty);
+                    throw ex;
+                }
+            } else {
+                copy = snapshot();
+                TaskFormat.of(file).save(copy, file, generation);
+                bytes = Files.size(file);
+            }
+            // the search index of the same copy, numbered by row order in the file just written;
+            // built from the copy here, off the edit path, so the live index is never locked for it
+            Path words = TaskTextIndex.fileFor(file);
+            TaskTextIndex.build(copy).write(words, copy);
+            if (generation > 0) TaskJournal.deleteLogsBefore(file, generation);
+            savedChanges = seen;
+            TaskMetrics.end(e, TaskMetrics.Op.SAVE, copy.size(), copy.size(), bytes + Files.size(words));
+        } catch (IOException | RuntimeException ex) {
+            TaskMetrics.failed(e, TaskMetrics.Op.SAVE);
+            throw ex;
+        }
+    }
+
+    public void close() {
+        if (journal != null) journal.close();
+    }
+}
@@ -0,0 +1,227 @@
+package org.Task;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrency check for TaskStore: many threads add, read, update, filter and delete at once.
+//
+//   java org.Task.TaskStoreStress [threads] [seconds] [initialTasks] [--journal] [--mapped]
+//
+// Every update writes the same stamp into name, description and assignee in one
+// TaskUpdate, so a reader that sees two different stamps has caught a torn update.
+// At the end the live count and the status index are checked against what the
+// threads did. Exits with status 1 on any violation.
+//
+// --journal runs the store in journal mode in a temp directory, compacting every
+// todo.journal.compactBytes (64 KB unless set), so snapshots are taken while edits run.
+// Each thread then only updates its own ids (id % threads) and remembers the stamp it
+// wrote last; at the end every live task must show that stamp, and the snapshot plus
+// the logs, loaded again, must give back the same tasks.
+//
+// --mapped starts the store on a mapped file (TaskFormat.MAPPED), so the first write to
+// each segment copies it onto the heap while other threads read it from the mapping.
+public class TaskStoreStress {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int initial = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        List<String> flags = List.of(args).subList(Math.min(3, args.length), args.length);
+        boolean journal = flags.contains("--journal");
+        boolean mapped = flags.contains("--mapped");
+
+        Path file = Path.of("stress-unused.txt");
+        TaskTable generated = TaskDataGenerator.generate(initial, 42);
+        if (journal && System.getProperty("todo.journal.compactBytes") == null) {
+            System.setProperty("todo.journal.compactBytes", String.valueOf(64 << 10));
+        }
+        if (journal || mapped) {
+            file = Files.createTempDirectory("task-stress").resolve(mapped ? "tasks-data.map" : "tasks-data.txt");
+            TaskFormat.of(file).save(generated, file, 0);
+            if (mapped) generated = TaskFormat.MAPPED.load(file).table;
+        }
+        TaskStore store = new TaskStore(generated, file, 0);
+        if (journal) store.openJournal(true);
+        // journal mode: id -> stamp of the last update, written by the thread that owns the id
+        ConcurrentHashMap<Long, String> written = new ConcurrentHashMap<>();
+        // ids each thread may delete; shared so deletes race with reads and updates of the same task
+        ConcurrentHashMap<Long, Boolean> live = new ConcurrentHashMap<>();
+        for (long id : store.all()) live.put(id, Boolean.TRUE);
+
+        AtomicLong reads = new AtomicLong();
+        AtomicLong updates = new AtomicLong();
+        AtomicLong adds = new AtomicLong();
+        AtomicLong deletes = new AtomicLong();
+        AtomicLong scans = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = 1000 + t;
+            int owner = t;
+            Thread w = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    long maxId = store.size() + deletes.get() + 1;
+                    long id = 1 + random.nextLong(Math.max(1, maxId));
+                    int op = random.nextInt(100);
+                    try {
+                        if (op < 60) {
+                            Task task = store.get(id);
+                            if (task != null && !consistent(task)) {
+                                violations.incrementAndGet();
+                                System.out.println("Torn read: " + task);
+                            }
+                            reads.incrementAndGet();
+                        } else if (op < 85) {
+                            String stamp = "upd-" + random.nextInt(1_000_000);
+                            TaskUpdate u = new TaskUpdate().name(stamp).description(stamp).assignedTo(stamp)
+                                    .priority(1 + random.nextInt(5))
+                                    .status(random.nextBoolean() ? TaskTable.STATUS_DONE : TaskTable.STATUS_PENDING);
+                            if (journal) {
+                                id += Math.floorMod(owner - id, (long) threads);
+                                if (store.update(id, u)) written.put(id, stamp);
+                                updates.incrementAndGet();
+                            } else if (store.update(id, u)) {
+                                updates.incrementAndGet();
+                            }
+                        } else if (op < 92) {
+                            String stamp = "a" + random.nextInt(1_000_000);
+                            long newId = store.add(new Task(stamp, stamp, 3, "Pending", "Stress",
+                                    LocalDate.of(2025, 1, 1), LocalDate.of(2024, 12, 1), 1.0, "stress", stamp));
+                            live.put(newId, Boolean.TRUE);
+                            adds.incrementAndGet();
+                        } else if (op < 97) {
+                            if (live.remove(id) != null) {
+                                if (!store.delete(id)) {
+                                    violations.incrementAndGet();
+                                    System.out.println("Delete of live task " + id + " failed");
+                                }
+                                deletes.incrementAndGet();
+                            }
+                        } else {
+                            long[] ids = random.nextBoolean()
+                                    ? store.byPriority(1 + random.nextInt(5))
+                                    : store.byStatus(TaskTable.STATUS_DONE);
+                            for (int i = 0; i < Math.min(ids.length, 50); i++) {
+                                Task task = store.get(ids[i]);
+                                if (task != null && !consistent(task)) violations.incrementAndGet();
+                            }
+                            scans.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        violations.incrementAndGet();
+                        System.out.println(Thread.currentThread().getName() + ": " + e);
+                    }
+                }
+            }, "stress-" + t);
+            workers.add(w);
+            w.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        double secs = (System.nanoTime() - began) / 1e9;
+
+        // quiet now: counts and indexes must agree with each other
+        int expected = initial + (int) adds.get() - (int) deletes.get();
+        if (store.size() != expected || live.size() != expected) {
+            violations.incrementAndGet();
+            System.out.println("Size " + store.size() + ", map " + live.size() + ", expected " + expected);
+        }
+        long done = 0;
+        for (long id : store.all()) {
+            if ("Done".equals(store.get(id).getStatus())) done++;
+        }
+        if (done != store.byStatus(TaskTable.STATUS_DONE).length) {
+            violations.incrementAndGet();
+            System.out.println("Status index out of sync");
+        }
+
+        if (journal) {
+            for (var w : written.entrySet()) {
+                Task task = store.get(w.getKey());
+                if (task != null && !w.getValue().equals(task.getName())) {
+                    violations.incrementAndGet();
+                    System.out.println("Lost update of task " + w.getKey() + ": " + task.getName()
+                            + ", last written " + w.getValue());
+                }
+            }
+            violations.addAndGet(reload(store, file));
+        }
+        if (journal || mapped) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(file.toAbsolutePath().getParent())) {
+                for (Path p : files) Files.delete(p);
+            }
+            Files.delete(file.toAbsolutePath().getParent());
+        }
+
+        long ops = reads.get() + updates.get() + adds.get() + deletes.get() + scans.get();
+        System.out.printf("%d threads, %.1f s: %d ops (%.0f ops/s)%n", threads, secs, ops, ops / secs);
+        System.out.printf("reads %d, updates %d, adds %d, deletes %d, scans %d%n",
+                reads.get(), updates.get(), adds.get(), deletes.get(), scans.get());
+        System.out.println(violations.get() == 0 ? "OK" : "VIOLATIONS: " + violations.get());
+        if (violations.get() != 0) System.exit(1);
+    }
+
+    // closes the store (waiting for a running compaction), loads the newest snapshot and
+    // replays the logs after it, and compares every task with the live store
+    private static int reload(TaskStore store, Path file) throws IOException {
+        long generation = store.journalGeneration();
+        store.close();
+        TaskFileLoader.Result loaded = TaskFormat.of(file).load(file);
+        TaskStore again = new TaskStore(loaded.table, file, loaded.generation);
+        again.openJournal(false);
+        int bad = 0;
+        if (again.size() != store.size()) {
+            bad++;
+            System.out.println("Reloaded " + again.size() + " tasks, live store has " + store.size());
+        }
+        for (long id : store.all()) {
+            Task a = store.get(id);
+            Task b = again.get(id);
+            if (b == null || !same(a, b)) {
+                if (bad++ < 5) System.out.println("Reloaded task " + id + " differs: " + (b == null ? "missing" : b.getName())
+                        + " vs " + a.getName());
+            }
+        }
+        System.out.println("Journal: generation " + generation + ", snapshot generation " + loaded.generation
+                + ", reloaded " + again.size() + " tasks");
+        again.close();
+        return bad;
+    }
+
+    private static boolean same(Task a, Task b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getDescription(), b.getDescription())
+                && a.getPriority() == b.getPriority() && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getCategory(), b.getCategory()) && Objects.equals(a.getDueDate(), b.getDueDate())
+                && Objects.equals(a.getCeationDate(), b.getCeationDate())
+                && a.getEstimatedTime() == b.getEstimatedTime() && Objects.equals(a.getTags(), b.getTags())
+                && Objects.equals(a.getAssignedTo(), b.getAssignedTo());
+    }
+
+    // updates write one stamp into three fields; generated tasks have never been updated
+    private static boolean consistent(Task task) {
+        String n = task.getName();
+        if (!n.startsWith("upd-")) return true;
+        return n.equals(task.getDescription()) && n.equals(task.getAssignedTo());
+    }
+}
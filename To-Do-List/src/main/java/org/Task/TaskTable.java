@@ -0,0 +1,882 @@
+package org.Task;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+// Rows live in slots. A slot keeps its row until the task is deleted; deletes only mark a
+// tombstone, and compact() later squeezes the dead slots out. Every task also has a stable
+// 64-bit id that survives deletes, sorts, compaction and save/load.
+//
+// Storage is a directory of fixed-size segments (SEGMENT_SIZE rows, every column). Growing
+// allocates one more segment and never copies rows; slot s lives in segment s >>> SEGMENT_SHIFT
+// at offset s & SEGMENT_MASK. Empty segments at the end are released again after deletes.
+//
+// copy() is copy-on-write per segment: the copy shares every segment, and whichever table
+// writes to a shared segment first clones it. A copy costs O(segments) under the caller's
+// lock, and only the segments edited while it lives are ever duplicated.
+//
+// Category, tags and assignee repeat a handful of values over every row, so those columns
+// hold int codes into per-column TaskDictionary instances instead of one String per row.
+//
+// A table over a mapped file (mapped(), TaskFormat.MAPPED) starts with no segments on the
+// heap: a null segment below segmentCount is still in the file, and its rows are read
+// through TaskOffHeapTable's record layout. The first write to such a segment copies its
+// rows onto the heap, like the first write to a segment shared with a copy clones it.
+public class TaskTable {
+
+    // columns (same order as the data file)
+    static final int COL_NAME = 0;
+    static final int COL_DESC = 1;
+    static final int COL_PRIORITY = 2;
+    static final int COL_STATUS = 3;
+    static final int COL_CATEGORY = 4;
+    static final int COL_DUE = 5;
+    static final int COL_CREATED = 6;
+    static final int COL_EST_TIME = 7;
+    static final int COL_TAGS = 8;
+    static final int COL_ASSIGNED = 9;
+    static final int COL_ID = 10;
+
+    static final int COLS = 11;
+    // data files written before ids existed have no id column
+    static final int LEGACY_COLS = 10;
+
+    // status codes
+    static final byte STATUS_PENDING = 0;
+    static final byte STATUS_DONE = 1;
+
+    // epoch day used for missing/invalid dates, sorts after every real date
+    static final int NO_DATE = Integer.MAX_VALUE;
+
+    static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // compact once this fraction of the slots are tombstones
+    private static final double COMPACT_DEAD_RATIO = Double.parseDouble(
+            System.getProperty("todo.compact.deadRatio", "0.25"));
+    private static final int COMPACT_MIN_DEAD = 64;
+    // rebuild the dictionaries once they hold this many values more than twice what the
+    // rows used at the last rebuild (or load)
+    private static final int DICTIONARY_SLACK = Integer.getInteger("todo.dictionary.slack", 4096);
+
+    static final int SEGMENT_SHIFT = 12;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;     // 4096 rows
+    static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    // ===== Columnar storage =====
+
+    // one block of rows, all columns
+    private static final class Segment {
+        // the table epoch this segment was made in; older segments may be shared with copies
+        final int epoch;
+        final String[] names;
+        final String[] descs;
+        final int[] priorities;
+        final byte[] statuses;
+        final int[] categories;     // codes, see TaskDictionary
+        final int[] dueDays;
+        final int[] createdDays;
+        final double[] hours;
+        final int[] tags;
+        final int[] assigned;
+        final long[] ids;
+        final long[] live;          // bit per row
+
+        Segment(int epoch) {
+            this.epoch = epoch;
+            names = new String[SEGMENT_SIZE];
+            descs = new String[SEGMENT_SIZE];
+            priorities = new int[SEGMENT_SIZE];
+            statuses = new byte[SEGMENT_SIZE];
+            categories = new int[SEGMENT_SIZE];
+            dueDays = new int[SEGMENT_SIZE];
+            createdDays = new int[SEGMENT_SIZE];
+            hours = new double[SEGMENT_SIZE];
+            tags = new int[SEGMENT_SIZE];
+            assigned = new int[SEGMENT_SIZE];
+            ids = new long[SEGMENT_SIZE];
+            live = new long[SEGMENT_SIZE >>> 6];
+        }
+
+        // Private copy for a write. The arrays are filled before the final fields are set,
+        // so a thread that sees the new segment without a lock still sees all of its rows.
+        Segment(Segment src, int epoch) {
+            this.epoch = epoch;
+            names = src.names.clone();
+            descs = src.descs.clone();
+            priorities = src.priorities.clone();
+            statuses = src.statuses.clone();
+            categories = src.categories.clone();
+            dueDays = src.dueDays.clone();
+            createdDays = src.createdDays.clone();
+            hours = src.hours.clone();
+            tags = src.tags.clone();
+            assigned = src.assigned.clone();
+            ids = src.ids.clone();
+            live = src.live.clone();
+        }
+
+        // copies len rows (every column, not the live bits)
+        static void copy(Segment src, int from, Segment dst, int to, int len) {
+            System.arraycopy(src.names, from, dst.names, to, len);
+            System.arraycopy(src.descs, from, dst.descs, to, len);
+            System.arraycopy(src.priorities, from, dst.priorities, to, len);
+            System.arraycopy(src.statuses, from, dst.statuses, to, len);
+            System.arraycopy(src.categories, from, dst.categories, to, len);
+            System.arraycopy(src.dueDays, from, dst.dueDays, to, len);
+            System.arraycopy(src.createdDays, from, dst.createdDays, to, len);
+            System.arraycopy(src.hours, from, dst.hours, to, len);
+            System.arraycopy(src.tags, from, dst.tags, to, len);
+            System.arraycopy(src.assigned, from, dst.assigned, to, len);
+            System.arraycopy(src.ids, from, dst.ids, to, len);
+        }
+
+        // Rows base .. base + SEGMENT_SIZE - 1 of the table's mapped file, copied onto the heap
+        // for a write. Filled in a scratch segment first and then cloned, so the final fields
+        // publish the rows (see above).
+        static Segment fromFile(TaskTable table, int base, int epoch) {
+            Segment g = new Segment(epoch);
+            TaskOffHeapTable file = table.mapped;
+            int n = Math.max(0, Math.min(SEGMENT_SIZE, file.slots() - base));
+            for (int i = 0; i < n; i++) {
+                int row = base + i;
+                g.names[i] = file.name(row);
+                g.descs[i] = file.description(row);
+                g.priorities[i] = file.priority(row);
+                g.statuses[i] = file.status(row);
+                g.categories[i] = table.mappedCode(table.mappedCategories, COL_CATEGORY, row);
+                g.dueDays[i] = file.dueDay(row);
+                g.createdDays[i] = file.createdDay(row);
+                g.hours[i] = file.hours(row);
+                g.tags[i] = table.mappedCode(table.mappedTagLists, COL_TAGS, row);
+                g.assigned[i] = table.mappedCode(table.mappedAssignees, COL_ASSIGNED, row);
+                g.ids[i] = file.id(row);
+            }
+            for (int w = 0; w < g.live.length; w++) g.live[w] = file.liveWord((base >>> 6) + w);
+            return new Segment(g, epoch);
+        }
+
+        void clearText(int i) {
+            names[i] = null;
+            descs[i] = null;
+        }
+    }
+
+    // shared with copies of this table until compactDictionaries() replaces them
+    private TaskDictionary categories;
+    private TaskDictionary tagLists;
+    private TaskDictionary assignees;
+    private int dictionaryBase;    // distinct values in use after the last rebuild or load
+
+    private Segment[] segments;
+    private int segmentCount = 0;  // allocated segments, capacity = segmentCount * SEGMENT_SIZE
+    // segments made before the current epoch may be shared and are cloned before a write
+    private int epoch = 0;
+
+    private int slots = 0;         // slots in use, live or dead
+    private int liveCount = 0;
+    private long nextId = 1;
+    private IdIndex idIndex;       // built on first lookup
+    private TaskLazyText lazyText;  // descriptions still in the data file, shared with copies
+    // rows of the null segments (see mapped()), shared with copies; never written
+    private TaskOffHeapTable mapped;
+    // mapped coded columns: TaskOffHeapTable.textKey() -> code in the column's dictionary
+    private IdIndex mappedCategories;
+    private IdIndex mappedTagLists;
+    private IdIndex mappedAssignees;
+
+    // capacity is a hint for the segment directory; segments are allocated as rows arrive
+    public TaskTable(int capacity) {
+        this(capacity, new TaskDictionary(false), new TaskDictionary(true), new TaskDictionary(false));
+    }
+
+    private TaskTable(int capacity, TaskDictionary categories, TaskDictionary tagLists, TaskDictionary assignees) {
+        if (capacity <= 0) capacity = 50;
+        segments = new Segment[Math.max(4, segmentsFor(capacity))];
+        this.categories = categories;
+        this.tagLists = tagLists;
+        this.assignees = assignees;
+    }
+
+    // The rows of file, read in place: nothing but the distinct category, tags and assignee
+    // values is decoded, and only the segments written to later are ever copied onto the heap.
+    // The file must stay mapped for as long as this table or a copy of it is in use.
+    static TaskTable mapped(TaskOffHeapTable file) {
+        int n = file.slots();
+        TaskTable t = new TaskTable(n);
+        t.mapped = file;
+        t.segmentCount = segmentsFor(n);
+        t.slots = n;
+        t.liveCount = file.size();
+        t.nextId = Math.max(1, file.nextId());
+        t.mapCodes();
+        t.finishLoad();
+        return t;
+    }
+
+    // codes for the coded values of the rows still in the file, in the current dictionaries
+    private void mapCodes() {
+        IdIndex categoryCodes = new IdIndex(64);
+        IdIndex tagListCodes = new IdIndex(64);
+        IdIndex assigneeCodes = new IdIndex(64);
+        for (int s = 0; s < segmentCount; s++) {
+            if (segments[s] != null) continue;
+            int base = s << SEGMENT_SHIFT;
+            for (int row = base, end = Math.min(base + SEGMENT_SIZE, mapped.slots()); row < end; row++) {
+                mapCode(categoryCodes, COL_CATEGORY, row, categories);
+                mapCode(tagListCodes, COL_TAGS, row, tagLists);
+                mapCode(assigneeCodes, COL_ASSIGNED, row, assignees);
+            }
+        }
+        mappedCategories = categoryCodes;
+        mappedTagLists = tagListCodes;
+        mappedAssignees = assigneeCodes;
+    }
+
+    private void mapCode(IdIndex codes, int col, int row, TaskDictionary dictionary) {
+        long key = mapped.textKey(col, row);
+        if (key != 0 && codes.get(key) < 0) codes.put(key, dictionary.code(mapped.text(col, row)));
+    }
+
+    // code of a mapped row's value: one hash lookup, nothing decoded
+    private int mappedCode(IdIndex codes, int col, int row) {
+        long key = mapped.textKey(col, row);
+        return key == 0 ? 0 : codes.get(key);
+    }
+
+    private static int segmentsFor(int rows) {
+        return (int) (((long) rows + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private Segment seg(int row) {
+        return segments[row >>> SEGMENT_SHIFT];
+    }
+
+    // the row's segment, owned by this table, ready for a write
+    private Segment writable(int row) {
+        Segment g = segments[row >>> SEGMENT_SHIFT];
+        return g != null && g.epoch == epoch ? g : unshare(row >>> SEGMENT_SHIFT);
+    }
+
+    // the row's segment on the heap, for reading whole columns; a mapped one is copied in
+    private Segment loaded(int row) {
+        Segment g = segments[row >>> SEGMENT_SHIFT];
+        return g != null ? g : unshare(row >>> SEGMENT_SHIFT);
+    }
+
+    // edits of different rows run concurrently (TaskStore), so two of them may meet here
+    private synchronized Segment unshare(int s) {
+        Segment g = segments[s];
+        if (g == null) {
+            g = Segment.fromFile(this, s << SEGMENT_SHIFT, epoch);
+            segments[s] = g;
+        } else if (g.epoch != epoch) {
+            g = new Segment(g, epoch);
+            segments[s] = g;
+        }
+        return g;
+    }
+
+    // live tasks
+    public int size() {
+        return liveCount;
+    }
+
+    // slots in use (live + tombstones); valid slot numbers are 0 .. slots() - 1
+    public int slots() {
+        return slots;
+    }
+
+    public int capacity() {
+        return segmentCount << SEGMENT_SHIFT;
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    // returns true when a segment had to be added
+    public boolean ensureCapacity() {
+        if (slots < capacity()) return false;
+        addSegment();
+        return true;
+    }
+
+    public void reserve(int minCapacity) {
+        while (capacity() < minCapacity) addSegment();
+    }
+
+    private void addSegment() {
+        if (segmentCount == segments.length) {
+            // only the directory is copied, never the rows
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        segments[segmentCount++] = new Segment(epoch);
+    }
+
+    // Drops empty segments past the last used slot, keeping one spare so a table that
+    // hovers around a segment boundary does not allocate and free on every add/delete.
+    private void releaseTrailingSegments() {
+        int keep = segmentsFor(slots) + 1;
+        while (segmentCount > keep) {
+            segments[--segmentCount] = null;
+        }
+        if (segments.length > 8 && segmentCount < segments.length / 4) {
+            segments = Arrays.copyOf(segments, segments.length / 2);
+        }
+    }
+
+    // ===== Rows =====
+
+    // new task, gets the next id
+    public int add(String name, String desc, int priority, byte status, String category,
+                   int dueDay, int createdDay, double estHours, String tagList, String assignedTo) {
+        return addWithId(nextId, name, desc, priority, status, category, dueDay, createdDay,
+                estHours, tagList, assignedTo);
+    }
+
+    // id 0 means "not known yet"; finishLoad() hands those out
+    public int addWithId(long id, String name, String desc, int priority, byte status, String category,
+                         int dueDay, int createdDay, double estHours, String tagList, String assignedTo) {
+        ensureCapacity();
+        int row = slots++;
+        Segment g = writable(row);
+        int i = row & SEGMENT_MASK;
+        g.names[i] = name;
+        g.descs[i] = desc;
+        g.priorities[i] = priority;
+        g.statuses[i] = status;
+        g.categories[i] = categories.code(category);
+        g.dueDays[i] = dueDay;
+        g.createdDays[i] = createdDay;
+        g.hours[i] = estHours;
+        g.tags[i] = tagLists.code(tagList);
+        g.assigned[i] = assignees.code(assignedTo);
+        g.ids[i] = id;
+        g.live[i >>> 6] |= 1L << i;
+        liveCount++;
+        if (id >= nextId) nextId = id + 1;
+        if (idIndex != null && id != 0) idIndex.put(id, row);
+        return row;
+    }
+
+    // bulk append used by the loader to stitch parsed chunks together (chunks have no tombstones);
+    // the chunk's dictionary codes are translated to this table's codes
+    public void appendAll(TaskTable other, int count) {
+        reserve(slots + count);
+        copyRows(other, 0, this, slots, count);
+        int[] category = categories.translate(other.categories);
+        int[] tagList = tagLists.translate(other.tagLists);
+        int[] assignee = assignees.translate(other.assignees);
+        for (int row = slots; row < slots + count; row++) {
+            Segment g = writable(row);
+            int i = row & SEGMENT_MASK;
+            g.live[i >>> 6] |= 1L << i;
+            g.categories[i] = category[g.categories[i]];
+            g.tags[i] = tagList[g.tags[i]];
+            g.assigned[i] = assignee[g.assigned[i]];
+        }
+        slots += count;
+        liveCount += count;
+        idIndex = null;
+    }
+
+    // copies rows in runs that stay inside one source and one target segment;
+    // safe within one table as long as to <= from
+    private static void copyRows(TaskTable src, int from, TaskTable dst, int to, int count) {
+        while (count > 0) {
+            int len = Math.min(count, Math.min(SEGMENT_SIZE - (from & SEGMENT_MASK),
+                    SEGMENT_SIZE - (to & SEGMENT_MASK)));
+            Segment.copy(src.loaded(from), from & SEGMENT_MASK, dst.writable(to), to & SEGMENT_MASK, len);
+            from += len;
+            to += len;
+            count -= len;
+        }
+    }
+
+    // after a bulk load: give rows without an id (or with a duplicate one) a fresh id
+    // and set nextId past the largest id seen; returns the number of ids handed out
+    public int finishLoad() {
+        long max = 0;
+        for (int row = nextLive(0); row >= 0; row = nextLive(row + 1)) max = Math.max(max, id(row));
+        nextId = Math.max(nextId, max + 1);
+        IdIndex seen = new IdIndex(liveCount);
+        int assignedIds = 0;
+        for (int row = nextLive(0); row >= 0; row = nextLive(row + 1)) {
+            long rowId = id(row);
+            if (rowId == 0 || seen.get(rowId) >= 0) {
+                rowId = nextId++;
+                writable(row).ids[row & SEGMENT_MASK] = rowId;
+                assignedIds++;
+            }
+            seen.put(rowId, row);
+        }
+        idIndex = seen;
+        dictionaryBase = dictionaryValues();
+        return assignedIds;
+    }
+
+    // parses a raw row (one string per column, id last and optional) once, at insert time
+    public int addRaw(String[] fields) {
+        long id = fields.length > COL_ID ? parseId(fields[COL_ID]) : 0;
+        if (id == 0 || slotOf(id) >= 0) id = nextId;
+        return addWithId(id, fields[COL_NAME], fields[COL_DESC],
+                parsePriority(fields[COL_PRIORITY]),
+                parseStatus(fields[COL_STATUS]),
+                fields[COL_CATEGORY],
+                parseDay(fields[COL_DUE]),
+                parseDay(fields[COL_CREATED]),
+                parseHours(fields[COL_EST_TIME]),
+                fields[COL_TAGS], fields[COL_ASSIGNED]);
+    }
+
+    // O(1): the slot becomes a tombstone until the next compact()
+    public void delete(int row) {
+        if (!isLive(row)) return;
+        Segment g = writable(row);
+        int i = row & SEGMENT_MASK;
+        g.live[i >>> 6] &= ~(1L << i);
+        liveCount--;
+        if (idIndex != null) idIndex.remove(g.ids[i]);
+        // drop references so removed strings can be collected
+        g.clearText(i);
+        // tombstones at the very end need no compaction, just forget them
+        if (row == slots - 1) {
+            while (slots > 0 && !isLive(slots - 1)) slots--;
+            releaseTrailingSegments();
+        }
+    }
+
+    public boolean needsCompaction() {
+        int dead = slots - liveCount;
+        return dead >= COMPACT_MIN_DEAD && dead >= slots * COMPACT_DEAD_RATIO;
+    }
+
+    // Moves live rows down over the tombstones, keeping their order, then releases the
+    // segments that became empty. Slot numbers change, ids do not; anything keyed by slot
+    // must be rebuilt.
+    public void compact() {
+        int to = 0;
+        for (int from = nextLive(0); from >= 0; from = nextLive(from)) {
+            int end = from;
+            while (end < slots && isLive(end)) end++;
+            if (from != to) copyRows(this, from, this, to, end - from);
+            to += end - from;
+            from = end;
+        }
+        for (int row = to; row < slots; row++) {
+            Segment g = writable(row);
+            g.clearText(row & SEGMENT_MASK);
+            g.ids[row & SEGMENT_MASK] = 0;
+        }
+        for (int s = 0; s < segmentCount; s++) {
+            int base = s << SEGMENT_SHIFT;
+            // segments that are all live before and after keep their bits (and stay shared)
+            if (base + SEGMENT_SIZE <= to && allLive(s)) continue;
+            long[] live = writable(base).live;
+            for (int w = 0; w < live.length; w++) {
+                int start = base + (w << 6);
+                int n = Math.max(0, Math.min(64, to - start));
+                live[w] = n == 64 ? -1L : (1L << n) - 1;
+            }
+        }
+        slots = to;
+        liveCount = to;
+        idIndex = null;
+        releaseTrailingSegments();
+    }
+
+    private boolean allLive(int s) {
+        for (int w = s << (SEGMENT_SHIFT - 6), end = w + (SEGMENT_SIZE >>> 6); w < end; w++) {
+            if (wordAt(w) != -1L) return false;
+        }
+        return true;
+    }
+
+    // Point-in-time copy: shares the segments (copy-on-write, see above), strings and
+    // dictionaries. The caller must keep writers out while it runs; afterwards both tables
+    // can be used independently, from different threads.
+    public TaskTable copy() {
+        TaskTable c = new TaskTable(1, categories, tagLists, assignees);
+        // from now on every existing segment is shared: both tables clone before writing
+        epoch++;
+        c.epoch = epoch;
+        c.segments = segments.clone();
+        c.segmentCount = segmentCount;
+        c.slots = slots;
+        c.liveCount = liveCount;
+        c.nextId = nextId;
+        c.lazyText = lazyText;
+        c.mapped = mapped;
+        c.mappedCategories = mappedCategories;
+        c.mappedTagLists = mappedTagLists;
+        c.mappedAssignees = mappedAssignees;
+        c.dictionaryBase = dictionaryBase;
+        return c;
+    }
+
+    void setLazyText(TaskLazyText lazyText) {
+        this.lazyText = lazyText;
+    }
+
+    public TaskLazyText lazyText() {
+        return lazyText;
+    }
+
+    // true while the description is only in the lazily loaded file (see TaskLazyText)
+    boolean descriptionUnloaded(int row) {
+        Segment g = seg(row);
+        return g != null && g.descs[row & SEGMENT_MASK] == TaskLazyText.UNLOADED;
+    }
+
+    // String.hashCode() of the description (0 for none), without reading it in when it is lazy
+    int descriptionHash(int row) {
+        Segment g = seg(row);
+        String s = g != null ? g.descs[row & SEGMENT_MASK] : mapped.description(row);
+        if (s == TaskLazyText.UNLOADED) return lazyText.descriptionHash(id(row));
+        return s == null ? 0 : s.hashCode();
+    }
+
+    // ===== Ids and liveness =====
+
+    public boolean isLive(int row) {
+        return row >= 0 && row < slots && (wordAt(row >>> 6) & (1L << row)) != 0;
+    }
+
+    // next live slot at or after row, or -1
+    public int nextLive(int row) {
+        if (row < 0) row = 0;
+        if (row >= slots) return -1;
+        int w = row >>> 6;                       // word number over the whole table
+        int words = (slots + 63) >>> 6;
+        long bits = wordAt(w) & (-1L << row);
+        while (true) {
+            if (bits != 0) {
+                int slot = (w << 6) + Long.numberOfTrailingZeros(bits);
+                return slot < slots ? slot : -1;
+            }
+            if (++w >= words) return -1;
+            bits = wordAt(w);
+        }
+    }
+
+    private long wordAt(int w) {
+        Segment g = segments[w >>> (SEGMENT_SHIFT - 6)];
+        return g != null ? g.live[w & (SEGMENT_MASK >>> 6)] : mapped.liveWord(w);
+    }
+
+    // live slots in slot order
+    public int[] liveSlots() {
+        int[] out = new int[liveCount];
+        int n = 0;
+        for (int row = nextLive(0); row >= 0; row = nextLive(row + 1)) out[n++] = row;
+        return out;
+    }
+
+    public long id(int row) {
+        Segment g = seg(row);
+        return g != null ? g.ids[row & SEGMENT_MASK] : mapped.id(row);
+    }
+
+    public long nextId() {
+        return nextId;
+    }
+
+    // slot of a live task, or -1
+    public int slotOf(long id) {
+        buildIdIndex();
+        return idIndex.get(id);
+    }
+
+    // builds the id index now instead of on the next lookup, so that later lookups
+    // never write (TaskStore reads optimistically, without a lock)
+    void buildIdIndex() {
+        if (idIndex != null) return;
+        IdIndex index = new IdIndex(liveCount);
+        for (int row = nextLive(0); row >= 0; row = nextLive(row + 1)) {
+            long rowId = id(row);
+            if (rowId != 0) index.put(rowId, row);
+        }
+        idIndex = index;
+    }
+
+    // ===== Typed access =====
+
+    // rows of a null segment come from the mapped file (see mapped())
+    public String name(int row) {
+        Segment g = seg(row);
+        return g != null ? g.names[row & SEGMENT_MASK] : mapped.name(row);
+    }
+    public String description(int row) {
+        Segment g = seg(row);
+        if (g == null) return mapped.description(row);
+        String s = g.descs[row & SEGMENT_MASK];
+        return s == TaskLazyText.UNLOADED ? lazyText.description(id(row)) : s;
+    }
+    public int priority(int row) {
+        Segment g = seg(row);
+        return g != null ? g.priorities[row & SEGMENT_MASK] : mapped.priority(row);
+    }
+    public byte status(int row) {
+        Segment g = seg(row);
+        return g != null ? g.statuses[row & SEGMENT_MASK] : mapped.status(row);
+    }
+    public String category(int row) { return categories.value(categoryCode(row)); }
+    public int dueDay(int row) {
+        Segment g = seg(row);
+        return g != null ? g.dueDays[row & SEGMENT_MASK] : mapped.dueDay(row);
+    }
+    public int createdDay(int row) {
+        Segment g = seg(row);
+        return g != null ? g.createdDays[row & SEGMENT_MASK] : mapped.createdDay(row);
+    }
+    public double hours(int row) {
+        Segment g = seg(row);
+        return g != null ? g.hours[row & SEGMENT_MASK] : mapped.hours(row);
+    }
+    public String tags(int row) { return tagLists.value(tagsCode(row)); }
+    public String assignedTo(int row) { return assignees.value(assigneeCode(row)); }
+
+    public void setName(int row, String v) { writable(row).names[row & SEGMENT_MASK] = v; }
+    public void setDescription(int row, String v) { writable(row).descs[row & SEGMENT_MASK] = v; }
+    public void setPriority(int row, int v) { writable(row).priorities[row & SEGMENT_MASK] = v; }
+    public void setStatus(int row, byte v) { writable(row).statuses[row & SEGMENT_MASK] = v; }
+    public void setCategory(int row, String v) { writable(row).categories[row & SEGMENT_MASK] = categories.code(v); }
+    public void setDueDay(int row, int v) { writable(row).dueDays[row & SEGMENT_MASK] = v; }
+    public void setCreatedDay(int row, int v) { writable(row).createdDays[row & SEGMENT_MASK] = v; }
+    public void setHours(int row, double v) { writable(row).hours[row & SEGMENT_MASK] = v; }
+    public void setTags(int row, String v) { writable(row).tags[row & SEGMENT_MASK] = tagLists.code(v); }
+    public void setAssignedTo(int row, String v) { writable(row).assigned[row & SEGMENT_MASK] = assignees.code(v); }
+
+    // ===== Dictionary-coded columns =====
+
+    public int categoryCode(int row) {
+        Segment g = seg(row);
+        return g != null ? g.categories[row & SEGMENT_MASK] : mappedCode(mappedCategories, COL_CATEGORY, row);
+    }
+    public int tagsCode(int row) {
+        Segment g = seg(row);
+        return g != null ? g.tags[row & SEGMENT_MASK] : mappedCode(mappedTagLists, COL_TAGS, row);
+    }
+    public int assigneeCode(int row) {
+        Segment g = seg(row);
+        return g != null ? g.assigned[row & SEGMENT_MASK] : mappedCode(mappedAssignees, COL_ASSIGNED, row);
+    }
+
+    // TaskIndex.key of the value, shared, never rebuilt
+    public String categoryKey(int row) { return categories.key(categoryCode(row)); }
+    public String assigneeKey(int row) { return assignees.key(assigneeCode(row)); }
+
+    // distinct tag keys of the row, as TaskIndex.tagTokens (shared array, do not modify)
+    String[] tagKeys(int row) { return tagLists.tokens(tagsCode(row)); }
+
+    // key code of a coded column's value (compare with dictionary(col).findKey(...))
+    public int keyCode(int row, int col) {
+        switch (col) {
+            case COL_CATEGORY: return categories.keyOf(categoryCode(row));
+            case COL_ASSIGNED: return assignees.keyOf(assigneeCode(row));
+            case COL_TAGS: return tagLists.keyOf(tagsCode(row));
+            default: throw new IllegalArgumentException("Column is not dictionary coded: " + col);
+        }
+    }
+
+    // the row's tag list contains the tag with this key code
+    public boolean hasTag(int row, int tagKey) {
+        return tagLists.hasToken(tagsCode(row), tagKey);
+    }
+
+    // Values are never dropped from a dictionary as rows stop using them (see TaskDictionary),
+    // so a long-running store that is sent ever new assignees or tag lists would grow them
+    // without bound. True once they have grown well past what the rows used last time.
+    public boolean dictionariesBloated() {
+        return dictionaryValues() > 2L * dictionaryBase + DICTIONARY_SLACK;
+    }
+
+    private int dictionaryValues() {
+        return categories.size() + tagLists.size() + assignees.size();
+    }
+
+    // Replaces the dictionaries with new ones holding only the values of live rows, and
+    // recodes every row. Copies keep the old dictionaries along with their (now unshared)
+    // segments, so they stay valid. The caller must keep readers and writers out.
+    public void compactDictionaries() {
+        TaskDictionary newCategories = new TaskDictionary(false);
+        TaskDictionary newTagLists = new TaskDictionary(true);
+        TaskDictionary newAssignees = new TaskDictionary(false);
+        int[] categoryMap = new int[categories.size()];
+        int[] tagListMap = new int[tagLists.size()];
+        int[] assigneeMap = new int[assignees.size()];
+        for (int s = 0; s < segmentCount; s++) {
+            int base = s << SEGMENT_SHIFT;
+            if (base >= slots) break;
+            // rows still in the mapped file get their new codes from mapCodes() below
+            if (segments[s] == null) continue;
+            Segment g = writable(base);
+            for (int i = 0, n = Math.min(SEGMENT_SIZE, slots - base); i < n; i++) {
+                if (!isLive(base + i)) {
+                    // tombstones keep no codes into the old dictionaries
+                    g.categories[i] = g.tags[i] = g.assigned[i] = 0;
+                    continue;
+                }
+                g.categories[i] = recode(g.categories[i], categories, newCategories, categoryMap);
+                g.tags[i] = recode(g.tags[i], tagLists, newTagLists, tagListMap);
+                g.assigned[i] = recode(g.assigned[i], assignees, newAssignees, assigneeMap);
+            }
+        }
+        categories = newCategories;
+        tagLists = newTagLists;
+        assignees = newAssignees;
+        if (mapped != null) mapCodes();
+        dictionaryBase = dictionaryValues();
+    }
+
+    // map[old code] = new code, 0 until the value is first seen (0 is null in both)
+    private static int recode(int code, TaskDictionary from, TaskDictionary to, int[] map) {
+        if (code == 0) return 0;
+        int c = map[code];
+        if (c == 0) c = map[code] = to.code(from.value(code));
+        return c;
+    }
+
+    // dictionary of a coded column, or null for the other columns
+    public TaskDictionary dictionary(int col) {
+        switch (col) {
+            case COL_CATEGORY: return categories;
+            case COL_TAGS: return tagLists;
+            case COL_ASSIGNED: return assignees;
+            default: return null;
+        }
+    }
+
+    // text form of a column, as shown in the table and written to the file
+    public String field(int row, int col) {
+        switch (col) {
+            case COL_NAME: return name(row);
+            case COL_DESC: return description(row);
+            case COL_PRIORITY: return String.valueOf(priority(row));
+            case COL_STATUS: return statusName(status(row));
+            case COL_CATEGORY: return category(row);
+            case COL_DUE: return formatDay(dueDay(row));
+            case COL_CREATED: return formatDay(createdDay(row));
+            case COL_EST_TIME: return String.valueOf(hours(row));
+            case COL_TAGS: return tags(row);
+            case COL_ASSIGNED: return assignedTo(row);
+            case COL_ID: return String.valueOf(id(row));
+            default: throw new IllegalArgumentException("Unknown column: " + col);
+        }
+    }
+
+    // sets a column from its text form (file, journal); ids cannot be changed
+    public void setField(int row, int col, String value) {
+        switch (col) {
+            case COL_NAME: setName(row, value); break;
+            case COL_DESC: setDescription(row, value); break;
+            case COL_PRIORITY: setPriority(row, parsePriority(value)); break;
+            case COL_STATUS: setStatus(row, parseStatus(value)); break;
+            case COL_CATEGORY: setCategory(row, value); break;
+            case COL_DUE: setDueDay(row, parseDay(value)); break;
+            case COL_CREATED: setCreatedDay(row, parseDay(value)); break;
+            case COL_EST_TIME: setHours(row, parseHours(value)); break;
+            case COL_TAGS: setTags(row, value); break;
+            case COL_ASSIGNED: setAssignedTo(row, value); break;
+            default: throw new IllegalArgumentException("Unknown column: " + col);
+        }
+    }
+
+    // ===== Parsing (done once per value, never in filters or sorts) =====
+
+    static byte parseStatus(String s) {
+        return (s != null && s.trim().equalsIgnoreCase("Done")) ? STATUS_DONE : STATUS_PENDING;
+    }
+
+    static String statusName(byte status) {
+        return status == STATUS_DONE ? "Done" : "Pending";
+    }
+
+    // positive decimal id, 0 when missing or malformed
+    static long parseId(String s) {
+        if (s == null) return 0;
+        s = s.trim();
+        int n = s.length();
+        if (n == 0 || n > 18) return 0;
+        long v = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    static int parsePriority(String s) {
+        if (s == null) return 0;
+        s = s.trim();
+        int n = s.length();
+        if (n == 0 || n > 9) return 0;
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    static double parseHours(String s) {
+        if (s == null || s.isBlank()) return 0;
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // yyyy-MM-dd -> epoch day without going through LocalDate or exceptions
+    static int parseDay(String s) {
+        if (s == null) return NO_DATE;
+        s = s.trim();
+        if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-') return NO_DATE;
+        int y = digits(s, 0, 4);
+        int m = digits(s, 5, 7);
+        int d = digits(s, 8, 10);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > daysInMonth(y, m)) return NO_DATE;
+        return epochDay(y, m, d);
+    }
+
+    static String formatDay(int epochDay) {
+        if (epochDay == NO_DATE) return "";
+        return LocalDate.ofEpochDay(epochDay).format(DATE_FMT);
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    static int daysInMonth(int y, int m) {
+        switch (m) {
+            case 2: return isLeap(y) ? 29 : 28;
+            case 4: case 6: case 9: case 11: return 30;
+            default: return 31;
+        }
+    }
+
+    private static boolean isLeap(int y) {
+        return (y % 4 == 0 && y % 100 != 0) || y % 400 == 0;
+    }
+
+    // days since 1970-01-01 (proleptic Gregorian), same value as LocalDate.toEpochDay()
+    static int epochDay(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+}
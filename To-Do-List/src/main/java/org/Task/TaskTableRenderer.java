@@ -0,0 +1,154 @@
+package org.Task;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+
+// Fixed-width task table output. Rows are formatted into one reusable StringBuilder and
+// written through a single buffered writer, so a page costs one flush instead of a printf per row.
+public class TaskTableRenderer {
+
+    static final String LINE = "-".repeat(110);
+
+    private final PrintWriter out;
+    private final StringBuilder sb = new StringBuilder(256);
+
+    public TaskTableRenderer(Writer out) {
+        this.out = new PrintWriter(out, false);
+    }
+
+    // System.out is not closed or replaced, only written through a bigger buffer
+    public static TaskTableRenderer toStdout() {
+        return new TaskTableRenderer(new BufferedWriter(
+                new OutputStreamWriter(System.out, System.out.charset()), 1 << 16));
+    }
+
+    // ===== Output =====
+
+    // header, the tasks, closing line
+    public void page(List<Task> tasks) {
+        out.println(LINE);
+        out.println(header());
+        out.println(LINE);
+        for (Task task : tasks) {
+            sb.setLength(0);
+            appendRow(sb, task);
+            out.append(sb).append('\n');
+        }
+        out.println(LINE);
+        out.flush();
+    }
+
+    public void countOnly(int count) {
+        out.println("Matching tasks: " + count);
+        out.flush();
+    }
+
+    // ===== Formatting =====
+
+    static String header() {
+        StringBuilder h = new StringBuilder(128);
+        pad(h, "ID", 6);
+        pad(h, "Name", 12);
+        pad(h, "Description", 18);
+        pad(h, "Pr", 5);
+        pad(h, "Status", 10);
+        pad(h, "Category", 10);
+        pad(h, "Due", 12);
+        pad(h, "Created", 12);
+        pad(h, "Hours", 7);
+        pad(h, "Tags", 14);
+        pad(h, "Assigned", 12);
+        h.setLength(h.length() - 1);
+        return h.toString();
+    }
+
+    // one row, same layout as the old printf("%-6d %-12s ...") with cut() on the text columns
+    static void appendRow(StringBuilder sb, Task task) {
+        int start = sb.length();
+        sb.append(task.getId());
+        fill(sb, start, 6);
+
+        cut(sb, task.getName(), 12);
+        cut(sb, task.getDescription(), 18);
+
+        start = sb.length();
+        sb.append(task.getPriority());
+        fill(sb, start, 5);
+
+        cut(sb, task.getStatus(), 10);
+        cut(sb, task.getCategory(), 10);
+
+        start = sb.length();
+        appendDate(sb, task.getDueDate());
+        fill(sb, start, 12);
+        start = sb.length();
+        appendDate(sb, task.getCeationDate());
+        fill(sb, start, 12);
+
+        start = sb.length();
+        sb.append(task.getEstimatedTime());
+        if (sb.length() - start > 7) {
+            sb.setLength(start + 6);
+            sb.append('.');
+        }
+        fill(sb, start, 7);
+
+        cut(sb, task.getTags(), 14);
+        cut(sb, task.getAssignedTo(), 12);
+        sb.setLength(sb.length() - 1);
+    }
+
+    // trimmed text, shortened to max - 1 chars plus '.' when too long, padded to max plus a space
+    private static void cut(StringBuilder sb, String s, int max) {
+        int start = sb.length();
+        if (s != null) {
+            int from = 0;
+            int to = s.length();
+            while (from < to && s.charAt(from) <= ' ') from++;
+            while (to > from && s.charAt(to - 1) <= ' ') to--;
+            if (to - from <= max) {
+                sb.append(s, from, to);
+            } else {
+                sb.append(s, from, from + max - 1).append('.');
+            }
+        }
+        fill(sb, start, max);
+    }
+
+    private static void pad(StringBuilder sb, String s, int width) {
+        int start = sb.length();
+        sb.append(s);
+        fill(sb, start, width);
+    }
+
+    // pads what was written since start to width, then adds the column separator
+    private static void fill(StringBuilder sb, int start, int width) {
+        for (int n = sb.length() - start; n < width; n++) sb.append(' ');
+        sb.append(' ');
+    }
+
+    // yyyy-MM-dd from the date fields, no formatter per row
+    static void appendDate(StringBuilder sb, LocalDate date) {
+        if (date == null) return;
+        int y = date.getYear();
+        if (y < 0 || y > 9999) {
+            sb.append(date.format(TaskTable.DATE_FMT));
+            return;
+        }
+        digits(sb, y, 4);
+        sb.append('-');
+        digits(sb, date.getMonthValue(), 2);
+        sb.append('-');
+        digits(sb, date.getDayOfMonth(), 2);
+    }
+
+    private static void digits(StringBuilder sb, int v, int width) {
+        for (int div = width == 4 ? 1000 : 10; div > 0; div /= 10) {
+            sb.append((char) ('0' + v / div % 10));
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package org.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Full-text index over task names and descriptions: word -> rows that contain it and how
+// often (a word in the name counts twice), plus every row's length in words. Keyed by slot
+// like TaskIndex: add(row) after inserting, remove(row) before changing or deleting a row,
+// compacted(oldSlots) after TaskTable.compact().
+//
+// Words are runs of Unicode letters and digits, lower-cased and folded to their base letters
+// (ë -> e, ç -> c), so "blej ushqime" and "Blej Ushqimë" find each other. A search needs every
+// word of the query; "ushq*" stands for any word starting with "ushq". Hits are ranked by BM25.
+//
+// write() saves the index of a snapshot next to its data file, keyed by row order in that
+// file; load() reads it back at startup instead of tokenizing every task again.
+public class TaskTextIndex {
+
+    // BM25 parameters (the usual defaults)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 2;
+
+    private static final int MAGIC = 0x54444654;    // "TDFT"
+    private static final int VERSION = 2;           // 2: words as varint length + UTF-8
+
+    // sorted, so a prefix is one sub-map
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final BitSet indexed = new BitSet();
+    private int[] lengths = new int[0];             // slot -> words in the row
+    private int rows;
+    private long totalLength;
+
+    // rows (ascending) with the times the word occurs in each
+    private static final class Postings {
+        int[] rows = new int[2];
+        int[] counts = new int[2];
+        int size;
+
+        void add(int row, int count) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            int pos = size;
+            // appends are the common case (new rows, loads)
+            if (size > 0 && rows[size - 1] > row) {
+                pos = -Arrays.binarySearch(rows, 0, size, row) - 1;
+                System.arraycopy(rows, pos, rows, pos + 1, size - pos);
+                System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+            }
+            rows[pos] = row;
+            counts[pos] = count;
+            size++;
+        }
+
+        void remove(int row) {
+            int pos = Arrays.binarySearch(rows, 0, size, row);
+            if (pos < 0) return;
+            System.arraycopy(rows, pos + 1, rows, pos, size - pos - 1);
+            System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+            size--;
+        }
+
+        // times the word occurs in row, 0 when it does not
+        int count(int row) {
+            int pos = Arrays.binarySearch(rows, 0, size, row);
+            return pos < 0 ? 0 : counts[pos];
+        }
+    }
+
+    public static TaskTextIndex build(TaskTable table) {
+        TaskTextIndex index = new TaskTextIndex();
+        for (int row = table.nextLive(0); row >= 0; row = table.nextLive(row + 1)) {
+            index.add(table, row);
+        }
+        return index;
+    }
+
+    // ===== Maintenance =====
+
+    public void add(TaskTable table, int row) {
+        Map<String, Integer> counts = count(table, row);
+        int length = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            words.computeIfAbsent(e.getKey(), k -> new Postings()).add(row, e.getValue());
+            length += e.getValue();
+        }
+        if (row >= lengths.length) lengths = Arrays.copyOf(lengths, Math.max(row + 1, lengths.length * 2));
+        lengths[row] = length;
+        indexed.set(row);
+        rows++;
+        totalLength += length;
+    }
+
+    // the row's words are found again from its (unchanged) name and description
+    public void remove(TaskTable table, int row) {
+        if (!indexed.get(row)) return;
+        for (String word : count(table, row).keySet()) {
+            Postings p = words.get(word);
+            if (p == null) continue;
+            p.remove(row);
+            if (p.size == 0) words.remove(word);
+        }
+        indexed.clear(row);
+        rows--;
+        totalLength -= lengths[row];
+        lengths[row] = 0;
+    }
+
+    // After TaskTable.compact(): oldSlots are the live slots before it, ascending, so the row
+    // at oldSlots[i] is now at slot i. Postings keep their order, nothing is tokenized.
+    public void compacted(int[] oldSlots) {
+        int[] newSlot = new int[oldSlots.length == 0 ? 0 : oldSlots[oldSlots.length - 1] + 1];
+        int[] newLengths = new int[oldSlots.length];
+        for (int i = 0; i < oldSlots.length; i++) {
+            newSlot[oldSlots[i]] = i;
+            newLengths[i] = lengths[oldSlots[i]];
+        }
+        for (Postings p : words.values()) {
+            for (int i = 0; i < p.size; i++) p.rows[i] = newSlot[p.rows[i]];
+        }
+        lengths = newLengths;
+        indexed.clear();
+        indexed.set(0, oldSlots.length);
+    }
+
+    private static Map<String, Integer> count(TaskTable table, int row) {
+        Map<String, Integer> counts = new HashMap<>();
+        tokenize(table.name(row), (word, end) -> counts.merge(word, NAME_WEIGHT, Integer::sum));
+        tokenize(table.description(row), (word, end) -> counts.merge(word, 1, Integer::sum));
+        return counts;
+    }
+
+    // ===== Search =====
+
+    // matching rows, best first (equal scores in slot order), and their scores
+    static final class Hits {
+        final int[] rows;
+        final double[] scores;
+        final int total;
+        final int scanned;              // candidates checked against every word
+
+        Hits(int[] rows, double[] scores, int total, int scanned) {
+            this.rows = rows;
+            this.scores = scores;
+            this.total = total;
+            this.scanned = scanned;
+        }
+    }
+
+    public static final class Result {
+        public final long[] ids;
+        public final double[] scores;
+        public final int total;         // matches before the limit
+
+        Result(long[] ids, double[] scores, int total) {
+            this.ids = ids;
+            this.scores = scores;
+            this.total = total;
+        }
+    }
+
+    // Rows containing every query word (a word ending in '*' is a prefix), the best limit of them.
+    Hits search(String query, int limit) {
+        List<Postings[]> terms = new ArrayList<>();
+        for (String[] word : queryWords(query)) {
+            Postings[] matches;
+            if (word[1] != null) {
+                matches = words.subMap(word[0], true, word[0] + Character.MAX_VALUE, false)
+                        .values().toArray(new Postings[0]);
+            } else {
+                Postings p = words.get(word[0]);
+                matches = p == null ? new Postings[0] : new Postings[]{p};
+            }
+            if (matches.length == 0) return new Hits(new int[0], new double[0], 0, 0);
+            terms.add(matches);
+        }
+        if (terms.isEmpty()) return new Hits(new int[0], new double[0], 0, 0);
+
+        // candidates come from the rarest term, the others are looked up per candidate
+        Postings[] rarest = terms.get(0);
+        for (Postings[] t : terms) {
+            if (size(t) < size(rarest)) rarest = t;
+        }
+        int[] candidates = union(rarest);
+        double avgLength = rows == 0 ? 1 : Math.max(1.0, (double) totalLength / rows);
+        double[] scores = new double[candidates.length];
+        int n = 0;
+        for (int row : candidates) {
+            double score = 0;
+            for (Postings[] t : terms) {
+                // a prefix scores as its best matching word
+                double best = -1;
+                for (Postings p : t) {
+                    int c = p.count(row);
+                    if (c > 0) best = Math.max(best, bm25(p.size, c, lengths[row], avgLength));
+                }
+                if (best < 0) {
+                    score = -1;
+                    break;
+                }
+                score += best;
+            }
+            if (score >= 0) {
+                candidates[n] = row;
+                scores[n++] = score;
+            }
+        }
+        int[] order = best(scores, n, limit);
+        int[] outRows = new int[order.length];
+        double[] outScores = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            outRows[i] = candidates[order[i]];
+            outScores[i] = scores[order[i]];
+        }
+        return new Hits(outRows, outScores, n, candidates.length);
+    }
+
+    private double bm25(int df, int count, int length, double avgLength) {
+        double idf = Math.log(1 + (rows - df + 0.5) / (df + 0.5));
+        return idf * count * (K1 + 1) / (count + K1 * (1 - B + B * length / avgLength));
+    }
+
+    // positions of the limit highest scores, highest first, equal scores in position (slot)
+    // order: a heap of the best k so far with the weakest on top, O(n log k)
+    private static int[] best(double[] scores, int n, int limit) {
+        int k = Math.min(n, Math.max(0, limit));
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < n && k > 0; i++) {
+            if (size < k) {
+                heap[size] = i;
+                weakestUp(heap, size++, scores);
+            } else if (ahead(i, heap[0], scores)) {
+                heap[0] = i;
+                weakestDown(heap, size, scores);
+            }
+        }
+        int[] out = new int[size];
+        for (int j = size - 1; j >= 0; j--) {
+            out[j] = heap[0];
+            heap[0] = heap[--size];
+            weakestDown(heap, size, scores);
+        }
+        return out;
+    }
+
+    private static boolean ahead(int a, int b, double[] scores) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : a < b;
+    }
+
+    private static void weakestUp(int[] heap, int i, double[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ahead(heap[parent], heap[i], scores)) return;
+            int t = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = t;
+            i = parent;
+        }
+    }
+
+    private static void weakestDown(int[] heap, int size, double[] scores) {
+        int i = 0;
+        while (true) {
+            int weakest = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < size && ahead(heap[weakest], heap[l], scores)) weakest = l;
+            if (r < size && ahead(heap[weakest], heap[r], scores)) weakest = r;
+            if (weakest == i) return;
+            int t = heap[i];
+            heap[i] = heap[weakest];
+            heap[weakest] = t;
+            i = weakest;
+        }
+    }
+
+    private static int size(Postings[] t) {
+        int n = 0;
+        for (Postings p : t) n += p.size;
+        return n;
+    }
+
+    // rows of all the postings, ascending, no duplicates
+    private static int[] union(Postings[] t) {
+        if (t.length == 1) return Arrays.copyOf(t[0].rows, t[0].size);
+        int[] all = new int[size(t)];
+        int n = 0;
+        for (Postings p : t) {
+            System.arraycopy(p.rows, 0, all, n, p.size);
+            n += p.size;
+        }
+        Arrays.sort(all);
+        int d = 0;
+        for (int i = 0; i < n; i++) {
+            if (d == 0 || all[d - 1] != all[i]) all[d++] = all[i];
+        }
+        return Arrays.copyOf(all, d);
+    }
+
+    // {word, "*" or null}, duplicates dropped
+    private static List<String[]> queryWords(String query) {
+        List<String[]> out = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        tokenize(query, (word, end) -> {
+            boolean prefix = end < query.length() && query.charAt(end) == '*';
+            String key = prefix ? word + "*" : word;
+            if (seen.contains(key)) return;
+            seen.add(key);
+            out.add(new String[]{word, prefix ? "*" : null});
+        });
+        return out;
+    }
+
+    // distinct words
+    public int wordCount() {
+        return words.size();
+    }
+
+    // ===== Tokenizing =====
+
+    interface WordSink {
+        // word is folded; end is the offset just past it in the original text
+        void word(String word, int end);
+    }
+
+    static void tokenize(String text, WordSink out) {
+        if (text == null) return;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int cp = text.codePointAt(i);
+            if (!isWordChar(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            boolean ascii = true;
+            while (i < n) {
+                cp = text.codePointAt(i);
+                if (!isWordChar(cp)) break;
+                if (cp >= 0x80) ascii = false;
+                i += Character.charCount(cp);
+            }
+            String word = fold(text.substring(start, i), ascii);
+            if (!word.isEmpty()) out.word(word, i);
+        }
+    }
+
+    private static boolean isWordChar(int cp) {
+        if (cp < 0x80) return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9');
+        return Character.isLetterOrDigit(cp) || isMark(cp);
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    // lower case without diacritics; plain ASCII skips the normalizer
+    static String fold(String word, boolean ascii) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (ascii) return lower;
+        String d = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(d.length());
+        for (int i = 0; i < d.length(); ) {
+            int cp = d.codePointAt(i);
+            if (!isMark(cp)) sb.appendCodePoint(cp);
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    // ===== Persistence =====
+
+    // tasks-data.txt -> tasks-data.txt.search
+    public static Path fileFor(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".search");
+    }
+
+    // Writes this index, built over table (a snapshot that was just saved), to a temp file and
+    // renames it over path. Rows are numbered by their order in the data file.
+    public void write(Path path, TaskTable table) throws IOException {
+        int[] slots = table.liveSlots();
+        int[] ordinal = new int[table.slots()];
+        for (int i = 0; i < slots.length; i++) ordinal[slots[i]] = i;
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeTo(tmp, table, slots, ordinal);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeTo(Path tmp, TaskTable table, int[] slots, int[] ordinal) throws IOException {
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(slots.length);
+            out.writeLong(contentHash(table, slots));
+            for (int slot : slots) writeVarint(out, lengths[slot]);
+            out.writeInt(words.size());
+            for (Map.Entry<String, Postings> e : words.entrySet()) {
+                Postings p = e.getValue();
+                // not writeUTF: a word can be longer than its 64 KB limit
+                byte[] word = e.getKey().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, word.length);
+                out.write(word);
+                writeVarint(out, p.size);
+                int last = 0;
+                for (int i = 0; i < p.size; i++) {
+                    int o = ordinal[p.rows[i]];
+                    writeVarint(out, o - last);
+                    writeVarint(out, p.counts[i]);
+                    last = o;
+                }
+            }
+            out.flush();
+            ch.force(true);
+        }
+    }
+
+    // The saved index for a table loaded from the data file next to it, or null when there is
+    // none or it belongs to another version of the data (then the caller builds one).
+    public static TaskTextIndex load(Path path, TaskTable table) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            int[] slots = table.liveSlots();
+            if (in.readInt() != slots.length || in.readLong() != contentHash(table, slots)) return null;
+            TaskTextIndex index = new TaskTextIndex();
+            index.lengths = new int[table.slots()];
+            for (int slot : slots) {
+                int length = readVarint(in);
+                index.lengths[slot] = length;
+                index.indexed.set(slot);
+                index.totalLength += length;
+            }
+            index.rows = slots.length;
+            int wordCount = in.readInt();
+            for (int w = 0; w < wordCount; w++) {
+                byte[] bytes = new byte[readVarint(in)];
+                in.readFully(bytes);
+                String word = new String(bytes, StandardCharsets.UTF_8);
+                int size = readVarint(in);
+                Postings p = new Postings();
+                p.rows = new int[Math.max(2, size)];
+                p.counts = new int[p.rows.length];
+                int o = 0;
+                for (int i = 0; i < size; i++) {
+                    o += readVarint(in);
+                    p.rows[i] = slots[o];
+                    p.counts[i] = readVarint(in);
+                }
+                p.size = size;
+                index.words.put(word, p);
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            // missing, unreadable or cut short: build a new one
+            return null;
+        }
+    }
+
+    // identifies the data the index was built for: ids, names and descriptions in row order
+    // (String hash codes, far cheaper than tokenizing; lazy descriptions are hashed in the file)
+    private static long contentHash(TaskTable table, int[] slots) {
+        long h = slots.length;
+        for (int slot : slots) {
+            h = (h ^ table.id(slot)) * 0x9E3779B97F4A7C15L;
+            h = (h ^ hash(table.name(slot)) ^ ((long) table.descriptionHash(slot) << 32)) * 0x9E3779B97F4A7C15L;
+        }
+        return h;
+    }
+
+    private static int hash(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("bad varint");
+    }
+}
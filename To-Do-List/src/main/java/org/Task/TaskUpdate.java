@@ -0,0 +1,76 @@
+package org.Task;
+
+// A set of field changes applied to one task as a unit by TaskStore.update():
+// readers see either none or all of them.
+//
+//   store.update(id, new TaskUpdate().priority(5).status(TaskTable.STATUS_DONE));
+public class TaskUpdate {
+
+    // text form per column (same as the data file), null = unchanged
+    private final String[] values = new String[TaskTable.COLS];
+
+    public TaskUpdate name(String v) { return set(TaskTable.COL_NAME, v); }
+    public TaskUpdate description(String v) { return set(TaskTable.COL_DESC, v); }
+    public TaskUpdate priority(int v) { return set(TaskTable.COL_PRIORITY, String.valueOf(v)); }
+    public TaskUpdate status(byte v) { return set(TaskTable.COL_STATUS, TaskTable.statusName(v)); }
+    public TaskUpdate category(String v) { return set(TaskTable.COL_CATEGORY, v); }
+    public TaskUpdate dueDay(int v) { return set(TaskTable.COL_DUE, TaskTable.formatDay(v)); }
+    public TaskUpdate createdDay(int v) { return set(TaskTable.COL_CREATED, TaskTable.formatDay(v)); }
+    public TaskUpdate hours(double v) { return set(TaskTable.COL_EST_TIME, String.valueOf(v)); }
+    public TaskUpdate tags(String v) { return set(TaskTable.COL_TAGS, v); }
+    public TaskUpdate assignedTo(String v) { return set(TaskTable.COL_ASSIGNED, v); }
+
+    // by column number, value in its text form (file, journal, menu)
+    public TaskUpdate set(int col, String value) {
+        if (col < 0 || col >= TaskTable.COLS || col == TaskTable.COL_ID) {
+            throw new IllegalArgumentException("Column cannot be updated: " + col);
+        }
+        values[col] = value == null ? "" : value;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        for (String v : values) {
+            if (v != null) return false;
+        }
+        return true;
+    }
+
+    // changed columns, ascending
+    int[] columns() {
+        int n = 0;
+        for (String v : values) {
+            if (v != null) n++;
+        }
+        int[] cols = new int[n];
+        n = 0;
+        for (int c = 0; c < values.length; c++) {
+            if (values[c] != null) cols[n++] = c;
+        }
+        return cols;
+    }
+
+    String value(int col) {
+        return values[col];
+    }
+
+    // true when the full-text index has to be touched: name or description
+    boolean touchesText() {
+        return values[TaskTable.COL_NAME] != null || values[TaskTable.COL_DESC] != null;
+    }
+
+    // true when TaskIndex has to be touched: its posting lists, day maps and pending heap
+    boolean touchesIndexes() {
+        return values[TaskTable.COL_CATEGORY] != null || values[TaskTable.COL_PRIORITY] != null
+                || values[TaskTable.COL_STATUS] != null || values[TaskTable.COL_TAGS] != null
+                || values[TaskTable.COL_DUE] != null || values[TaskTable.COL_CREATED] != null
+                || values[TaskTable.COL_EST_TIME] != null;
+    }
+
+    // true when a dashboard counter (TaskStats) has to be touched
+    boolean touchesStats() {
+        return values[TaskTable.COL_STATUS] != null || values[TaskTable.COL_EST_TIME] != null
+                || values[TaskTable.COL_DUE] != null || values[TaskTable.COL_CATEGORY] != null
+                || values[TaskTable.COL_ASSIGNED] != null;
+    }
+}